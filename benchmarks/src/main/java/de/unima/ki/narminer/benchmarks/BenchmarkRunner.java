@@ -0,0 +1,23 @@
+package de.unima.ki.narminer.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks selected by the given JMH command line options. The GC profiler is always attached so that the
+ * allocation rate (gc.alloc.rate.norm, bytes per operation) is reported alongside the throughput of each benchmark.
+ * <p/>
+ * Example: {@code java -jar benchmarks.jar Support -p length=4 -p density=0.2}
+ */
+public class BenchmarkRunner {
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
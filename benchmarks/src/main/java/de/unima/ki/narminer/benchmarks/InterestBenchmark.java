@@ -0,0 +1,32 @@
+package de.unima.ki.narminer.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Interestingness check of itemsets. The unreachable threshold forces the check to evaluate all partitions of the
+ * itemset, which is the cost paid for every uninteresting candidate.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InterestBenchmark {
+    @Benchmark
+    public boolean isInterestingAllPartitions(Workload w) {
+        return w.tdb.isInteresting(w.union[w.next()], Double.MAX_VALUE);
+    }
+
+    @Benchmark
+    public boolean isInterestingFirstPartition(Workload w) {
+        return w.tdb.isInteresting(w.union[w.next()], -1);
+    }
+}
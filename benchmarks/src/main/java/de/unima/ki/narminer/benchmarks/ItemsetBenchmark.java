@@ -0,0 +1,46 @@
+package de.unima.ki.narminer.benchmarks;
+
+import de.unima.ki.narminer.utils.Itemset;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Set operations on itemsets drawn from the transactions of the workload
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ItemsetBenchmark {
+    @Benchmark
+    public Itemset union(Workload w) {
+        int i = w.next();
+        return w.first[i].union(w.second[i]);
+    }
+
+    @Benchmark
+    public Itemset intersect(Workload w) {
+        int i = w.next();
+        return w.first[i].intersect(w.second[i]);
+    }
+
+    @Benchmark
+    public Itemset minus(Workload w) {
+        int i = w.next();
+        return w.first[i].minus(w.second[i]);
+    }
+
+    @Benchmark
+    public boolean containsAll(Workload w) {
+        int i = w.next();
+        return w.union[i].containsAll(w.x[i]);
+    }
+}
@@ -0,0 +1,57 @@
+package de.unima.ki.narminer.benchmarks;
+
+import de.unima.ki.narminer.NARZhangZhang;
+import de.unima.ki.narminer.utils.Itemset;
+import de.unima.ki.narminer.utils.TransactionDatabase;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Probability ratio computation of the PR model for positive and negative rules
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PRBenchmark {
+    private final Miner miner = new Miner();
+
+    @Benchmark
+    public double positive(Workload w) {
+        int i = w.next();
+        return miner.pr(w.tdb, w.union[i], w.y[i], w.x[i]);
+    }
+
+    @Benchmark
+    public double negatedAntecedent(Workload w) {
+        int i = w.next();
+        return miner.pr(w.tdb, w.union[i], w.y[i], false, w.x[i], true);
+    }
+
+    @Benchmark
+    public double bothNegated(Workload w) {
+        int i = w.next();
+        return miner.pr(w.tdb, w.union[i], w.y[i], true, w.x[i], true);
+    }
+
+    /**
+     * Exposes the PR computation of the miner to the benchmarks
+     */
+    private static final class Miner extends NARZhangZhang {
+        double pr(TransactionDatabase tdb, Itemset union, Itemset y, Itemset x) {
+            return computePR(tdb, union, y, x);
+        }
+
+        double pr(TransactionDatabase tdb, Itemset union, Itemset y, boolean negatedY, Itemset x, boolean negatedX) {
+            return computePR(tdb, union, y, negatedY, x, negatedX);
+        }
+    }
+}
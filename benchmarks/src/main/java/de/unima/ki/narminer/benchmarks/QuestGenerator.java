@@ -0,0 +1,356 @@
+package de.unima.ki.narminer.benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.Random;
+
+/**
+ * Generates synthetic transaction databases following the IBM Quest generator described by Agrawal and Srikant in
+ * "Fast Algorithms for Mining Association Rules". Transactions are assembled from a pool of potentially frequent
+ * patterns: pattern sizes and transaction sizes are Poisson distributed, consecutive patterns share a part of their
+ * items, patterns are picked according to exponentially distributed weights and corrupted by dropping items.
+ * <p/>
+ * In addition to the original generator, the items of the patterns can be drawn from a Zipf distribution whose
+ * exponent is given by the skew, a skew of 0 draws items uniformly.
+ * <p/>
+ * The output uses the format read by {@link de.unima.ki.narminer.utils.TransactionDatabase}, one transaction per line
+ * containing its item ids separated by spaces. Every transaction contains at least one item.
+ */
+public class QuestGenerator {
+    /**
+     * Number of consecutive patterns not adding any new item after which a transaction is considered complete
+     */
+    private static final int MAX_STALLED_PATTERNS = 100;
+
+    private int transactions = 10000;
+    private double avgLength = 10;
+    private int items = 1000;
+    private int patterns = 2000;
+    private double avgPatternLength = 4;
+    private double correlation = 0.5;
+    private double corruption = 0.5;
+    private double skew = 0;
+    private long seed = 1;
+
+    public QuestGenerator setTransactions(int transactions) {
+        this.transactions = transactions;
+        return this;
+    }
+
+    public QuestGenerator setAvgLength(double avgLength) {
+        this.avgLength = avgLength;
+        return this;
+    }
+
+    public QuestGenerator setItems(int items) {
+        this.items = items;
+        return this;
+    }
+
+    public QuestGenerator setPatterns(int patterns) {
+        this.patterns = patterns;
+        return this;
+    }
+
+    public QuestGenerator setAvgPatternLength(double avgPatternLength) {
+        this.avgPatternLength = avgPatternLength;
+        return this;
+    }
+
+    /**
+     * Sets the mean fraction of items a pattern shares with its predecessor
+     *
+     * @param correlation mean fraction of shared items
+     * @return this generator
+     */
+    public QuestGenerator setCorrelation(double correlation) {
+        this.correlation = correlation;
+        return this;
+    }
+
+    /**
+     * Sets the mean corruption level, i.e., the mean probability of dropping further items from a pattern when it is
+     * added to a transaction
+     *
+     * @param corruption mean corruption level
+     * @return this generator
+     */
+    public QuestGenerator setCorruption(double corruption) {
+        this.corruption = corruption;
+        return this;
+    }
+
+    /**
+     * Sets the exponent of the Zipf distribution the pattern items are drawn from
+     *
+     * @param skew exponent, 0 for uniformly drawn items
+     * @return this generator
+     */
+    public QuestGenerator setSkew(double skew) {
+        this.skew = skew;
+        return this;
+    }
+
+    public QuestGenerator setSeed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * Writes the configured number of transactions to the given stream. The same configuration always produces the
+     * same transactions.
+     *
+     * @param stream stream to write transactions to
+     * @throws IOException if an error occurs while writing
+     */
+    public void generate(OutputStream stream) throws IOException {
+        if (items < 1 || patterns < 1) {
+            throw new IllegalArgumentException("Number of items and patterns must be positive");
+        }
+
+        Random random = new Random(seed);
+        double[] itemDistribution = createItemDistribution();
+
+        // pool of potentially frequent patterns with their cumulative weights and corruption levels
+        int[][] pool = new int[patterns][];
+        double[] cumulativeWeights = new double[patterns];
+        double[] corruptionLevels = new double[patterns];
+        double totalWeight = 0;
+        int[] previous = new int[0];
+        for (int i = 0; i < patterns; i++) {
+            pool[i] = createPattern(random, itemDistribution, previous);
+            previous = pool[i];
+            totalWeight += -Math.log(1 - random.nextDouble());
+            cumulativeWeights[i] = totalWeight;
+            corruptionLevels[i] = Math.min(1, Math.max(0, corruption + random.nextGaussian() * Math.sqrt(0.1)));
+        }
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(stream, "UTF-8"), 1 << 16);
+        boolean[] contained = new boolean[items];
+        int[] transaction = new int[items];
+        int[] deferred = null;
+
+        for (int t = 0; t < transactions; t++) {
+            int size = Math.min(items, Math.max(1, poisson(random, avgLength)));
+            int len = 0;
+            int stalled = 0;
+
+            while (len < size && stalled < MAX_STALLED_PATTERNS) {
+                int prevLen = len;
+                int[] pattern;
+                if (deferred != null) {
+                    pattern = deferred;
+                    deferred = null;
+                }
+                else {
+                    int idx = Arrays.binarySearch(cumulativeWeights, random.nextDouble() * totalWeight);
+                    idx = Math.min(patterns - 1, idx < 0 ? -idx - 1 : idx);
+                    pattern = corrupt(random, pool[idx], corruptionLevels[idx]);
+                }
+
+                if (len > 0 && len + pattern.length > size && random.nextBoolean()) {
+                    // pattern does not fit, keep it for the next transaction
+                    deferred = pattern;
+                    break;
+                }
+
+                for (int item : pattern) {
+                    if (!contained[item]) {
+                        contained[item] = true;
+                        transaction[len++] = item;
+                    }
+                }
+                if (pattern.length == 0 && len == 0) {
+                    // corruption removed all items, fall back to a single drawn item
+                    int item = drawItem(random, itemDistribution);
+                    contained[item] = true;
+                    transaction[len++] = item;
+                }
+                stalled = len == prevLen ? stalled + 1 : 0;
+            }
+
+            Arrays.sort(transaction, 0, len);
+            for (int i = 0; i < len; i++) {
+                if (i > 0) {
+                    writer.write(' ');
+                }
+                writer.write(Integer.toString(transaction[i]));
+                contained[transaction[i]] = false;
+            }
+            writer.write('\n');
+        }
+        writer.flush();
+    }
+
+    /**
+     * Returns the cumulative distribution of the items, uniform if no skew is set
+     */
+    private double[] createItemDistribution() {
+        double[] res = new double[items];
+        double sum = 0;
+        for (int i = 0; i < items; i++) {
+            sum += 1 / Math.pow(i + 1, skew);
+            res[i] = sum;
+        }
+        for (int i = 0; i < items; i++) {
+            res[i] /= sum;
+        }
+        return res;
+    }
+
+    private static int drawItem(Random random, double[] itemDistribution) {
+        int idx = Arrays.binarySearch(itemDistribution, random.nextDouble());
+        return Math.min(itemDistribution.length - 1, idx < 0 ? -idx - 1 : idx);
+    }
+
+    /**
+     * Creates a pattern taking an exponentially distributed fraction of its items from the previous pattern
+     */
+    private int[] createPattern(Random random, double[] itemDistribution, int[] previous) {
+        int size = Math.min(items, Math.max(1, poisson(random, avgPatternLength)));
+        boolean[] contained = new boolean[items];
+        int[] res = new int[size];
+        int len = 0;
+
+        double fraction = Math.min(1, -Math.log(1 - random.nextDouble()) * correlation);
+        int shared = Math.min(previous.length, Math.min(size, (int) Math.round(fraction * size)));
+        int[] candidates = previous.clone();
+        for (int i = 0; i < shared; i++) {
+            int j = i + random.nextInt(candidates.length - i);
+            int item = candidates[j];
+            candidates[j] = candidates[i];
+            contained[item] = true;
+            res[len++] = item;
+        }
+
+        while (len < size) {
+            int item = drawItem(random, itemDistribution);
+            if (!contained[item]) {
+                contained[item] = true;
+                res[len++] = item;
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Returns a copy of the given pattern from which random items have been dropped as long as a uniformly drawn
+     * number is less than the corruption level
+     */
+    private static int[] corrupt(Random random, int[] pattern, double corruptionLevel) {
+        int[] res = pattern.clone();
+        int len = res.length;
+        while (len > 0 && random.nextDouble() < corruptionLevel) {
+            int idx = random.nextInt(len);
+            res[idx] = res[--len];
+        }
+        return Arrays.copyOf(res, len);
+    }
+
+    /**
+     * Draws a Poisson distributed number with the given mean, using the normal approximation for large means
+     */
+    private static int poisson(Random random, double mean) {
+        if (mean > 60) {
+            return Math.max(0, (int) Math.round(mean + random.nextGaussian() * Math.sqrt(mean)));
+        }
+        double limit = Math.exp(-mean);
+        double product = random.nextDouble();
+        int res = 0;
+        while (product > limit) {
+            product *= random.nextDouble();
+            res++;
+        }
+        return res;
+    }
+
+    /**
+     * Returns a short description of the configuration in the naming scheme of the Quest datasets, e.g.,
+     * T10I4N1000L2000D10000
+     */
+    @Override
+    public String toString() {
+        return "T" + format(avgLength) + "I" + format(avgPatternLength) + "N" + items + "L" + patterns + "D" +
+               transactions + "C" + format(correlation) + "R" + format(corruption) + "S" + format(skew) + "-" + seed;
+    }
+
+    private static String format(double value) {
+        return value == Math.rint(value) ? Long.toString((long) value) : Double.toString(value);
+    }
+
+    /**
+     * Writes a synthetic database to a file. Parameters are given as key=value pairs: transactions, avg_length, items,
+     * patterns, avg_pattern_length, correlation, corruption, skew, seed and the mandatory out.
+     *
+     * @param args generator parameters
+     * @throws IOException if the output file cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        Properties properties = new Properties();
+        for (String arg : args) {
+            int idx = arg.indexOf('=');
+            if (idx < 0) {
+                System.err.println("Invalid parameter \"" + arg + "\", expected key=value");
+                System.exit(1);
+            }
+            properties.setProperty(arg.substring(0, idx), arg.substring(idx + 1));
+        }
+        if (properties.getProperty("out") == null) {
+            System.err.println("No output file given (out=...)");
+            System.exit(1);
+        }
+
+        QuestGenerator generator = fromProperties(properties);
+        OutputStream out = new FileOutputStream(properties.getProperty("out"));
+        try {
+            generator.generate(out);
+        }
+        finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Creates a generator configured by the given properties, missing properties keep their default values
+     *
+     * @param properties generator parameters
+     * @return configured generator
+     */
+    public static QuestGenerator fromProperties(Properties properties) {
+        QuestGenerator generator = new QuestGenerator();
+        if (properties.getProperty("transactions") != null) {
+            generator.setTransactions(Integer.parseInt(properties.getProperty("transactions")));
+        }
+        if (properties.getProperty("avg_length") != null) {
+            generator.setAvgLength(Double.parseDouble(properties.getProperty("avg_length")));
+        }
+        if (properties.getProperty("items") != null) {
+            generator.setItems(Integer.parseInt(properties.getProperty("items")));
+        }
+        if (properties.getProperty("patterns") != null) {
+            generator.setPatterns(Integer.parseInt(properties.getProperty("patterns")));
+        }
+        if (properties.getProperty("avg_pattern_length") != null) {
+            generator.setAvgPatternLength(Double.parseDouble(properties.getProperty("avg_pattern_length")));
+        }
+        if (properties.getProperty("correlation") != null) {
+            generator.setCorrelation(Double.parseDouble(properties.getProperty("correlation")));
+        }
+        if (properties.getProperty("corruption") != null) {
+            generator.setCorruption(Double.parseDouble(properties.getProperty("corruption")));
+        }
+        if (properties.getProperty("skew") != null) {
+            generator.setSkew(Double.parseDouble(properties.getProperty("skew")));
+        }
+        if (properties.getProperty("seed") != null) {
+            generator.setSeed(Long.parseLong(properties.getProperty("seed")));
+        }
+        return generator;
+    }
+}
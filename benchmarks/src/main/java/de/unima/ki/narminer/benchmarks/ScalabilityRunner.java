@@ -0,0 +1,293 @@
+package de.unima.ki.narminer.benchmarks;
+
+import de.unima.ki.narminer.CommandLine;
+import de.unima.ki.narminer.MiningStatistics;
+import de.unima.ki.narminer.NARZhangZhang;
+import de.unima.ki.narminer.utils.AssociationRule;
+import de.unima.ki.narminer.utils.RuleSink;
+import de.unima.ki.narminer.utils.SupportCache;
+import de.unima.ki.narminer.utils.TransactionDatabase;
+import de.unima.ki.narminer.utils.TransactionFileLoader;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * Runs the PR model on synthetic Quest databases over a grid of database sizes and thresholds and records wall time,
+ * peak heap usage, candidate counts per level and the number of rules of every run. Results are written as JSON and
+ * CSV after each run so that partial results of long runs are kept.
+ * <p/>
+ * The configuration is read from the properties file given as first argument, falling back to the bundled
+ * scalability.properties. Generated databases are kept in the data directory and reused by later runs with the same
+ * generator parameters. Large grids require a correspondingly large heap, e.g.,
+ * {@code java -Xmx32g -cp benchmarks.jar de.unima.ki.narminer.benchmarks.ScalabilityRunner grid.properties}.
+ */
+public class ScalabilityRunner {
+    private final Properties properties;
+    private final List<Run> runs = new ArrayList<Run>();
+
+    public ScalabilityRunner(Properties properties) {
+        this.properties = properties;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Properties properties = new Properties();
+        if (args.length > 0) {
+            FileReader reader = new FileReader(args[0]);
+            try {
+                properties.load(reader);
+            }
+            finally {
+                reader.close();
+            }
+        }
+        else {
+            InputStream stream = ScalabilityRunner.class.getResourceAsStream("/scalability.properties");
+            try {
+                properties.load(stream);
+            }
+            finally {
+                stream.close();
+            }
+        }
+
+        Logger.getRootLogger().setLevel(Level.toLevel(properties.getProperty("log_level", "WARN")));
+        new ScalabilityRunner(properties).run();
+    }
+
+    /**
+     * Executes all runs of the configured grid
+     *
+     * @throws Exception if a database cannot be generated or loaded, or the miner cannot be instantiated
+     */
+    public void run() throws Exception {
+        String algorithm = properties.getProperty("algorithm", "zhangzhang").toLowerCase();
+        int threads = Integer.parseInt(properties.getProperty("threads", "1"));
+        int cacheEntries = Integer.parseInt(properties.getProperty("support_cache_entries",
+                                                                   Integer.toString(TransactionDatabase.DEFAULT_CACHE_ENTRIES)));
+        File dataDir = new File(properties.getProperty("data_dir", "target/quest"));
+        String reportFile = properties.getProperty("report_file", "target/scalability");
+
+        if (!CommandLine.AVAILABLE_ALGORITHMS.containsKey(algorithm)) {
+            throw new IllegalArgumentException("No algorithm named \"" + algorithm + "\" available");
+        }
+        if (!dataDir.isDirectory() && !dataDir.mkdirs()) {
+            throw new IOException("Unable to create data directory " + dataDir);
+        }
+
+        for (String size : split(properties.getProperty("transactions", "10000"))) {
+            Properties generatorProperties = new Properties();
+            generatorProperties.putAll(properties);
+            generatorProperties.setProperty("transactions", size);
+            QuestGenerator generator = QuestGenerator.fromProperties(generatorProperties);
+
+            File dataFile = new File(dataDir, generator + ".txt");
+            if (!dataFile.exists()) {
+                System.out.println("Generating " + dataFile);
+                File tmpFile = new File(dataDir, generator + ".tmp");
+                OutputStream out = new FileOutputStream(tmpFile);
+                try {
+                    generator.generate(out);
+                }
+                finally {
+                    out.close();
+                }
+                if (!tmpFile.renameTo(dataFile)) {
+                    throw new IOException("Unable to rename " + tmpFile + " to " + dataFile);
+                }
+            }
+
+            long loadStart = System.nanoTime();
+            TransactionDatabase tdb = new TransactionFileLoader(threads).load(dataFile);
+            long loadMillis = (System.nanoTime() - loadStart) / 1000000;
+
+            for (String minsupp : split(properties.getProperty("minsupport", "0.01"))) {
+                for (String minconf : split(properties.getProperty("minconfidence", "0.5"))) {
+                    for (String mininterest : split(properties.getProperty("mininterest", "0.001"))) {
+                        NARZhangZhang miner = CommandLine.AVAILABLE_ALGORITHMS.get(algorithm)
+                                                                              .getConstructor(int.class)
+                                                                              .newInstance(threads);
+                        // every run starts with an empty cache
+                        tdb.setSupportCache(new SupportCache(cacheEntries));
+
+                        Run run = new Run(generator.toString(), algorithm, threads, tdb.getNumberOfTransactions(),
+                                          Double.parseDouble(minsupp), Double.parseDouble(minconf),
+                                          Double.parseDouble(mininterest), loadMillis);
+                        execute(miner, tdb, run);
+                        runs.add(run);
+
+                        System.out.println(run.toCsv());
+                        writeReports(reportFile);
+                    }
+                }
+            }
+        }
+    }
+
+    private void execute(NARZhangZhang miner, TransactionDatabase tdb, final Run run) throws IOException {
+        System.gc();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+
+        long start = System.nanoTime();
+        // rules are only counted so that the peak heap reflects the mining itself
+        miner.performPRModel(tdb, run.minsupp, run.minconf, run.mininterest, new RuleSink() {
+            @Override
+            public void addPositiveRule(AssociationRule rule) {
+                run.positiveRules++;
+            }
+
+            @Override
+            public void addNegativeRule(AssociationRule rule) {
+                run.negativeRules++;
+            }
+        });
+        run.miningMillis = (System.nanoTime() - start) / 1000000;
+
+        // sum of the peaks of all heap pools, an upper bound of the actual peak since pools peak at different times
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                run.peakHeapBytes += pool.getPeakUsage().getUsed();
+            }
+        }
+
+        run.statistics = miner.getStatistics();
+    }
+
+    private void writeReports(String reportFile) throws IOException {
+        Writer json = new OutputStreamWriter(new FileOutputStream(reportFile + ".json"), "UTF-8");
+        try {
+            json.write("[\n");
+            for (int i = 0; i < runs.size(); i++) {
+                json.write("  ");
+                json.write(runs.get(i).toJson());
+                json.write(i + 1 < runs.size() ? ",\n" : "\n");
+            }
+            json.write("]\n");
+        }
+        finally {
+            json.close();
+        }
+
+        Writer csv = new OutputStreamWriter(new FileOutputStream(reportFile + ".csv"), "UTF-8");
+        try {
+            csv.write(Run.CSV_HEADER);
+            csv.write('\n');
+            for (Run run : runs) {
+                csv.write(run.toCsv());
+                csv.write('\n');
+            }
+        }
+        finally {
+            csv.close();
+        }
+    }
+
+    private static String[] split(String values) {
+        String[] res = values.split(",");
+        for (int i = 0; i < res.length; i++) {
+            res[i] = res[i].trim();
+        }
+        return res;
+    }
+
+    /**
+     * Parameters and measurements of a single run
+     */
+    private static class Run {
+        static final String CSV_HEADER = "dataset,algorithm,threads,transactions,minsupport,minconfidence," +
+                                         "mininterest,load_ms,mining_ms,peak_heap_bytes,candidates," +
+                                         "candidates_per_level,positive_rules,negative_rules";
+
+        final String dataset;
+        final String algorithm;
+        final int threads;
+        final int transactions;
+        final double minsupp;
+        final double minconf;
+        final double mininterest;
+        final long loadMillis;
+
+        long miningMillis;
+        long peakHeapBytes;
+        int positiveRules;
+        int negativeRules;
+        MiningStatistics statistics;
+
+        Run(String dataset, String algorithm, int threads, int transactions, double minsupp, double minconf,
+            double mininterest, long loadMillis) {
+            this.dataset = dataset;
+            this.algorithm = algorithm;
+            this.threads = threads;
+            this.transactions = transactions;
+            this.minsupp = minsupp;
+            this.minconf = minconf;
+            this.mininterest = mininterest;
+            this.loadMillis = loadMillis;
+        }
+
+        String toCsv() {
+            StringBuilder perLevel = new StringBuilder();
+            for (MiningStatistics.Level level : statistics.getLevels()) {
+                if (perLevel.length() > 0) {
+                    perLevel.append(';');
+                }
+                perLevel.append(level.getK()).append(':').append(level.getCandidates());
+            }
+            return String.format(Locale.ROOT, "%s,%s,%d,%d,%s,%s,%s,%d,%d,%d,%d,%s,%d,%d", dataset, algorithm,
+                                 threads, transactions, minsupp, minconf, mininterest, loadMillis, miningMillis,
+                                 peakHeapBytes, statistics.getTotalCandidates(), perLevel, positiveRules, negativeRules);
+        }
+
+        String toJson() {
+            StringBuilder sb = new StringBuilder();
+            sb.append("{\"dataset\": \"").append(dataset).append('"');
+            sb.append(", \"algorithm\": \"").append(algorithm).append('"');
+            sb.append(", \"threads\": ").append(threads);
+            sb.append(", \"transactions\": ").append(transactions);
+            sb.append(", \"minsupport\": ").append(minsupp);
+            sb.append(", \"minconfidence\": ").append(minconf);
+            sb.append(", \"mininterest\": ").append(mininterest);
+            sb.append(", \"load_ms\": ").append(loadMillis);
+            sb.append(", \"mining_ms\": ").append(miningMillis);
+            sb.append(", \"peak_heap_bytes\": ").append(peakHeapBytes);
+            sb.append(", \"candidates\": ").append(statistics.getTotalCandidates());
+            sb.append(", \"levels\": [");
+            List<MiningStatistics.Level> levels = statistics.getLevels();
+            for (int i = 0; i < levels.size(); i++) {
+                MiningStatistics.Level level = levels.get(i);
+                if (i > 0) {
+                    sb.append(", ");
+                }
+                sb.append("{\"k\": ").append(level.getK());
+                sb.append(", \"candidates\": ").append(level.getCandidates());
+                sb.append(", \"frequent\": ").append(level.getFrequent());
+                sb.append(", \"lk\": ").append(level.getLk());
+                sb.append(", \"sk\": ").append(level.getSk()).append('}');
+            }
+            sb.append("]");
+            sb.append(", \"positive_rules\": ").append(positiveRules);
+            sb.append(", \"negative_rules\": ").append(negativeRules);
+            sb.append('}');
+            return sb.toString();
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package de.unima.ki.narminer.benchmarks;
+
+import de.unima.ki.narminer.utils.Itemset;
+import de.unima.ki.narminer.utils.SubsetIterator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Enumeration of all splits of an itemset into two disjoint non-empty parts
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SubsetIteratorBenchmark {
+    @Benchmark
+    public void iterateAllSplits(Workload w, Blackhole bh) {
+        SubsetIterator it = new SubsetIterator(w.union[w.next()]);
+        while (it.hasNext()) {
+            Itemset[] split = it.next();
+            bh.consume(split[0]);
+            bh.consume(split[1]);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package de.unima.ki.narminer.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Support queries of {@link de.unima.ki.narminer.utils.TransactionDatabase} in all their overloads. Unless the
+ * workload is run with cached=true, the support cache is disabled and every query counts transactions.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SupportBenchmark {
+    @Benchmark
+    public double supportOfItemset(Workload w) {
+        return w.tdb.getSupport(w.union[w.next()]);
+    }
+
+    @Benchmark
+    public double supportOfNegatedItemset(Workload w) {
+        return w.tdb.getSupport(w.union[w.next()], true);
+    }
+
+    @Benchmark
+    public double supportOfNegatedPair(Workload w) {
+        int i = w.next();
+        return w.tdb.getSupport(w.x[i], false, w.y[i], true);
+    }
+
+    @Benchmark
+    public double supportOfBothNegated(Workload w) {
+        int i = w.next();
+        return w.tdb.getSupport(w.x[i], true, w.y[i], true);
+    }
+
+    @Benchmark
+    public double supportOfRule(Workload w) {
+        return w.tdb.getSupport(w.rules[w.next()]);
+    }
+
+    @Benchmark
+    public double supportOfTransactions(Workload w) {
+        return w.tdb.getSupport(w.transactionSets.get(w.next()));
+    }
+}
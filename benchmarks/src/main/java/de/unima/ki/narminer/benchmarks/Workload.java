@@ -0,0 +1,175 @@
+package de.unima.ki.narminer.benchmarks;
+
+import de.unima.ki.narminer.utils.AssociationRule;
+import de.unima.ki.narminer.utils.Itemset;
+import de.unima.ki.narminer.utils.SupportCache;
+import de.unima.ki.narminer.utils.Transaction;
+import de.unima.ki.narminer.utils.TransactionDatabase;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Random transaction database together with sample itemsets drawn from its transactions. Every item of the universe
+ * is contained in a transaction with the given density. The benchmarks cycle through the samples so that the JIT
+ * cannot specialize on a single input.
+ */
+@State(Scope.Benchmark)
+public class Workload {
+    public static final int NUM_ITEMS = 100;
+    public static final int NUM_SAMPLES = 256;
+
+    /**
+     * Size of the sample itemsets
+     */
+    @Param({"2", "4", "8"})
+    public int length;
+
+    /**
+     * Number of transactions in the database
+     */
+    @Param({"10000", "100000"})
+    public int transactions;
+
+    /**
+     * Probability of an item being contained in a transaction
+     */
+    @Param({"0.05", "0.2"})
+    public double density;
+
+    /**
+     * If false, the support cache is reduced to a single entry so that support queries measure the actual counting
+     */
+    @Param({"false"})
+    public boolean cached;
+
+    public TransactionDatabase tdb;
+
+    /**
+     * Two independently drawn itemsets per sample, usually overlapping
+     */
+    public Itemset[] first;
+    public Itemset[] second;
+
+    /**
+     * Itemset contained in at least one transaction and its split into disjoint non-empty parts x and y
+     */
+    public Itemset[] union;
+    public Itemset[] x;
+    public Itemset[] y;
+
+    public AssociationRule[] rules;
+    public List<Set<Transaction>> transactionSets;
+
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Random random = new Random(42);
+
+        StringBuilder sb = new StringBuilder();
+        for (int t = 0; t < transactions; t++) {
+            boolean empty = true;
+            for (int item = 0; item < NUM_ITEMS; item++) {
+                if (random.nextDouble() < density) {
+                    if (!empty) {
+                        sb.append(' ');
+                    }
+                    sb.append(item);
+                    empty = false;
+                }
+            }
+            if (empty) {
+                sb.append(random.nextInt(NUM_ITEMS));
+            }
+            sb.append('\n');
+        }
+        tdb = new TransactionDatabase(new ByteArrayInputStream(sb.toString().getBytes("UTF-8")));
+        if (!cached) {
+            tdb.setSupportCache(new SupportCache(1));
+        }
+
+        first = new Itemset[NUM_SAMPLES];
+        second = new Itemset[NUM_SAMPLES];
+        union = new Itemset[NUM_SAMPLES];
+        x = new Itemset[NUM_SAMPLES];
+        y = new Itemset[NUM_SAMPLES];
+        rules = new AssociationRule[NUM_SAMPLES];
+        transactionSets = new ArrayList<Set<Transaction>>(NUM_SAMPLES);
+
+        for (int i = 0; i < NUM_SAMPLES; i++) {
+            first[i] = sample(random);
+            second[i] = sample(random);
+
+            int[] items = first[i].toArray();
+            Itemset.Builder builderX = new Itemset.Builder();
+            Itemset.Builder builderY = new Itemset.Builder();
+            for (int j = 0; j < items.length; j++) {
+                if (j < items.length / 2) {
+                    builderX.add(items[j]);
+                }
+                else {
+                    builderY.add(items[j]);
+                }
+            }
+            union[i] = first[i];
+            x[i] = builderX.build();
+            y[i] = builderY.build();
+
+            rules[i] = new AssociationRule(x[i], false, y[i], true);
+            transactionSets.add(tdb.getTransactionsContaining(union[i]));
+        }
+    }
+
+    /**
+     * Returns the index of the sample to use for the next invocation
+     *
+     * @return index of next sample
+     */
+    public int next() {
+        cursor = (cursor + 1) & (NUM_SAMPLES - 1);
+        return cursor;
+    }
+
+    /**
+     * Draws an itemset of the configured length from a random transaction providing enough items. Falls back to
+     * random items of the universe if no such transaction is found.
+     */
+    private Itemset sample(Random random) {
+        List<Transaction> all = tdb.getAllTransactions();
+        for (int attempt = 0; attempt < 1000; attempt++) {
+            Transaction t = all.get(random.nextInt(all.size()));
+            if (t.size() >= length) {
+                int[] items = t.toArray();
+                shuffle(items, random);
+                return Itemset.of(Arrays.copyOf(items, length));
+            }
+        }
+
+        int[] items = new int[NUM_ITEMS];
+        for (int i = 0; i < items.length; i++) {
+            items[i] = i;
+        }
+        shuffle(items, random);
+        return Itemset.of(Arrays.copyOf(items, length));
+    }
+
+    private static void shuffle(int[] values, Random random) {
+        for (int i = values.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = values[i];
+            values[i] = values[j];
+            values[j] = tmp;
+        }
+    }
+}
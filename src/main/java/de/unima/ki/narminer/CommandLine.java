@@ -1,21 +1,33 @@
 package de.unima.ki.narminer;
 
 import de.unima.ki.narminer.utils.AssociationRule;
+import de.unima.ki.narminer.utils.AsyncRuleWriter;
+import de.unima.ki.narminer.utils.BinaryTransactionFormat;
+import de.unima.ki.narminer.utils.ExternalRuleSorter;
 import de.unima.ki.narminer.utils.IDLookup;
 import de.unima.ki.narminer.utils.IDResolver;
+import de.unima.ki.narminer.utils.MappedIDResolver;
+import de.unima.ki.narminer.utils.RuleMeasure;
+import de.unima.ki.narminer.utils.RuleFormat;
+import de.unima.ki.narminer.utils.SupportCache;
+import de.unima.ki.narminer.utils.TopKRuleSink;
 import de.unima.ki.narminer.utils.TransactionDatabase;
+import de.unima.ki.narminer.utils.TransactionFileLoader;
 
+import javax.management.JMException;
+import javax.management.ObjectName;
 import java.io.*;
+import java.lang.management.ManagementFactory;
 import java.sql.SQLException;
 import java.util.HashMap;
 import java.util.Properties;
-import java.util.Set;
 
 /**
  * Command line starter class for NAR-miner
  */
 public class CommandLine {
-    public static final HashMap<String, Class> AVAILABLE_ALGORITHMS = new HashMap<String, Class>();
+    public static final HashMap<String, Class<? extends NARZhangZhang>> AVAILABLE_ALGORITHMS =
+        new HashMap<String, Class<? extends NARZhangZhang>>();
 
     static {
         AVAILABLE_ALGORITHMS.put("zhangzhang", NARZhangZhang.class);
@@ -52,71 +64,159 @@ public class CommandLine {
             System.exit(4);
         }
 
-        NARZhangZhang algorithmImpl = new NARZhangZhang();
+        String outputFormat = properties.getProperty("output_format", "text").trim();
+        RuleFormat format;
+        try {
+            format = RuleFormat.valueOf(outputFormat.toUpperCase());
+        }
+        catch (IllegalArgumentException e) {
+            System.out.println("No output format named \"" + outputFormat + "\" available!");
+            System.exit(4);
+            return;
+        }
+
+        int threads = Integer.parseInt(properties.getProperty("threads", "1"));
+        NARZhangZhang algorithmImpl;
+        try {
+            algorithmImpl = AVAILABLE_ALGORITHMS.get(algorithm).getConstructor(int.class).newInstance(threads);
+        }
+        catch (ReflectiveOperationException e) {
+            System.err.println("Unable to instantiate algorithm \"" + algorithm + "\": " + e.getMessage());
+            System.exit(4);
+            return;
+        }
+
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(
+                algorithmImpl.getStatistics(), new ObjectName("de.unima.ki.narminer:type=MiningStatistics"));
+        }
+        catch (JMException e) {
+            System.err.println("Unable to register mining statistics for JMX: " + e.getMessage());
+        }
 
         TransactionDatabase tdb = null;
+        long loadStart = System.nanoTime();
         try {
-            tdb = new TransactionDatabase(new FileInputStream(properties.getProperty("transaction_table")));
+            File table = new File(properties.getProperty("transaction_table"));
+            if ("binary".equals(properties.getProperty("transaction_table_format", "text"))) {
+                tdb = BinaryTransactionFormat.read(table);
+            }
+            else {
+                tdb = new TransactionFileLoader(threads).load(table);
+            }
         }
         catch (IOException e) {
             System.err.println("Error reading transaction table: " + e.getMessage());
             System.exit(5);
         }
+        algorithmImpl.getStatistics().setPhaseMillis(MiningStatistics.PHASE_LOAD,
+                                                     (System.nanoTime() - loadStart) / 1000000);
+
+        int cacheEntries = Integer.parseInt(
+            properties.getProperty("support_cache_entries", Integer.toString(TransactionDatabase.DEFAULT_CACHE_ENTRIES)));
+        tdb.setSupportCache(new SupportCache(cacheEntries));
 
-        BufferedWriter writer = null;
+        OutputStream out = null;
         try {
-            writer = new BufferedWriter(new FileWriter(properties.getProperty("output_file")));
+            out = new FileOutputStream(properties.getProperty("output_file"));
         }
         catch (IOException e) {
             System.err.println("Unable to create output file: " + e.getMessage());
             System.exit(6);
         }
 
-        try {
-            IDResolver.setResolver(new IDLookup(properties.getProperty("id_database")));
+        String idDictionary = properties.getProperty("id_dictionary", "").trim();
+        if (!idDictionary.isEmpty()) {
+            try {
+                IDResolver.setResolver(new MappedIDResolver(new File(idDictionary)));
+            }
+            catch (IOException e) {
+                System.err.println("Unable to open ID dictionary: " + e.getMessage());
+                System.exit(7);
+            }
         }
-        catch (SQLException e) {
-            System.err.println("Unable to connect to ID database: " + e.getMessage());
-            System.exit(7);
+        else {
+            try {
+                IDResolver.setResolver(new IDLookup(properties.getProperty("id_database")));
+            }
+            catch (SQLException e) {
+                System.err.println("Unable to connect to ID database: " + e.getMessage());
+                System.exit(7);
+            }
         }
 
-        Set<AssociationRule>[] rules = algorithmImpl
-            .performPRModel(tdb, Double.parseDouble(properties.getProperty("minsupport")),
-                            Double.parseDouble(properties.getProperty("minconfidence")),
-                            Double.parseDouble(properties.getProperty("mininterest")));
+        algorithmImpl.setConstraints(MiningConstraints.fromProperties(properties));
 
-        boolean filterTwoItems = properties.getProperty("only_two_items").equals("true");
-        
         try {
-            writer.write("Transaction database");
-            writer.newLine();
-            writer.write(tdb.getStatistics());
-            writer.newLine();
-            writer.write("Positive rules");
-            writer.newLine();
-            for (AssociationRule rule : rules[0]) {
-                if (filterTwoItems && rule.getUnion().size() != 2) {
-                    continue;
-                }
-                writer.write(rule.toString(IDResolver.getResolver()));
-                writer.newLine();
+            if (format == RuleFormat.TEXT) {
+                String lineSeparator = System.getProperty("line.separator");
+                out.write(("Transaction database" + lineSeparator + tdb.getStatistics() + lineSeparator).getBytes());
             }
 
-            writer.write("Negative rules");
-            writer.newLine();
-            for (AssociationRule rule : rules[1]) {
-                if (filterTwoItems && rule.getUnion().size() != 2) {
-                    continue;
+            double minsupp = Double.parseDouble(properties.getProperty("minsupport"));
+            double minconf = Double.parseDouble(properties.getProperty("minconfidence"));
+            double mininterest = Double.parseDouble(properties.getProperty("mininterest"));
+            int topK = Integer.parseInt(properties.getProperty("top_k", "0").trim());
+            String rankBy = properties.getProperty("rank_by", "").trim();
+
+            AsyncRuleWriter ruleWriter = new AsyncRuleWriter(format.createOutput(out, IDResolver.getResolver()));
+            try {
+                if (topK > 0) {
+                    RuleMeasure measure = RuleMeasure.valueOf(
+                        properties.getProperty("top_k_measure", "confidence").trim().toUpperCase());
+                    TopKRuleSink sink = new TopKRuleSink(topK, measure);
+                    algorithmImpl.performPRModel(tdb, minsupp, minconf, mininterest, sink);
+                    for (AssociationRule rule : sink.getPositiveRules()) {
+                        ruleWriter.addPositiveRule(rule);
+                    }
+                    for (AssociationRule rule : sink.getNegativeRules()) {
+                        ruleWriter.addNegativeRule(rule);
+                    }
+                }
+                else if (!rankBy.isEmpty()) {
+                    int topN = Integer.parseInt(properties.getProperty("rank_top_n", "0").trim());
+                    long memoryBudget = Long.parseLong(properties.getProperty(
+                        "rank_memory_mb", Long.toString(ExternalRuleSorter.DEFAULT_MEMORY_BUDGET >> 20)).trim()) << 20;
+                    ExternalRuleSorter sorter = new ExternalRuleSorter(
+                        ruleWriter, RuleMeasure.valueOf(rankBy.toUpperCase()), topN, memoryBudget, null);
+                    boolean mined = false;
+                    try {
+                        algorithmImpl.performPRModel(tdb, minsupp, minconf, mininterest, sorter);
+                        mined = true;
+                    }
+                    finally {
+                        if (!mined) {
+                            // do not output a partial ranking, only delete the spilled runs
+                            sorter.discard();
+                        }
+                    }
+                    sorter.close();
+                }
+                else {
+                    algorithmImpl.performPRModel(tdb, minsupp, minconf, mininterest, ruleWriter);
                 }
-                writer.write(rule.toString(IDResolver.getResolver()));
-                writer.newLine();
             }
-
-            writer.close();
+            finally {
+                ruleWriter.close();
+            }
         }
         catch (IOException ex) {
             System.err.println("Unable to write output to file: " + ex.getMessage());
             System.exit(8);
         }
+
+        String reportFile = properties.getProperty("output_file") + ".report.json";
+        try {
+            Writer report = new OutputStreamWriter(new FileOutputStream(reportFile), "UTF-8");
+            try {
+                report.write(algorithmImpl.getStatistics().toJson());
+            }
+            finally {
+                report.close();
+            }
+        }
+        catch (IOException ex) {
+            System.err.println("Unable to write run report: " + ex.getMessage());
+        }
     }
 }
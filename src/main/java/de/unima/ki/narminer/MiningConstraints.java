@@ -0,0 +1,200 @@
+package de.unima.ki.narminer;
+
+import de.unima.ki.narminer.utils.Itemset;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Restrictions on the rules produced by a miner which are applied while searching for interesting itemsets instead of
+ * filtering the rules afterwards:
+ * <ul>
+ * <li>the maximum number of items of a rule, the search does not go beyond this itemset size</li>
+ * <li>excluded items, which are removed from the frequent items before generating candidates</li>
+ * <li>required items, at least one of which has to be contained in every rule</li>
+ * <li>consequent-only items, which must not be contained in the antecedent of a rule</li>
+ * </ul>
+ * Itemsets containing no required item or only consequent-only items are still extended if larger itemsets are
+ * allowed, but they are neither evaluated on the last level nor used for generating rules.
+ */
+public class MiningConstraints {
+    private int maxLength = Integer.MAX_VALUE;
+    private final Set<Integer> requiredItems = new TreeSet<Integer>();
+    private final Set<Integer> excludedItems = new TreeSet<Integer>();
+    private final Set<Integer> consequentOnlyItems = new TreeSet<Integer>();
+
+    /**
+     * Creates constraints configured by the given properties. only_two_items=true limits the rules to two items,
+     * max_itemset_length sets an arbitrary limit, required_items, excluded_items and consequent_only_items contain
+     * comma-separated item ids. Missing or empty properties do not restrict the rules.
+     *
+     * @param properties configuration
+     * @return configured constraints
+     */
+    public static MiningConstraints fromProperties(Properties properties) {
+        MiningConstraints constraints = new MiningConstraints();
+        if ("true".equals(properties.getProperty("only_two_items"))) {
+            constraints.setMaxLength(2);
+        }
+        String maxLength = properties.getProperty("max_itemset_length", "").trim();
+        if (!maxLength.isEmpty()) {
+            constraints.setMaxLength(Math.min(constraints.getMaxLength(), Integer.parseInt(maxLength)));
+        }
+        constraints.setRequiredItems(parseItems(properties.getProperty("required_items", "")));
+        constraints.setExcludedItems(parseItems(properties.getProperty("excluded_items", "")));
+        constraints.setConsequentOnlyItems(parseItems(properties.getProperty("consequent_only_items", "")));
+        return constraints;
+    }
+
+    private static Set<Integer> parseItems(String items) {
+        Set<Integer> res = new TreeSet<Integer>();
+        for (String item : items.split(",")) {
+            if (!item.trim().isEmpty()) {
+                res.add(Integer.parseInt(item.trim()));
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Sets the maximum number of items of an itemset
+     *
+     * @param maxLength maximum itemset size, at least 1
+     * @return these constraints
+     */
+    public MiningConstraints setMaxLength(int maxLength) {
+        if (maxLength < 1) {
+            throw new IllegalArgumentException("Maximum itemset length must be positive: " + maxLength);
+        }
+        this.maxLength = maxLength;
+        return this;
+    }
+
+    /**
+     * Sets the items at least one of which has to be contained in every rule, replacing the previous ones
+     *
+     * @param items required items, empty if no item is required
+     * @return these constraints
+     */
+    public MiningConstraints setRequiredItems(Collection<Integer> items) {
+        requiredItems.clear();
+        requiredItems.addAll(items);
+        return this;
+    }
+
+    /**
+     * Sets the items which must not be contained in any itemset, replacing the previous ones
+     *
+     * @param items excluded items
+     * @return these constraints
+     */
+    public MiningConstraints setExcludedItems(Collection<Integer> items) {
+        excludedItems.clear();
+        excludedItems.addAll(items);
+        return this;
+    }
+
+    /**
+     * Sets the items which must not be contained in the antecedent of a rule, replacing the previous ones
+     *
+     * @param items consequent-only items
+     * @return these constraints
+     */
+    public MiningConstraints setConsequentOnlyItems(Collection<Integer> items) {
+        consequentOnlyItems.clear();
+        consequentOnlyItems.addAll(items);
+        return this;
+    }
+
+    /**
+     * Returns the maximum number of items of an itemset
+     *
+     * @return maximum itemset size, {@link Integer#MAX_VALUE} if unlimited
+     */
+    public int getMaxLength() {
+        return maxLength;
+    }
+
+    /**
+     * Returns the items at least one of which has to be contained in every rule
+     *
+     * @return unmodifiable set of required items, empty if no item is required
+     */
+    public Set<Integer> getRequiredItems() {
+        return Collections.unmodifiableSet(requiredItems);
+    }
+
+    /**
+     * Returns the items which must not be contained in any itemset
+     *
+     * @return unmodifiable set of excluded items
+     */
+    public Set<Integer> getExcludedItems() {
+        return Collections.unmodifiableSet(excludedItems);
+    }
+
+    /**
+     * Returns the items which must not be contained in the antecedent of a rule
+     *
+     * @return unmodifiable set of consequent-only items
+     */
+    public Set<Integer> getConsequentOnlyItems() {
+        return Collections.unmodifiableSet(consequentOnlyItems);
+    }
+
+    /**
+     * Returns true if the given item must not be contained in any itemset
+     *
+     * @param item item to check
+     * @return true if the item is excluded
+     */
+    public boolean isExcluded(int item) {
+        return excludedItems.contains(item);
+    }
+
+    /**
+     * Returns true if rules may be generated from the given itemset, i.e., if it contains a required item (if any are
+     * given) and an item allowed in antecedents
+     *
+     * @param itemset itemset to check
+     * @return true if the itemset can produce rules satisfying the constraints
+     */
+    public boolean isProductive(Itemset itemset) {
+        boolean hasRequired = requiredItems.isEmpty();
+        boolean hasAntecedentItem = false;
+        for (int i = 0; i < itemset.size(); i++) {
+            int item = itemset.get(i);
+            hasRequired |= requiredItems.contains(item);
+            hasAntecedentItem |= !consequentOnlyItems.contains(item);
+        }
+        return hasRequired && hasAntecedentItem;
+    }
+
+    /**
+     * Returns the mask of the consequent-only items of the given itemset, bit i selecting its i-th smallest item
+     *
+     * @param itemset itemset to check
+     * @return mask of the items not allowed in antecedents
+     */
+    public long getConsequentOnlyMask(Itemset itemset) {
+        long res = 0;
+        if (!consequentOnlyItems.isEmpty()) {
+            for (int i = 0; i < itemset.size(); i++) {
+                if (consequentOnlyItems.contains(itemset.get(i))) {
+                    res |= 1L << i;
+                }
+            }
+        }
+        return res;
+    }
+
+    @Override
+    public String toString() {
+        return "max length: " + (maxLength == Integer.MAX_VALUE ? "unlimited" : Integer.toString(maxLength)) +
+               ", required: " + requiredItems + ", excluded: " + excludedItems + ", consequent only: " +
+               consequentOnlyItems;
+    }
+}
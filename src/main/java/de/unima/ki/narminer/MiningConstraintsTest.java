@@ -0,0 +1,97 @@
+package de.unima.ki.narminer;
+
+import de.unima.ki.narminer.utils.AssociationRule;
+import de.unima.ki.narminer.utils.Itemset;
+import de.unima.ki.narminer.utils.TestData;
+import de.unima.ki.narminer.utils.TransactionDatabase;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class MiningConstraintsTest {
+    @Test
+    public void testConstrainedRulesMatchFilteredRules() throws Exception {
+        Random random = new Random(8);
+        StringBuilder sb = new StringBuilder();
+        for (int t = 0; t < 2000; t++) {
+            TestData.appendItems(sb, TestData.createItems(random, 5, 4, 12));
+            // correlated items producing positive rules
+            if (random.nextInt(10) == 0) {
+                sb.append("9 10 11");
+            }
+            sb.append('\n');
+        }
+        TransactionDatabase tdb = TestData.createDatabase(sb.toString());
+
+        MiningConstraints[] allConstraints = new MiningConstraints[]{
+            new MiningConstraints().setMaxLength(2),
+            new MiningConstraints().setMaxLength(1),
+            new MiningConstraints().setMaxLength(3).setRequiredItems(Arrays.asList(1, 7)),
+            new MiningConstraints().setExcludedItems(Arrays.asList(0, 5)),
+            new MiningConstraints().setConsequentOnlyItems(Arrays.asList(2, 3)),
+            new MiningConstraints().setMaxLength(2).setRequiredItems(Collections.singleton(4))
+                                   .setConsequentOnlyItems(Collections.singleton(4))
+        };
+
+        for (Class<? extends NARZhangZhang> algorithm : CommandLine.AVAILABLE_ALGORITHMS.values()) {
+            Set<AssociationRule>[] unconstrained = algorithm.getConstructor().newInstance().performPRModel(tdb, 0.02, 0.05, 0.001);
+            assertFalse(filter(unconstrained[0], allConstraints[0]).isEmpty());
+            assertFalse(filter(unconstrained[1], allConstraints[0]).isEmpty());
+
+            for (MiningConstraints constraints : allConstraints) {
+                NARZhangZhang miner = algorithm.getConstructor().newInstance();
+                miner.setConstraints(constraints);
+                Set<AssociationRule>[] rules = miner.performPRModel(tdb, 0.02, 0.05, 0.001);
+                for (int i = 0; i < 2; i++) {
+                    assertEquals(algorithm.getSimpleName() + " " + constraints,
+                                 filter(unconstrained[i], constraints), rules[i]);
+                }
+                assertTrue(miner.getStatistics().getLevels().size() <= constraints.getMaxLength());
+            }
+        }
+    }
+
+    @Test
+    public void testFromProperties() throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty("only_two_items", "true");
+        properties.setProperty("max_itemset_length", "4");
+        properties.setProperty("required_items", "3, 1");
+        properties.setProperty("excluded_items", "");
+        MiningConstraints constraints = MiningConstraints.fromProperties(properties);
+
+        assertEquals(2, constraints.getMaxLength());
+        assertEquals(new HashSet<Integer>(Arrays.asList(1, 3)), constraints.getRequiredItems());
+        assertTrue(constraints.getExcludedItems().isEmpty());
+        assertEquals(Integer.MAX_VALUE, MiningConstraints.fromProperties(new Properties()).getMaxLength());
+    }
+
+    private static Set<AssociationRule> filter(Set<AssociationRule> rules, MiningConstraints constraints) {
+        Set<AssociationRule> res = new HashSet<AssociationRule>();
+        for (AssociationRule rule : rules) {
+            Itemset union = rule.getUnion();
+            boolean excluded = false;
+            boolean required = constraints.getRequiredItems().isEmpty();
+            long antecedent = 0;
+            for (int i = 0; i < union.size(); i++) {
+                excluded |= constraints.isExcluded(union.get(i));
+                required |= constraints.getRequiredItems().contains(union.get(i));
+                if (rule.getAntecedent().contains(union.get(i))) {
+                    antecedent |= 1L << i;
+                }
+            }
+            if (union.size() <= constraints.getMaxLength() && !excluded && required &&
+                (constraints.getConsequentOnlyMask(union) & antecedent) == 0) {
+                res.add(rule);
+            }
+        }
+        return res;
+    }
+}
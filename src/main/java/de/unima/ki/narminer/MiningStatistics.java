@@ -0,0 +1,282 @@
+package de.unima.ki.narminer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Counts collected by a miner during the search for interesting itemsets, one entry per itemset size, together with
+ * the durations of the phases of a run and the number of generated rules. All methods may be called concurrently, so
+ * the statistics of a running miner can be watched through JMX.
+ */
+public class MiningStatistics implements MiningStatisticsMXBean {
+    /**
+     * Phase loading the transaction database
+     */
+    public static final String PHASE_LOAD = "load";
+
+    /**
+     * Phase searching for interesting itemsets
+     */
+    public static final String PHASE_MINING = "mining";
+
+    /**
+     * Phase generating rules from the interesting itemsets
+     */
+    public static final String PHASE_RULE_GENERATION = "rule_generation";
+
+    private final List<Level> levels = new ArrayList<Level>();
+    private final Map<String, Long> phaseMillis = new LinkedHashMap<String, Long>();
+    private long positiveRules;
+    private long negativeRules;
+
+    /**
+     * Records the outcome of evaluating the candidates of a single level
+     *
+     * @param k             size of the itemsets of this level
+     * @param candidates    number of candidates evaluated
+     * @param pruned        number of generated candidates dropped by the constraints before evaluation
+     * @param frequent      number of frequent candidates
+     * @param lk            number of frequent interesting itemsets
+     * @param sk            number of infrequent interesting itemsets
+     * @param lookups       number of support count lookups in the support cache
+     * @param cacheHits     number of lookups answered by the support cache
+     */
+    synchronized void addLevel(int k, int candidates, int pruned, int frequent, int lk, int sk, long lookups,
+                               long cacheHits) {
+        levels.add(new Level(k, candidates, pruned, frequent, lk, sk, lookups, cacheHits));
+    }
+
+    /**
+     * Removes all recorded levels and rule counts. Phase durations are kept since phases like loading the database
+     * happen outside of the miner.
+     */
+    synchronized void clear() {
+        levels.clear();
+        positiveRules = 0;
+        negativeRules = 0;
+    }
+
+    /**
+     * Sets the duration of the given phase of the current run
+     *
+     * @param phase  name of the phase, one of the <code>PHASE_</code> constants for the phases of the miner
+     * @param millis duration in milliseconds
+     */
+    public synchronized void setPhaseMillis(String phase, long millis) {
+        phaseMillis.put(phase, millis);
+    }
+
+    /**
+     * Sets the number of rules passed to the rule sink
+     *
+     * @param positiveRules number of positive rules
+     * @param negativeRules number of negative rules
+     */
+    synchronized void setRuleCounts(long positiveRules, long negativeRules) {
+        this.positiveRules = positiveRules;
+        this.negativeRules = negativeRules;
+    }
+
+    /**
+     * Returns the recorded levels in ascending order of itemset size
+     *
+     * @return recorded levels
+     */
+    @Override
+    public synchronized List<Level> getLevels() {
+        return Collections.unmodifiableList(new ArrayList<Level>(levels));
+    }
+
+    @Override
+    public synchronized int getLevelCount() {
+        return levels.size();
+    }
+
+    /**
+     * Returns the number of candidates evaluated on all levels
+     *
+     * @return total number of candidates
+     */
+    @Override
+    public synchronized long getTotalCandidates() {
+        long res = 0;
+        for (Level level : levels) {
+            res += level.getCandidates();
+        }
+        return res;
+    }
+
+    @Override
+    public synchronized long getTotalPruned() {
+        long res = 0;
+        for (Level level : levels) {
+            res += level.getPruned();
+        }
+        return res;
+    }
+
+    @Override
+    public synchronized long getTotalSupportLookups() {
+        long res = 0;
+        for (Level level : levels) {
+            res += level.getSupportLookups();
+        }
+        return res;
+    }
+
+    @Override
+    public synchronized double getCacheHitRate() {
+        long hits = 0;
+        for (Level level : levels) {
+            hits += level.getCacheHits();
+        }
+        long lookups = getTotalSupportLookups();
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    @Override
+    public synchronized long getPositiveRules() {
+        return positiveRules;
+    }
+
+    @Override
+    public synchronized long getNegativeRules() {
+        return negativeRules;
+    }
+
+    @Override
+    public synchronized Map<String, Long> getPhaseMillis() {
+        return Collections.unmodifiableMap(new LinkedHashMap<String, Long>(phaseMillis));
+    }
+
+    /**
+     * Returns the statistics as JSON object
+     *
+     * @return JSON representation of levels, phase durations and rule counts
+     */
+    public synchronized String toJson() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\n  \"phases_ms\": {");
+        boolean first = true;
+        for (Map.Entry<String, Long> phase : phaseMillis.entrySet()) {
+            sb.append(first ? "" : ", ").append('"').append(phase.getKey()).append("\": ").append(phase.getValue());
+            first = false;
+        }
+        sb.append("},\n");
+        sb.append("  \"candidates\": ").append(getTotalCandidates()).append(",\n");
+        sb.append("  \"pruned\": ").append(getTotalPruned()).append(",\n");
+        sb.append("  \"support_lookups\": ").append(getTotalSupportLookups()).append(",\n");
+        sb.append("  \"cache_hit_rate\": ").append(format(getCacheHitRate())).append(",\n");
+        sb.append("  \"positive_rules\": ").append(positiveRules).append(",\n");
+        sb.append("  \"negative_rules\": ").append(negativeRules).append(",\n");
+        sb.append("  \"levels\": [");
+        for (int i = 0; i < levels.size(); i++) {
+            Level level = levels.get(i);
+            sb.append(i > 0 ? ",\n" : "\n");
+            sb.append("    {\"k\": ").append(level.getK());
+            sb.append(", \"candidates\": ").append(level.getCandidates());
+            sb.append(", \"pruned\": ").append(level.getPruned());
+            sb.append(", \"frequent\": ").append(level.getFrequent());
+            sb.append(", \"lk\": ").append(level.getLk());
+            sb.append(", \"sk\": ").append(level.getSk());
+            sb.append(", \"support_lookups\": ").append(level.getSupportLookups());
+            sb.append(", \"cache_hit_rate\": ").append(format(level.getCacheHitRate())).append('}');
+        }
+        sb.append(levels.isEmpty() ? "]\n}\n" : "\n  ]\n}\n");
+        return sb.toString();
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.4f", value);
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (Level level : levels) {
+            if (sb.length() > 0) {
+                sb.append(", ");
+            }
+            sb.append(level);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Counts of a single level
+     */
+    public static class Level {
+        private final int k;
+        private final int candidates;
+        private final int pruned;
+        private final int frequent;
+        private final int lk;
+        private final int sk;
+        private final long supportLookups;
+        private final long cacheHits;
+
+        Level(int k, int candidates, int pruned, int frequent, int lk, int sk, long supportLookups, long cacheHits) {
+            this.k = k;
+            this.candidates = candidates;
+            this.pruned = pruned;
+            this.frequent = frequent;
+            this.lk = lk;
+            this.sk = sk;
+            this.supportLookups = supportLookups;
+            this.cacheHits = cacheHits;
+        }
+
+        public int getK() {
+            return k;
+        }
+
+        public int getCandidates() {
+            return candidates;
+        }
+
+        public int getPruned() {
+            return pruned;
+        }
+
+        public int getFrequent() {
+            return frequent;
+        }
+
+        public int getLk() {
+            return lk;
+        }
+
+        public int getSk() {
+            return sk;
+        }
+
+        /**
+         * Returns the number of support counts of itemsets with at least two items looked up on this level, single
+         * item counts are read from the item bitmaps directly
+         *
+         * @return number of support cache lookups
+         */
+        public long getSupportLookups() {
+            return supportLookups;
+        }
+
+        public long getCacheHits() {
+            return cacheHits;
+        }
+
+        public double getCacheHitRate() {
+            return supportLookups == 0 ? 0 : (double) cacheHits / supportLookups;
+        }
+
+        @Override
+        public String toString() {
+            return "k=" + k + ": " + candidates + " candidates, " + pruned + " pruned, " + frequent + " frequent, " +
+                   lk + " in Lk, " + sk + " in Sk, " + supportLookups + " support lookups, " + cacheHits +
+                   " cache hits";
+        }
+    }
+}
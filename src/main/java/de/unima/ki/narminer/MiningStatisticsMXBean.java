@@ -0,0 +1,72 @@
+package de.unima.ki.narminer;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Management interface exposing the {@link MiningStatistics} of a miner through JMX
+ */
+public interface MiningStatisticsMXBean {
+    /**
+     * Returns the recorded levels in ascending order of itemset size
+     *
+     * @return recorded levels
+     */
+    List<MiningStatistics.Level> getLevels();
+
+    /**
+     * Returns the number of levels completed so far
+     *
+     * @return number of recorded levels
+     */
+    int getLevelCount();
+
+    /**
+     * Returns the number of candidates evaluated on all levels
+     *
+     * @return total number of candidates
+     */
+    long getTotalCandidates();
+
+    /**
+     * Returns the number of candidates dropped by the constraints on all levels
+     *
+     * @return total number of pruned candidates
+     */
+    long getTotalPruned();
+
+    /**
+     * Returns the number of support cache lookups on all levels
+     *
+     * @return total number of lookups
+     */
+    long getTotalSupportLookups();
+
+    /**
+     * Returns the ratio of lookups answered by the support cache on all levels
+     *
+     * @return hit rate, 0 if there were no lookups
+     */
+    double getCacheHitRate();
+
+    /**
+     * Returns the number of positive rules passed to the rule sink
+     *
+     * @return number of positive rules
+     */
+    long getPositiveRules();
+
+    /**
+     * Returns the number of negative rules passed to the rule sink
+     *
+     * @return number of negative rules
+     */
+    long getNegativeRules();
+
+    /**
+     * Returns the durations of all completed phases in the order they have been recorded
+     *
+     * @return durations in milliseconds by phase name
+     */
+    Map<String, Long> getPhaseMillis();
+}
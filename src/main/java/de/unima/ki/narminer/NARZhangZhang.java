@@ -3,14 +3,31 @@ package de.unima.ki.narminer;
 import de.unima.ki.narminer.utils.AssociationRule;
 import de.unima.ki.narminer.utils.IDResolver;
 import de.unima.ki.narminer.utils.Itemset;
+import de.unima.ki.narminer.utils.RuleMeasure;
+import de.unima.ki.narminer.utils.RuleSink;
+import de.unima.ki.narminer.utils.RuleStore;
+import de.unima.ki.narminer.utils.SubsetSupportTable;
+import de.unima.ki.narminer.utils.SupportCache;
+import de.unima.ki.narminer.utils.SupportEngine;
+import de.unima.ki.narminer.utils.TopKRuleSink;
 import de.unima.ki.narminer.utils.TransactionDatabase;
 import org.apache.log4j.Logger;
 
+import java.io.IOException;
 import java.lang.reflect.Array;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 /**
  * Implements the negative association rule mining algorithm which has been proposed by Zhang and Zhang in "Association
@@ -19,6 +36,79 @@ import java.util.Set;
 public class NARZhangZhang {
     public static final Logger log = Logger.getLogger(NARZhangZhang.class);
 
+    /**
+     * Minimum number of candidates evaluated by a single fork/join task
+     */
+    private static final int MIN_CHUNK_SIZE = 64;
+
+    private final int parallelism;
+    private ForkJoinPool pool;
+
+    private final MiningStatistics statistics = new MiningStatistics();
+    private MiningConstraints constraints = new MiningConstraints();
+
+    /**
+     * Subset support tables of the interesting itemsets of the last search, filled by the interest tests and reused
+     * by the rule generation. Tables only hold the counts fetched so far, mostly a few per itemset.
+     */
+    private final Map<Itemset, SubsetSupportTable> tables = new HashMap<Itemset, SubsetSupportTable>();
+
+    /**
+     * Creates a miner evaluating all candidates on the calling thread
+     */
+    public NARZhangZhang() {
+        this(1);
+    }
+
+    /**
+     * Creates a miner evaluating the candidates of each level using the given number of threads. The mined itemsets
+     * and rules do not depend on the number of threads.
+     *
+     * @param parallelism number of threads to use, 1 for sequential mining, 0 for one thread per available processor
+     */
+    public NARZhangZhang(int parallelism) {
+        if (parallelism < 0) {
+            throw new IllegalArgumentException("Parallelism must not be negative: " + parallelism);
+        }
+        this.parallelism = parallelism == 0 ? Runtime.getRuntime().availableProcessors() : parallelism;
+    }
+
+    /**
+     * Returns the number of threads used for evaluating candidates
+     *
+     * @return number of threads
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Returns the constraints applied while searching for interesting itemsets and generating rules
+     *
+     * @return current constraints
+     */
+    public MiningConstraints getConstraints() {
+        return constraints;
+    }
+
+    /**
+     * Sets the constraints applied while searching for interesting itemsets and generating rules
+     *
+     * @param constraints constraints to apply
+     */
+    public void setConstraints(MiningConstraints constraints) {
+        this.constraints = constraints;
+    }
+
+    /**
+     * Returns the counts collected during the last search for interesting itemsets
+     *
+     * @return statistics of last run
+     */
+    public MiningStatistics getStatistics() {
+        return statistics;
+    }
+
     /**
      * Returns the set of interesting itemsets contained in the given transaction database.
      *
@@ -28,15 +118,32 @@ public class NARZhangZhang {
      * @return array containing positive and negative interesting itemset sets
      */
     public Set<de.unima.ki.narminer.utils.Itemset>[] getInterestItemsets(TransactionDatabase tdb, double minsupp, double mininterest) {
-        minsupp = getActualSupport(tdb, minsupp);
+        return searchLevelWise(tdb, getActualSupport(tdb, minsupp), mininterest);
+    }
+
+    /**
+     * Searches the interesting itemsets level by level. Candidates of level k extend the interesting frequent itemsets
+     * of level k - 1 by one frequent item, the search stops at the first level without interesting frequent or without
+     * interesting infrequent itemsets.
+     *
+     * @param tdb         transaction database to determine itemsets on
+     * @param minsupp     minimum support (relative)
+     * @param mininterest minimum interest
+     * @return array containing positive and negative interesting itemset sets
+     */
+    private Set<Itemset>[] searchLevelWise(TransactionDatabase tdb, double minsupp, double mininterest) {
         Set<Itemset> positiveInterest = new HashSet<Itemset>();
         Set<Itemset> negativeInterest = new HashSet<Itemset>();
 
-        ArrayList<Set<Itemset>> frequent = new ArrayList<Set<Itemset>>();
-
         // create list of all
-        Set<Itemset> prevFrequent = tdb.getFrequent1Itemsets(minsupp);
-        frequent.add(0, prevFrequent);
+        Set<Itemset> frequent1 = tdb.getFrequent1Itemsets(minsupp);
+        Set<Itemset> prevFrequent = removeExcluded(frequent1);
+        int[] frequentItems = getItems(prevFrequent);
+
+        statistics.clear();
+        tables.clear();
+        statistics.addLevel(1, tdb.getAllItems().size(), frequent1.size() - prevFrequent.size(), prevFrequent.size(),
+                            prevFrequent.size(), 0, 0, 0);
 
         positiveInterest.addAll(prevFrequent);
 
@@ -45,74 +152,44 @@ public class NARZhangZhang {
         Set<Itemset> prevSk;
         Set<Itemset> prevLk = new HashSet<Itemset>(prevFrequent);
 
-        do {
+        while (k <= constraints.getMaxLength()) {
+            List<Itemset> candidates = generateCandidates(prevLk, frequentItems);
+            int generated = candidates.size();
+            if (k == constraints.getMaxLength()) {
+                // itemsets of the last level are not extended, so only those producing rules are needed
+                candidates = filterProductive(candidates);
+            }
+            LevelResult result = evaluateCandidates(tdb, candidates, minsupp, mininterest);
+
             Set<Itemset> curLk = new HashSet<Itemset>();
             Set<Itemset> curSk = new HashSet<Itemset>();
-            Set<Itemset> curFrequent = new HashSet<Itemset>();
-            Set<Itemset> doneList = new HashSet<Itemset>();
-
-            for (int firstI = 0; firstI < frequent.size(); firstI++) {
-                for (int secondI = 0; secondI <= firstI; secondI++) {
-                    for (Itemset f1 : frequent.get(firstI)) {
-                        for (Itemset f2 : frequent.get(secondI)) {
-                            Itemset union = f1.union(f2);
-
-                            if (union.size() == k) {
-                                if (doneList.contains(union)) {
-                                    continue;
-                                }
-                                doneList.add(union);
-                                // only consider sets which have at least a subset contained in Lk-1
-                                boolean considerUnion = false;
-                                for (Itemset subset : prevLk) {
-                                    if (union.containsAll(subset)) {
-                                        considerUnion = true;
-                                        break;
-                                    }
-                                }
-
-                                if (!considerUnion) {
-                                    continue;
-                                }
-
-                                // sort in lk and nk
-                                double supp = tdb.getSupport(union);
-                                if (supp >= minsupp) {
-                                    log.debug("Pos: " + toString(union) + " -- " + supp);
-                                    curFrequent.add(union);
-                                    // is itemset interesting?
-                                    if (tdb.isInteresting(union, mininterest)) {
-                                        curLk.add(union);
-                                    }
-                                }
-                                else {
-                                    log.debug("Neg: " + toString(union) + " -- " + supp);
-                                    // is itemset interesting
-                                    if (tdb.isInteresting(union, mininterest)) {
-                                        curSk.add(union);
-                                    }
-                                }
-                            }
-                        }
-                    }
-                }
-            }
-            positiveInterest.addAll(curLk);
-            negativeInterest.addAll(curSk);
+            curLk.addAll(result.lk);
+            curSk.addAll(result.sk);
+            log.info("Level k = " + k + ": " + candidates.size() + " candidates, " + result.frequent + " frequent, " +
+                     curLk.size() + " in Lk, " + curSk.size() + " in Sk");
+            statistics.addLevel(k, candidates.size(), generated - candidates.size(), result.frequent, curLk.size(),
+                                curSk.size(), result.lookups, result.cacheHits);
+            positiveInterest.addAll(keepTables(filterProductive(curLk), result));
+            negativeInterest.addAll(keepTables(filterProductive(curSk), result));
             prevLk = curLk;
             prevSk = curSk;
-            frequent.add(curFrequent);
-            log.info("Content Lk for k = " + k);
-            for (Itemset set : prevLk) {
-                log.info(set.toString(IDResolver.getResolver()));
-            }
-            log.info("Content Sk for k = " + k);
-            for (Itemset set : prevSk) {
-                log.info(set.toString(IDResolver.getResolver()));
+            if (log.isDebugEnabled()) {
+                // resolving the names may require a database lookup per item
+                log.debug("Content Lk for k = " + k);
+                for (Itemset set : prevLk) {
+                    log.debug(set.toString(IDResolver.getResolver()));
+                }
+                log.debug("Content Sk for k = " + k);
+                for (Itemset set : prevSk) {
+                    log.debug(set.toString(IDResolver.getResolver()));
+                }
             }
 
+            if (prevLk.isEmpty() || prevSk.isEmpty()) {
+                break;
+            }
             k++;
-        } while (!prevLk.isEmpty() && !prevSk.isEmpty());
+        }
 
         Set<Itemset>[] res = (Set<Itemset>[]) Array.newInstance(Set.class, 2);
         res[0] = positiveInterest;
@@ -121,6 +198,225 @@ public class NARZhangZhang {
         return res;
     }
 
+    /**
+     * Sorts the given candidates into interesting frequent and interesting infrequent itemsets. Depending on the
+     * configured parallelism, the candidates are split into chunks evaluated by a fork/join pool.
+     */
+    private LevelResult evaluateCandidates(TransactionDatabase tdb, List<Itemset> candidates, double minsupp,
+                                           double mininterest) {
+        SupportCache cache = tdb.getSupportCache();
+        long hits = cache.getHitCount();
+        long lookups = hits + cache.getMissCount();
+
+        LevelResult result;
+        if (parallelism <= 1 || candidates.size() < 2 * MIN_CHUNK_SIZE) {
+            result = evaluateCandidates(tdb, candidates, 0, candidates.size(), minsupp, mininterest);
+        }
+        else {
+            int chunkSize = Math.max(MIN_CHUNK_SIZE, candidates.size() / (parallelism * 8));
+            result = getPool().invoke(
+                new CandidateEvaluationTask(tdb, candidates, 0, candidates.size(), chunkSize, minsupp, mininterest));
+        }
+
+        result.cacheHits = cache.getHitCount() - hits;
+        result.lookups = cache.getHitCount() + cache.getMissCount() - lookups;
+        return result;
+    }
+
+    /**
+     * Sorts the candidates in the given range into interesting frequent and interesting infrequent itemsets
+     */
+    private static LevelResult evaluateCandidates(TransactionDatabase tdb, List<Itemset> candidates, int from, int to,
+                                                  double minsupp, double mininterest) {
+        LevelResult result = new LevelResult();
+        boolean debug = log.isDebugEnabled();
+
+        for (int i = from; i < to; i++) {
+            Itemset union = candidates.get(i);
+            SubsetSupportTable table =
+                SubsetSupportTable.isSupported(union) ? new SubsetSupportTable(tdb, union) : null;
+            // sort in lk and nk
+            double supp = table != null ? table.getSupport(table.getFullMask()) : tdb.getSupport(union);
+            if (supp >= minsupp) {
+                if (debug) {
+                    log.debug("Pos: " + toString(union) + " -- " + supp);
+                }
+                result.frequent++;
+                // is itemset interesting?
+                if (isInteresting(tdb, union, table, mininterest)) {
+                    result.lk.add(union);
+                    result.addTable(table);
+                }
+            }
+            else {
+                if (debug) {
+                    log.debug("Neg: " + toString(union) + " -- " + supp);
+                }
+                // is itemset interesting
+                if (isInteresting(tdb, union, table, mininterest)) {
+                    result.sk.add(union);
+                    result.addTable(table);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    private static boolean isInteresting(TransactionDatabase tdb, Itemset itemset, SubsetSupportTable table,
+                                         double mininterest) {
+        return table != null ? tdb.isInteresting(table, mininterest) : tdb.isInteresting(itemset, mininterest);
+    }
+
+    /**
+     * Keeps the support tables of the given interesting itemsets for the rule generation
+     *
+     * @return the given itemsets
+     */
+    private List<Itemset> keepTables(List<Itemset> itemsets, LevelResult result) {
+        for (Itemset itemset : itemsets) {
+            SubsetSupportTable table = result.tables.get(itemset);
+            if (table != null) {
+                tables.put(itemset, table);
+            }
+        }
+        return itemsets;
+    }
+
+    /**
+     * Returns the support table of the given interesting itemset kept from the search, or a new one. The kept table is
+     * released, every itemset is only used once by the rule generation.
+     */
+    private SubsetSupportTable takeTable(TransactionDatabase tdb, Itemset itemset) {
+        SubsetSupportTable table = tables.remove(itemset);
+        return table != null ? table : new SubsetSupportTable(tdb, itemset);
+    }
+
+    /**
+     * Returns the pool used for parallel evaluation, creating it on first use. The pool is shut down by
+     * {@link #performPRModel(TransactionDatabase, double, double, double, RuleSink)} as soon as the interesting
+     * itemsets have been found; callers of {@link #getInterestItemsets(TransactionDatabase, double, double)} release it
+     * by {@link #shutdownPool()}.
+     *
+     * @return fork/join pool with the configured parallelism
+     */
+    protected synchronized ForkJoinPool getPool() {
+        if (pool == null) {
+            pool = new ForkJoinPool(parallelism);
+        }
+        return pool;
+    }
+
+    /**
+     * Shuts down the pool used for parallel evaluation, if it has been created. A new pool is created when it is
+     * needed again.
+     */
+    public synchronized void shutdownPool() {
+        if (pool != null) {
+            pool.shutdown();
+            pool = null;
+        }
+    }
+
+    /**
+     * Generates the candidate k-itemsets for the given interesting frequent (k-1)-itemsets. Candidates are all itemsets
+     * L ∪ {i} with L from Lk-1 and i a frequent item not contained in L. Every candidate is generated exactly once,
+     * namely from the member of Lk-1 which results from removing the largest item possible, which is checked by hash
+     * lookups in Lk-1.
+     *
+     * @param prevLk        interesting frequent (k-1)-itemsets
+     * @param frequentItems frequent items in ascending order
+     * @return list of all candidate k-itemsets
+     */
+    List<Itemset> generateCandidates(Set<Itemset> prevLk, int[] frequentItems) {
+        List<Itemset> candidates = new ArrayList<Itemset>();
+
+        for (Itemset l : prevLk) {
+            for (int item : frequentItems) {
+                if (l.contains(item)) {
+                    continue;
+                }
+
+                Itemset candidate = l.with(item);
+                if (isCanonicalParent(candidate, item, prevLk)) {
+                    candidates.add(candidate);
+                }
+            }
+        }
+
+        return candidates;
+    }
+
+    /**
+     * Returns true if removing any item larger than the given one from the candidate does not lead to a member of
+     * Lk-1, i.e., if candidate minus item is the canonical parent of the candidate
+     */
+    private static boolean isCanonicalParent(Itemset candidate, int item, Set<Itemset> prevLk) {
+        for (int i = candidate.size() - 1; i >= 0 && candidate.get(i) > item; i--) {
+            if (prevLk.contains(candidate.without(candidate.get(i)))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the given 1-itemsets without those consisting of an excluded item
+     */
+    private Set<Itemset> removeExcluded(Set<Itemset> singletons) {
+        Set<Itemset> res = new HashSet<Itemset>();
+        for (Itemset singleton : singletons) {
+            if (!constraints.isExcluded(singleton.get(0))) {
+                res.add(singleton);
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Returns the itemsets of the given collection from which rules satisfying the constraints can be generated
+     */
+    private List<Itemset> filterProductive(Collection<Itemset> itemsets) {
+        List<Itemset> res = new ArrayList<Itemset>(itemsets.size());
+        for (Itemset itemset : itemsets) {
+            if (constraints.isProductive(itemset)) {
+                res.add(itemset);
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Returns the distinct items contained in the given positive and negative itemsets
+     */
+    private static Set<Integer> getItems(Collection<Itemset> positive, Collection<Itemset> negative) {
+        Set<Integer> res = new TreeSet<Integer>();
+        for (Itemset itemset : positive) {
+            for (int i = 0; i < itemset.size(); i++) {
+                res.add(itemset.get(i));
+            }
+        }
+        for (Itemset itemset : negative) {
+            for (int i = 0; i < itemset.size(); i++) {
+                res.add(itemset.get(i));
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Returns the items of the given 1-itemsets in ascending order
+     */
+    private static int[] getItems(Set<Itemset> singletons) {
+        int[] res = new int[singletons.size()];
+        int pos = 0;
+        for (Itemset singleton : singletons) {
+            res[pos++] = singleton.get(0);
+        }
+        Arrays.sort(res);
+        return res;
+    }
+
     /**
      * Applies the RP model algorithm for harvesting association rules which has been introduced by Zhang and Zhang
      *
@@ -128,18 +424,69 @@ public class NARZhangZhang {
      * @param minsupp     minimum support value
      * @param minconf     minimum confidence value
      * @param mininterest minimum interest value
-     * @return array of sets of positive and negative association rules
+     * @return array of sets of positive and negative association rules, each one a {@link RuleStore}
      */
     public Set<AssociationRule>[] performPRModel(TransactionDatabase tdb, double minsupp, double minconf, double mininterest) {
-        minsupp = getActualSupport(tdb, minsupp);
-        Set<Itemset>[] interestItemsets = getInterestItemsets(tdb, minsupp, mininterest);
+        RuleCollector collector = new RuleCollector();
+        try {
+            performPRModel(tdb, minsupp, minconf, mininterest, collector);
+        }
+        catch (IOException e) {
+            // the collector never fails
+            throw new IllegalStateException(e);
+        }
 
-        HashSet<AssociationRule> positiveRules = new HashSet<AssociationRule>();
-        HashSet<AssociationRule> negativeRules = new HashSet<AssociationRule>();
+        Set<AssociationRule>[] arr = (Set<AssociationRule>[]) Array.newInstance(Set.class, 2);
+        arr[0] = collector.positiveRules;
+        arr[1] = collector.negativeRules;
+        return arr;
+    }
+
+    /**
+     * Applies the RP model algorithm passing every association rule to the given sink as soon as it has been found.
+     * Only the interesting itemsets are kept in memory, the rules are not.
+     * <p/>
+     * If the sink is a {@link TopKRuleSink}, the thresholds of its measure are raised to the threshold of the sink
+     * while rules are generated, so rules which cannot be among the best ones are not computed. For ranking by
+     * support, the positive interesting itemsets are processed in descending order of support and the generation of
+     * positive rules stops at the first itemset whose support is below the threshold.
+     *
+     * @param tdb         transaction database
+     * @param minsupp     minimum support value
+     * @param minconf     minimum confidence value
+     * @param mininterest minimum interest value
+     * @param sink        receiver of the positive and negative association rules
+     * @throws IOException if the sink fails to process a rule
+     */
+    public void performPRModel(TransactionDatabase tdb, double minsupp, double minconf, double mininterest,
+                               RuleSink sink) throws IOException {
+        minsupp = getActualSupport(tdb, minsupp);
+        long start = System.nanoTime();
+        Set<Itemset>[] interestItemsets;
+        try {
+            interestItemsets = getInterestItemsets(tdb, minsupp, mininterest);
+        }
+        finally {
+            // rules are generated on the calling thread
+            shutdownPool();
+        }
+        statistics.setPhaseMillis(MiningStatistics.PHASE_MINING, (System.nanoTime() - start) / 1000000);
+        start = System.nanoTime();
+        boolean debug = log.isDebugEnabled();
+        long positiveRules = 0;
+        long negativeRules = 0;
 
-        Set<Itemset> pl = interestItemsets[0];
+        Collection<Itemset> pl = interestItemsets[0];
         Set<Itemset> nl = interestItemsets[1];
 
+        // rules only consist of items of interesting itemsets, so all names are known before rendering the rules
+        IDResolver.getResolver().prefetch(getItems(pl, nl));
+
+        boolean bySupport = sink instanceof TopKRuleSink && ((TopKRuleSink) sink).getMeasure() == RuleMeasure.SUPPORT;
+        if (bySupport) {
+            pl = sortBySupport(tdb, pl);
+        }
+
         /*
          * Generate positive association rules
          */
@@ -147,41 +494,68 @@ public class NARZhangZhang {
             if (a.size() <= 1) {
                 continue;
             }
-            Iterator<Itemset[]> subsetIt = a.getSubsetIterator();
-            double supportVal = tdb.getSupport(a);
-
-            while (subsetIt.hasNext()) {
-                Itemset[] subsets = subsetIt.next();
-                log.debug("Subset: ");
-                log.debug(a.toString(IDResolver.getResolver()) + "[" +
-                          subsets[0].toString(IDResolver.getResolver()) + ", " +
-                          subsets[1].toString(IDResolver.getResolver()) + "]");
-                Itemset x = subsets[0];
-                Itemset y = subsets[1];
+            if (!SubsetSupportTable.isSupported(a)) {
+                log.warn("Skipping rules of itemset with " + a.size() + " items, its bipartitions cannot be enumerated");
+                continue;
+            }
+            // the support counts of all subsets are looked up at most once for all partitions of a
+            SubsetSupportTable table = takeTable(tdb, a);
+            long full = table.getFullMask();
+            long consequentOnly = constraints.getConsequentOnlyMask(a);
+            double supportVal = table.getSupport(full);
+            if (bySupport && supportVal < getThreshold(Double.NEGATIVE_INFINITY, sink, RuleMeasure.SUPPORT, false)) {
+                // all remaining itemsets have lower support
+                break;
+            }
 
-                double interestVal = tdb.getInterestValue(a, x, y);
+            // partitions in the order of the subset iterator, X containing the largest item
+            for (long y = 1; y < (full + 1) >>> 1; y++) {
+                long x = full ^ y;
+                if (debug) {
+                    log.debug("Subset: ");
+                    log.debug(a.toString(IDResolver.getResolver()) + "[" +
+                              table.getSubset(x).toString(IDResolver.getResolver()) + ", " +
+                              table.getSubset(y).toString(IDResolver.getResolver()) + "]");
+                }
 
-                if (interestVal < mininterest) {
+                boolean xAntecedent = (x & consequentOnly) == 0;
+                boolean yAntecedent = (y & consequentOnly) == 0;
+                if (!xAntecedent && !yAntecedent) {
                     continue;
                 }
 
-                double confVal = computePR(tdb, a, y, x);
-                if (confVal >= minconf) {
-                    AssociationRule rule = new AssociationRule(x, y);
-                    rule.setConfidence(confVal);
-                    rule.setSupport(supportVal);
+                double interestVal = table.getInterest(x, y);
 
-                    positiveRules.add(rule);
+                if (interestVal < getThreshold(mininterest, sink, RuleMeasure.INTEREST, false)) {
+                    continue;
                 }
 
-                //noinspection SuspiciousNameCombination
-                confVal = computePR(tdb, a, x, y);
-                if (confVal >= minconf) {
-                    AssociationRule rule = new AssociationRule(y, x);
-                    rule.setConfidence(confVal);
-                    rule.setSupport(supportVal);
+                double confVal;
+                if (xAntecedent) {
+                    confVal = computePR(table, y, false, x, false);
+                    if (confVal >= getThreshold(minconf, sink, RuleMeasure.CONFIDENCE, false)) {
+                        AssociationRule rule = new AssociationRule(table.getSubset(x), table.getSubset(y));
+                        rule.setConfidence(confVal);
+                        rule.setSupport(supportVal);
+                        rule.setInterest(interestVal);
+
+                        sink.addPositiveRule(rule);
+                        positiveRules++;
+                    }
+                }
 
-                    positiveRules.add(rule);
+                if (yAntecedent) {
+                    //noinspection SuspiciousNameCombination
+                    confVal = computePR(table, x, false, y, false);
+                    if (confVal >= getThreshold(minconf, sink, RuleMeasure.CONFIDENCE, false)) {
+                        AssociationRule rule = new AssociationRule(table.getSubset(y), table.getSubset(x));
+                        rule.setConfidence(confVal);
+                        rule.setSupport(supportVal);
+                        rule.setInterest(interestVal);
+
+                        sink.addPositiveRule(rule);
+                        positiveRules++;
+                    }
                 }
             }
         }
@@ -190,86 +564,164 @@ public class NARZhangZhang {
          * Generate negative association rules
          */
         for (Itemset a : nl) {
-            Iterator<Itemset[]> subsetIt = a.getSubsetIterator();
+            if (!SubsetSupportTable.isSupported(a)) {
+                log.warn("Skipping rules of itemset with " + a.size() + " items, its bipartitions cannot be enumerated");
+                continue;
+            }
+            SubsetSupportTable table = takeTable(tdb, a);
+            long full = table.getFullMask();
+            long consequentOnly = constraints.getConsequentOnlyMask(a);
 
+            for (long y = 1; y < (full + 1) >>> 1; y++) {
+                long x = full ^ y;
 
-            while (subsetIt.hasNext()) {
-                Itemset[] subsets = subsetIt.next();
-                Itemset x = subsets[0];
-                Itemset y = subsets[1];
+                boolean xAntecedent = (x & consequentOnly) == 0;
+                boolean yAntecedent = (y & consequentOnly) == 0;
+                if (!xAntecedent && !yAntecedent) {
+                    continue;
+                }
 
-                double suppX = tdb.getSupport(x);
-                double suppY = tdb.getSupport(y);
+                double suppX = table.getSupport(x);
+                double suppY = table.getSupport(y);
 
                 if (suppX < minsupp || suppY < minsupp) {
                     continue;
                 }
 
-                log.debug("---------------------------------");
-                log.debug("X: " + x.toString(IDResolver.getResolver()) + ", Y: " +
-                          y.toString(IDResolver.getResolver()));
-                log.debug("not X --> Y or Y --> not X");
+                if (debug) {
+                    log.debug("---------------------------------");
+                    log.debug("X: " + table.getSubset(x).toString(IDResolver.getResolver()) + ", Y: " +
+                              table.getSubset(y).toString(IDResolver.getResolver()));
+                    log.debug("not X --> Y or Y --> not X");
+                }
                 // generate rules not X --> Y and Y --> not X
-                double supportVal = tdb.getSupport(x, true, y, false);
-                log.debug("Support: " + supportVal);
-                if (supportVal >= minsupp) {
-                    double interest = tdb.getInterest(x, true, y, false);
-                    log.debug("Interest: " + interest);
-                    if (interest >= mininterest) {
-                        double confidenceVal = computePR(tdb, a, y, false, x, true);
-                        log.debug("Confidence: " + confidenceVal);
-                        if (confidenceVal >= minconf) {
-                            AssociationRule rule = new AssociationRule(x, true, y, false);
-                            rule.setConfidence(confidenceVal);
-
-                            rule.setSupport(tdb.getConditionalSupport(x, true, y, false));
-                            negativeRules.add(rule);
+                double supportVal;
+                // both rules have X as antecedent
+                if (xAntecedent) {
+                    supportVal = table.getSupport(x, true, y, false);
+                    if (debug) {
+                        log.debug("Support: " + supportVal);
+                    }
+                    if (supportVal >= minsupp) {
+                        double interest = table.getInterest(x, true, y, false);
+                        if (debug) {
+                            log.debug("Interest: " + interest);
                         }
-                        confidenceVal = computePR(tdb, a, y, true, x, false);
-                        log.debug("Confidence: " + confidenceVal);
-                        if (confidenceVal >= minconf) {
-                            AssociationRule rule = new AssociationRule(x, false, y, true);
-                            rule.setConfidence(confidenceVal);
-                            rule.setSupport(supportVal);
-                            negativeRules.add(rule);
+                        if (interest >= getThreshold(mininterest, sink, RuleMeasure.INTEREST, true)) {
+                            double confidenceVal = computePR(table, y, false, x, true);
+                            if (debug) {
+                                log.debug("Confidence: " + confidenceVal);
+                            }
+                            if (confidenceVal >= getThreshold(minconf, sink, RuleMeasure.CONFIDENCE, true)) {
+                                AssociationRule rule =
+                                    new AssociationRule(table.getSubset(x), true, table.getSubset(y), false);
+                                rule.setConfidence(confidenceVal);
+
+                                rule.setSupport(table.getConditionalSupport(x, true, y, false));
+                                rule.setInterest(interest);
+                                sink.addNegativeRule(rule);
+                                negativeRules++;
+                            }
+                            if (supportVal >= getThreshold(minsupp, sink, RuleMeasure.SUPPORT, true)) {
+                                confidenceVal = computePR(table, y, true, x, false);
+                                if (debug) {
+                                    log.debug("Confidence: " + confidenceVal);
+                                }
+                                if (confidenceVal >= getThreshold(minconf, sink, RuleMeasure.CONFIDENCE, true)) {
+                                    AssociationRule rule =
+                                        new AssociationRule(table.getSubset(x), false, table.getSubset(y), true);
+                                    rule.setConfidence(confidenceVal);
+                                    rule.setSupport(supportVal);
+                                    rule.setInterest(interest);
+                                    sink.addNegativeRule(rule);
+                                    negativeRules++;
+                                }
+                            }
                         }
                     }
                 }
 
                 // generate rules not X --> not Y and not Y --> not X
-                log.debug("not X --> not Y or not Y --> not X");
-                supportVal = tdb.getSupport(x, true, y, true);
-                log.debug("Support: " + supportVal);
+                if (debug) {
+                    log.debug("not X --> not Y or not Y --> not X");
+                }
+                supportVal = table.getSupport(x, true, y, true);
+                if (debug) {
+                    log.debug("Support: " + supportVal);
+                }
                 if (supportVal >= minsupp) {
-                    double interestVal = tdb.getInterest(x, true, y, true);
-                    log.debug("Interest: " + interestVal);
-                    if (interestVal >= mininterest) {
-                        double confidenceVal = computePR(tdb, a, y, true, x, true);
-                        log.debug("Confidence: " + confidenceVal);
-                        if (confidenceVal >= minconf) {
-                            AssociationRule rule = new AssociationRule(y, true, x, true);
-                            rule.setSupport(tdb.getConditionalSupport(x, true, y, true));
-                            rule.setConfidence(confidenceVal);
-                            negativeRules.add(rule);
+                    double interestVal = table.getInterest(x, true, y, true);
+                    if (debug) {
+                        log.debug("Interest: " + interestVal);
+                    }
+                    if (interestVal >= getThreshold(mininterest, sink, RuleMeasure.INTEREST, true)) {
+                        double confidenceVal;
+                        if (yAntecedent) {
+                            confidenceVal = computePR(table, y, true, x, true);
+                            if (debug) {
+                                log.debug("Confidence: " + confidenceVal);
+                            }
+                            if (confidenceVal >= getThreshold(minconf, sink, RuleMeasure.CONFIDENCE, true)) {
+                                AssociationRule rule =
+                                    new AssociationRule(table.getSubset(y), true, table.getSubset(x), true);
+                                rule.setSupport(table.getConditionalSupport(x, true, y, true));
+                                rule.setConfidence(confidenceVal);
+                                rule.setInterest(interestVal);
+                                sink.addNegativeRule(rule);
+                                negativeRules++;
+                            }
                         }
 
-                        confidenceVal = computePR(tdb, a, x, false, y, false);
-                        log.debug("Confidence: " + confidenceVal);
-                        if (confidenceVal >= minconf) {
-                            AssociationRule rule = new AssociationRule(x, true, y, true);
-                            rule.setConfidence(confidenceVal);
-                            rule.setSupport(supportVal);
-                            negativeRules.add(rule);
+                        if (xAntecedent && supportVal >= getThreshold(minsupp, sink, RuleMeasure.SUPPORT, true)) {
+                            confidenceVal = computePR(table, x, false, y, false);
+                            if (debug) {
+                                log.debug("Confidence: " + confidenceVal);
+                            }
+                            if (confidenceVal >= getThreshold(minconf, sink, RuleMeasure.CONFIDENCE, true)) {
+                                AssociationRule rule =
+                                    new AssociationRule(table.getSubset(x), true, table.getSubset(y), true);
+                                rule.setConfidence(confidenceVal);
+                                rule.setSupport(supportVal);
+                                rule.setInterest(interestVal);
+                                sink.addNegativeRule(rule);
+                                negativeRules++;
+                            }
                         }
                     }
                 }
             }
         }
 
-        HashSet<AssociationRule>[] arr = (HashSet<AssociationRule>[]) Array.newInstance(HashSet.class, 2);
-        arr[0] = positiveRules;
-        arr[1] = negativeRules;
-        return arr;
+        tables.clear();
+        statistics.setPhaseMillis(MiningStatistics.PHASE_RULE_GENERATION, (System.nanoTime() - start) / 1000000);
+        statistics.setRuleCounts(positiveRules, negativeRules);
+        log.info("Support cache: " + tdb.getSupportCache().getStatistics());
+    }
+
+    /**
+     * Returns the given threshold raised to the threshold of the sink if the sink keeps the best rules by the given
+     * measure
+     */
+    private static double getThreshold(double threshold, RuleSink sink, RuleMeasure measure, boolean negative) {
+        if (sink instanceof TopKRuleSink && ((TopKRuleSink) sink).getMeasure() == measure) {
+            TopKRuleSink topK = (TopKRuleSink) sink;
+            return Math.max(threshold, negative ? topK.getNegativeThreshold() : topK.getPositiveThreshold());
+        }
+        return threshold;
+    }
+
+    /**
+     * Returns the given itemsets in descending order of support
+     */
+    private static List<Itemset> sortBySupport(final TransactionDatabase tdb, Collection<Itemset> itemsets) {
+        List<Itemset> res = new ArrayList<Itemset>(itemsets);
+        Collections.sort(res, new Comparator<Itemset>() {
+            @Override
+            public int compare(Itemset o1, Itemset o2) {
+                return Integer.compare(tdb.getSupportCount(o2), tdb.getSupportCount(o1));
+            }
+        });
+        return res;
     }
 
     /**
@@ -279,19 +731,8 @@ public class NARZhangZhang {
      * @param x
      * @return
      */
-    private double computePR(TransactionDatabase tdb, Itemset union, Itemset y, Itemset x) {
-        double suppY = tdb.getSupport(y);
-        double suppX = tdb.getSupport(x);
-        double suppUnion = tdb.getSupport(union);
-
-        if ((suppUnion >= suppX * suppY) && (suppX * (1 - suppY) != 0)) {
-            return (suppUnion - suppX * suppY) / (suppX * (1 - suppY));
-        }
-        else if ((suppUnion < suppX * suppY) && (suppX * suppY != 0)) {
-            return (suppUnion - suppX * suppY) / (suppX * suppY);
-        }
-
-        throw new RuntimeException("computePR: neither case matches!");
+    protected double computePR(TransactionDatabase tdb, Itemset union, Itemset y, Itemset x) {
+        return computePR(tdb.getSupport(union), tdb.getSupport(y), tdb.getSupport(x));
     }
 
     /**
@@ -305,21 +746,29 @@ public class NARZhangZhang {
      * @param negatedX
      * @return
      */
-    private double computePR(TransactionDatabase tdb, Itemset union, Itemset y, boolean negatedY, Itemset x, boolean negatedX) {
-        double suppY = tdb.getSupport(y);
+    protected double computePR(TransactionDatabase tdb, Itemset union, Itemset y, boolean negatedY, Itemset x, boolean negatedX) {
+        SupportEngine engine = tdb.getSupportEngine();
 
-        if (negatedY) {
-            suppY = 1 - suppY;
-        }
-
-        double suppX = tdb.getSupport(x);
-
-        if (negatedX) {
-            suppX = 1 - suppX;
-        }
+        return computePR(engine.getSupport(union, y, negatedY, x, negatedX), engine.getSupport(y, negatedY),
+                         engine.getSupport(x, negatedX));
+    }
 
-        double suppUnion = tdb.getSupport(y, negatedY, x, negatedX);
+    /**
+     * Computes the probability ratio PR(Y|X) for disjoint subsets of the itemset of the given support table
+     *
+     * @param table    support table of an itemset containing X and Y
+     * @param maskY    mask selecting Y
+     * @param negatedY flag if Y is negated
+     * @param maskX    mask selecting X
+     * @param negatedX flag if X is negated
+     * @return probability ratio
+     */
+    protected double computePR(SubsetSupportTable table, long maskY, boolean negatedY, long maskX, boolean negatedX) {
+        return computePR(table.getSupport(maskY, negatedY, maskX, negatedX), table.getSupport(maskY, negatedY),
+                         table.getSupport(maskX, negatedX));
+    }
 
+    private static double computePR(double suppUnion, double suppY, double suppX) {
         if ((suppUnion >= suppX * suppY) && (suppX * (1 - suppY) != 0)) {
             return (suppUnion - suppX * suppY) / (suppX * (1 - suppY));
         }
@@ -361,4 +810,89 @@ public class NARZhangZhang {
         return sb.toString();
     }
 
+    /**
+     * Interesting itemsets found among a range of candidates. Itemsets are kept in candidate order so that merging
+     * the results of consecutive ranges yields the same order as a sequential evaluation.
+     */
+    private static class LevelResult {
+        final List<Itemset> lk = new ArrayList<Itemset>();
+        final List<Itemset> sk = new ArrayList<Itemset>();
+        final Map<Itemset, SubsetSupportTable> tables = new HashMap<Itemset, SubsetSupportTable>();
+        int frequent;
+        // support cache lookups of the whole level, not maintained by append
+        long lookups;
+        long cacheHits;
+
+        void append(LevelResult other) {
+            lk.addAll(other.lk);
+            sk.addAll(other.sk);
+            tables.putAll(other.tables);
+            frequent += other.frequent;
+        }
+
+        void addTable(SubsetSupportTable table) {
+            if (table != null) {
+                tables.put(table.getItemset(), table);
+            }
+        }
+    }
+
+    /**
+     * Rule sink keeping all rules in memory in compact rule stores
+     */
+    private static class RuleCollector implements RuleSink {
+        final RuleStore positiveRules = new RuleStore();
+        final RuleStore negativeRules = new RuleStore();
+
+        @Override
+        public void addPositiveRule(AssociationRule rule) {
+            positiveRules.add(rule);
+        }
+
+        @Override
+        public void addNegativeRule(AssociationRule rule) {
+            negativeRules.add(rule);
+        }
+    }
+
+    /**
+     * Evaluates a range of candidates by recursively splitting it until chunks are small enough
+     */
+    private static class CandidateEvaluationTask extends RecursiveTask<LevelResult> {
+        private final TransactionDatabase tdb;
+        private final List<Itemset> candidates;
+        private final int from;
+        private final int to;
+        private final int chunkSize;
+        private final double minsupp;
+        private final double mininterest;
+
+        CandidateEvaluationTask(TransactionDatabase tdb, List<Itemset> candidates, int from, int to, int chunkSize,
+                                double minsupp, double mininterest) {
+            this.tdb = tdb;
+            this.candidates = candidates;
+            this.from = from;
+            this.to = to;
+            this.chunkSize = chunkSize;
+            this.minsupp = minsupp;
+            this.mininterest = mininterest;
+        }
+
+        @Override
+        protected LevelResult compute() {
+            if (to - from <= chunkSize) {
+                return evaluateCandidates(tdb, candidates, from, to, minsupp, mininterest);
+            }
+
+            int mid = (from + to) >>> 1;
+            CandidateEvaluationTask left =
+                new CandidateEvaluationTask(tdb, candidates, from, mid, chunkSize, minsupp, mininterest);
+            CandidateEvaluationTask right =
+                new CandidateEvaluationTask(tdb, candidates, mid, to, chunkSize, minsupp, mininterest);
+            right.fork();
+            LevelResult result = left.compute();
+            result.append(right.join());
+            return result;
+        }
+    }
 }
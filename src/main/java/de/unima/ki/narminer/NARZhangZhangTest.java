@@ -0,0 +1,141 @@
+package de.unima.ki.narminer;
+
+import de.unima.ki.narminer.utils.AssociationRule;
+import de.unima.ki.narminer.utils.Itemset;
+import de.unima.ki.narminer.utils.RuleMeasure;
+import de.unima.ki.narminer.utils.RuleSink;
+import de.unima.ki.narminer.utils.TestData;
+import de.unima.ki.narminer.utils.TopKRuleSink;
+import de.unima.ki.narminer.utils.TransactionDatabase;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class NARZhangZhangTest {
+    @Test
+    public void testGenerateCandidates() throws Exception {
+        Random random = new Random(3);
+        NARZhangZhang miner = new NARZhangZhang();
+
+        for (int round = 0; round < 50; round++) {
+            int k = 2 + random.nextInt(3);
+            int[] frequentItems = new int[]{0, 1, 2, 3, 4, 5, 6, 7};
+
+            Set<Itemset> prevLk = new HashSet<Itemset>();
+            for (int i = 0; i < 15; i++) {
+                Itemset.Builder builder = new Itemset.Builder();
+                while (builder.build().size() < k - 1) {
+                    builder.add(frequentItems[random.nextInt(frequentItems.length)]);
+                }
+                prevLk.add(builder.build());
+            }
+
+            // reference: every frequent one-item extension of a member of Lk-1
+            Set<Itemset> expected = new HashSet<Itemset>();
+            for (Itemset l : prevLk) {
+                for (int item : frequentItems) {
+                    if (!l.contains(item)) {
+                        expected.add(l.with(item));
+                    }
+                }
+            }
+
+            List<Itemset> candidates = miner.generateCandidates(prevLk, frequentItems);
+            assertEquals(expected, new HashSet<Itemset>(candidates));
+            assertEquals(expected.size(), candidates.size());
+        }
+    }
+
+    @Test
+    public void testStreamedRulesMatchCollectedRules() throws Exception {
+        TransactionDatabase tdb = createDatabase(new Random(5));
+
+        Set<AssociationRule>[] expected = new NARZhangZhang().performPRModel(tdb, 0.02, 0.05, 0.001);
+
+        final List<AssociationRule> positive = new ArrayList<AssociationRule>();
+        final List<AssociationRule> negative = new ArrayList<AssociationRule>();
+        new NARZhangZhang().performPRModel(tdb, 0.02, 0.05, 0.001, new RuleSink() {
+            @Override
+            public void addPositiveRule(AssociationRule rule) {
+                assertTrue("positive rule after negative rules", negative.isEmpty());
+                positive.add(rule);
+            }
+
+            @Override
+            public void addNegativeRule(AssociationRule rule) {
+                negative.add(rule);
+            }
+        });
+
+        assertFalse(expected[0].isEmpty());
+        assertFalse(expected[1].isEmpty());
+        // every rule is passed exactly once
+        assertEquals(expected[0].size(), positive.size());
+        assertEquals(expected[0], new HashSet<AssociationRule>(positive));
+        assertEquals(expected[1].size(), negative.size());
+        assertEquals(expected[1], new HashSet<AssociationRule>(negative));
+    }
+
+    @Test
+    public void testStatistics() throws Exception {
+        TransactionDatabase tdb = createDatabase(new Random(7));
+        NARZhangZhang miner = new NARZhangZhang();
+        Set<AssociationRule>[] rules = miner.performPRModel(tdb, 0.02, 0.05, 0.001);
+
+        MiningStatistics statistics = miner.getStatistics();
+        assertEquals(rules[0].size(), statistics.getPositiveRules());
+        assertEquals(rules[1].size(), statistics.getNegativeRules());
+        assertTrue(statistics.getPhaseMillis().containsKey(MiningStatistics.PHASE_MINING));
+        assertTrue(statistics.getPhaseMillis().containsKey(MiningStatistics.PHASE_RULE_GENERATION));
+        assertTrue(statistics.getLevelCount() >= 2);
+        assertEquals(statistics.getLevelCount(), statistics.getLevels().size());
+        // every candidate of size 2 and larger is looked up at least once
+        assertTrue(statistics.getTotalSupportLookups() >=
+                   statistics.getTotalCandidates() - statistics.getLevels().get(0).getCandidates());
+        assertTrue(statistics.getCacheHitRate() > 0 && statistics.getCacheHitRate() <= 1);
+        assertTrue(statistics.toJson().contains("\"positive_rules\": " + rules[0].size()));
+    }
+
+    @Test
+    public void testTopKMatchesBestRules() throws Exception {
+        TransactionDatabase tdb = createDatabase(new Random(6));
+        Set<AssociationRule>[] all = new NARZhangZhang().performPRModel(tdb, 0.02, -1, 0);
+
+        for (RuleMeasure measure : RuleMeasure.values()) {
+            for (int k : new int[]{1, 10, 100, 100000}) {
+                TopKRuleSink sink = new TopKRuleSink(k, measure);
+                new NARZhangZhang().performPRModel(tdb, 0.02, -1, 0, sink);
+
+                // rules of equal value may be exchanged, so only the values are compared
+                assertEquals(measure + " " + k, bestValues(all[0], measure, k), values(sink.getPositiveRules(), measure));
+                assertEquals(measure + " " + k, bestValues(all[1], measure, k), values(sink.getNegativeRules(), measure));
+            }
+        }
+    }
+
+    private static List<Double> bestValues(Set<AssociationRule> rules, RuleMeasure measure, int k) {
+        List<Double> res = values(rules, measure);
+        Collections.sort(res, Collections.reverseOrder());
+        return res.subList(0, Math.min(k, res.size()));
+    }
+
+    private static List<Double> values(Collection<AssociationRule> rules, RuleMeasure measure) {
+        List<Double> res = new ArrayList<Double>();
+        for (AssociationRule rule : rules) {
+            res.add(measure.getValue(rule));
+        }
+        return res;
+    }
+
+    private static TransactionDatabase createDatabase(Random random) throws Exception {
+        return TestData.createDatabase(TestData.createTransactions(random, 2000, 5, 4, 12));
+    }
+}
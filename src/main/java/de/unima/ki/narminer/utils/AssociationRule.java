@@ -17,6 +17,7 @@ public class AssociationRule {
 
     private double confidence;
     private double support;
+    private double interest;
 
     /**
      * Initializes the association rule with the given antecedent and the given consequent
@@ -26,10 +27,6 @@ public class AssociationRule {
     public AssociationRule(Itemset antecedent, Itemset consequent) {
         this.antecedent = antecedent;
         this.consequent = consequent;
-
-        this.union = this.antecedent.union(this.consequent);
-
-        this.sect = this.antecedent.intersect(this.consequent);
     }
 
     /**
@@ -62,20 +59,27 @@ public class AssociationRule {
     }
 
     /**
-     * Returns the set containing all items from consequent and antecedent.
+     * Returns the set containing all items from consequent and antecedent. The union is computed on first access.
      *
      * @return union of items from antecedent and consequent
      */
     public Itemset getUnion() {
+        if (union == null) {
+            union = antecedent.union(consequent);
+        }
         return union;
     }
 
     /**
-     * Returns the set of items contained in both antecedent and consequent.
+     * Returns the set of items contained in both antecedent and consequent. The intersection is computed on first
+     * access.
      *
      * @return intersection of antecedent and consequent itemsets
      */
     public Itemset getSect() {
+        if (sect == null) {
+            sect = antecedent.intersect(consequent);
+        }
         return sect;
     }
 
@@ -131,6 +135,14 @@ public class AssociationRule {
         this.support = support;
     }
 
+    public double getInterest() {
+        return interest;
+    }
+
+    public void setInterest(double interest) {
+        this.interest = interest;
+    }
+
     /**
      * Returns if the antecedent is negated
      * @return true if the antecedent is negated, otherwise false
@@ -0,0 +1,203 @@
+package de.unima.ki.narminer.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.Exchanger;
+
+/**
+ * Rule sink passing the received rules to another rule output on a background thread, so that formatting the rules
+ * and writing them to disk does not delay the miner. Rules are collected in one of two batches while the background
+ * thread writes the other one. When the current batch is full, the batches are swapped; the miner only waits if the
+ * background thread has not finished writing the previous batch yet.
+ * <p/>
+ * Errors of the underlying output are thrown by the next call to this sink after they occurred, at the latest by
+ * {@link #close()}.
+ */
+public class AsyncRuleWriter implements RuleSink, Closeable {
+    /**
+     * Default number of rules per batch
+     */
+    static final int DEFAULT_BATCH_SIZE = 4096;
+
+    private final RuleOutput output;
+    private final Exchanger<Batch> exchanger = new Exchanger<Batch>();
+    private final Thread thread;
+    private Batch current;
+    private boolean closed;
+    private volatile Throwable error;
+
+    /**
+     * Creates a sink writing to the given output, which is closed together with this sink
+     *
+     * @param output output the rules are written to by the background thread
+     */
+    public AsyncRuleWriter(RuleOutput output) {
+        this(output, DEFAULT_BATCH_SIZE);
+    }
+
+    AsyncRuleWriter(RuleOutput output, int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        this.output = output;
+        this.current = new Batch(batchSize);
+        final Batch spare = new Batch(batchSize);
+        thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                drain(spare);
+            }
+        }, "rule-writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public synchronized void addPositiveRule(AssociationRule rule) throws IOException {
+        add(rule, false);
+    }
+
+    @Override
+    public synchronized void addNegativeRule(AssociationRule rule) throws IOException {
+        add(rule, true);
+    }
+
+    /**
+     * Writes the remaining rules, waits for the background thread and closes the underlying output
+     *
+     * @throws IOException if writing a rule or closing the output failed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        current.last = true;
+        swap();
+        try {
+            thread.join();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the rule writer");
+        }
+        checkError();
+    }
+
+    private void add(AssociationRule rule, boolean negative) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("Rule writer has been closed");
+        }
+        checkError();
+        current.add(rule, negative);
+        if (current.isFull()) {
+            swap();
+            checkError();
+        }
+    }
+
+    /**
+     * Hands the current batch over to the background thread and continues with the batch it has written before
+     */
+    private void swap() throws InterruptedIOException {
+        try {
+            current = exchanger.exchange(current);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while passing rules to the rule writer");
+        }
+    }
+
+    private void checkError() throws IOException {
+        Throwable t = error;
+        if (t instanceof IOException) {
+            throw (IOException) t;
+        }
+        if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        }
+        if (t instanceof Error) {
+            throw (Error) t;
+        }
+        if (t != null) {
+            throw new IOException(t);
+        }
+    }
+
+    /**
+     * Loop of the background thread. After the first error, further batches are discarded but still exchanged so that
+     * the miner never blocks.
+     */
+    private void drain(Batch batch) {
+        while (true) {
+            batch.clear();
+            try {
+                batch = exchanger.exchange(batch);
+            }
+            catch (InterruptedException e) {
+                error = e;
+                return;
+            }
+            if (error == null) {
+                try {
+                    for (int i = 0; i < batch.size; i++) {
+                        if (batch.negative[i]) {
+                            output.addNegativeRule(batch.rules[i]);
+                        }
+                        else {
+                            output.addPositiveRule(batch.rules[i]);
+                        }
+                    }
+                    output.flush();
+                }
+                catch (Throwable t) {
+                    error = t;
+                }
+            }
+            if (batch.last) {
+                try {
+                    output.close();
+                }
+                catch (Throwable t) {
+                    if (error == null) {
+                        error = t;
+                    }
+                }
+                return;
+            }
+        }
+    }
+
+    private static class Batch {
+        final AssociationRule[] rules;
+        final boolean[] negative;
+        int size;
+        boolean last;
+
+        Batch(int capacity) {
+            rules = new AssociationRule[capacity];
+            negative = new boolean[capacity];
+        }
+
+        void add(AssociationRule rule, boolean negativeRule) {
+            rules[size] = rule;
+            negative[size] = negativeRule;
+            size++;
+        }
+
+        boolean isFull() {
+            return size == rules.length;
+        }
+
+        void clear() {
+            for (int i = 0; i < size; i++) {
+                rules[i] = null;
+            }
+            size = 0;
+            last = false;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package de.unima.ki.narminer.utils;
+
+import org.junit.Test;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class AsyncRuleWriterTest {
+    @Test
+    public void testTextMatchesRuleWriter() throws Exception {
+        List<AssociationRule> positive = TestData.createRules(new Random(23), 1000, 4, 1000);
+        List<AssociationRule> negative = TestData.createRules(new Random(24), 1500, 4, 1000);
+        IDResolver resolver = new IDResolver.DummyResolver();
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        write(new RuleWriter(new BufferedWriter(new OutputStreamWriter(expected)), resolver), positive, negative);
+
+        // small batches so that the buffers are swapped many times
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        write(new AsyncRuleWriter(RuleFormat.TEXT.createOutput(out, resolver), 7), positive, negative);
+        assertArrayEquals(expected.toByteArray(), out.toByteArray());
+    }
+
+    @Test
+    public void testBinaryRoundTrip() throws Exception {
+        List<AssociationRule> positive = TestData.createRules(new Random(25), 500, 4, 1000);
+        List<AssociationRule> negative = TestData.createRules(new Random(26), 700, 4, 1000);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        write(new AsyncRuleWriter(RuleFormat.BINARY.createOutput(out, null), 64), positive, negative);
+
+        TestData.CollectingSink sink = new TestData.CollectingSink();
+        BinaryRuleWriter.read(new ByteArrayInputStream(out.toByteArray()), sink);
+        TestData.assertRulesEqual(positive, sink.positive);
+        TestData.assertRulesEqual(negative, sink.negative);
+    }
+
+    @Test
+    public void testJsonLines() throws Exception {
+        AssociationRule rule = new AssociationRule(Itemset.of(3, 1), false, Itemset.of(7), true);
+        rule.setSupport(0.25);
+        rule.setConfidence(0.5);
+        rule.setInterest(Double.NaN);
+        IDResolver resolver = new IDResolver() {
+            @Override
+            public String resolve(int id) {
+                return id == 7 ? "a\"b\\c\n" : "n" + id;
+            }
+        };
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        write(new AsyncRuleWriter(RuleFormat.JSONL.createOutput(out, resolver)),
+              new ArrayList<AssociationRule>(), Collections.singletonList(rule));
+        assertEquals("{\"type\":\"negative\",\"antecedent\":[1,3],\"antecedent_names\":[\"n1\",\"n3\"],"
+                     + "\"antecedent_negated\":false,\"consequent\":[7],\"consequent_names\":[\"a\\\"b\\\\c\\n\"],"
+                     + "\"consequent_negated\":true,\"support\":0.25,\"confidence\":0.5,\"interest\":null}\n",
+                     new String(out.toByteArray(), "UTF-8"));
+    }
+
+    @Test
+    public void testOutputErrorIsThrown() throws Exception {
+        final IOException failure = new IOException("disk full");
+        RuleOutput output = new RuleOutput() {
+            @Override
+            public void addPositiveRule(AssociationRule rule) throws IOException {
+                throw failure;
+            }
+
+            @Override
+            public void addNegativeRule(AssociationRule rule) throws IOException {
+                throw failure;
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+
+        AsyncRuleWriter writer = new AsyncRuleWriter(output, 2);
+        try {
+            for (AssociationRule rule : TestData.createRules(new Random(27), 100, 4, 1000)) {
+                writer.addPositiveRule(rule);
+            }
+            writer.close();
+            fail();
+        }
+        catch (IOException e) {
+            assertSame(failure, e);
+        }
+    }
+
+    private static void write(RuleSink sink, List<AssociationRule> positive, List<AssociationRule> negative)
+        throws IOException {
+        for (AssociationRule rule : positive) {
+            sink.addPositiveRule(rule);
+        }
+        for (AssociationRule rule : negative) {
+            sink.addNegativeRule(rule);
+        }
+        ((Closeable) sink).close();
+    }
+}
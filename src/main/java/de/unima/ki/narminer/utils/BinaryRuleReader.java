@@ -0,0 +1,93 @@
+package de.unima.ki.narminer.utils;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reader of the binary rule records written by {@link BinaryRuleWriter}, returning one rule after another
+ */
+public class BinaryRuleReader implements Closeable {
+    private final DataInputStream data;
+    private AssociationRule rule;
+    private boolean negative;
+
+    /**
+     * Creates a reader for the given stream, which is closed together with the reader, and reads the header
+     *
+     * @param in stream to read from
+     * @throws IOException if the stream cannot be read or is not a binary rule file
+     */
+    public BinaryRuleReader(InputStream in) throws IOException {
+        data = new DataInputStream(new BufferedInputStream(in, 1 << 16));
+        if (data.readInt() != BinaryRuleWriter.MAGIC) {
+            throw new IOException("Not a binary rule file");
+        }
+        int version = data.readInt();
+        if (version != BinaryRuleWriter.VERSION) {
+            throw new IOException("Unsupported binary rule file version: " + version);
+        }
+    }
+
+    /**
+     * Reads the next rule
+     *
+     * @return true if a rule has been read, false at the end of the stream
+     * @throws IOException if the stream cannot be read or ends within a record
+     */
+    public boolean next() throws IOException {
+        int flags = data.read();
+        if (flags < 0) {
+            rule = null;
+            return false;
+        }
+        try {
+            Itemset antecedent = readItemset();
+            Itemset consequent = readItemset();
+            rule = new AssociationRule(antecedent, (flags & BinaryRuleWriter.FLAG_ANTECEDENT_NEGATED) != 0,
+                                       consequent, (flags & BinaryRuleWriter.FLAG_CONSEQUENT_NEGATED) != 0);
+            rule.setSupport(data.readDouble());
+            rule.setConfidence(data.readDouble());
+            rule.setInterest(data.readDouble());
+            negative = (flags & BinaryRuleWriter.FLAG_NEGATIVE) != 0;
+            return true;
+        }
+        catch (EOFException e) {
+            throw new IOException("Truncated binary rule file", e);
+        }
+    }
+
+    /**
+     * Returns the rule read by the last call to {@link #next()}
+     *
+     * @return last rule read or null if no rule has been read
+     */
+    public AssociationRule getRule() {
+        return rule;
+    }
+
+    /**
+     * Returns if the rule read by the last call to {@link #next()} is a negative rule
+     *
+     * @return true for negative rules, false for positive rules
+     */
+    public boolean isNegative() {
+        return negative;
+    }
+
+    @Override
+    public void close() throws IOException {
+        data.close();
+    }
+
+    private Itemset readItemset() throws IOException {
+        int[] items = new int[data.readInt()];
+        for (int i = 0; i < items.length; i++) {
+            items[i] = data.readInt();
+        }
+        return Itemset.of(items);
+    }
+}
@@ -0,0 +1,129 @@
+package de.unima.ki.narminer.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Rule sink writing the rules as binary records. All values are big-endian. The output starts with the magic number
+ * {@link #MAGIC} and the format version as ints, followed by one record per rule consisting of
+ * <ul>
+ * <li>a flags byte: {@link #FLAG_NEGATIVE} for negative rules, {@link #FLAG_ANTECEDENT_NEGATED} and
+ * {@link #FLAG_CONSEQUENT_NEGATED} for the negation of antecedent and consequent,</li>
+ * <li>the number of antecedent items as int followed by the ascending item ids as ints,</li>
+ * <li>the number of consequent items as int followed by the ascending item ids as ints and</li>
+ * <li>support, confidence and interest as doubles.</li>
+ * </ul>
+ * Records are read back by {@link BinaryRuleReader} or {@link #read(java.io.InputStream, RuleSink)}.
+ */
+public class BinaryRuleWriter implements RuleOutput {
+    /**
+     * Magic number identifying binary rule files ("NARR")
+     */
+    static final int MAGIC = 0x4E415252;
+    static final int VERSION = 1;
+
+    static final int FLAG_NEGATIVE = 1;
+    static final int FLAG_ANTECEDENT_NEGATED = 2;
+    static final int FLAG_CONSEQUENT_NEGATED = 4;
+
+    private final DataOutputStream out;
+    private boolean headerWritten;
+    private boolean negativeStarted;
+
+    /**
+     * Creates a sink writing to the given stream, which is closed together with this sink
+     *
+     * @param out stream to write rules to
+     */
+    public BinaryRuleWriter(OutputStream out) {
+        this.out = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+    }
+
+    @Override
+    public synchronized void addPositiveRule(AssociationRule rule) throws IOException {
+        if (negativeStarted) {
+            throw new IllegalStateException("Positive rule received after negative rules");
+        }
+        writeRule(0, rule);
+    }
+
+    @Override
+    public synchronized void addNegativeRule(AssociationRule rule) throws IOException {
+        negativeStarted = true;
+        writeRule(FLAG_NEGATIVE, rule);
+    }
+
+    @Override
+    public synchronized void flush() throws IOException {
+        writeHeader();
+        out.flush();
+    }
+
+    /**
+     * Writes the header if no rules have been received and closes the underlying stream
+     *
+     * @throws IOException if the stream cannot be closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            writeHeader();
+        }
+        finally {
+            out.close();
+        }
+    }
+
+    private void writeHeader() throws IOException {
+        if (!headerWritten) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            headerWritten = true;
+        }
+    }
+
+    private void writeRule(int flags, AssociationRule rule) throws IOException {
+        writeHeader();
+        if (rule.isAntecedentNegated()) {
+            flags |= FLAG_ANTECEDENT_NEGATED;
+        }
+        if (rule.isConsequentNegated()) {
+            flags |= FLAG_CONSEQUENT_NEGATED;
+        }
+        out.writeByte(flags);
+        writeItemset(rule.getAntecedent());
+        writeItemset(rule.getConsequent());
+        out.writeDouble(rule.getSupport());
+        out.writeDouble(rule.getConfidence());
+        out.writeDouble(rule.getInterest());
+    }
+
+    private void writeItemset(Itemset itemset) throws IOException {
+        out.writeInt(itemset.size());
+        for (int i = 0; i < itemset.size(); i++) {
+            out.writeInt(itemset.get(i));
+        }
+    }
+
+    /**
+     * Reads the rules of a binary rule file and passes them to the given sink in file order. The stream is not closed.
+     *
+     * @param in   stream to read from
+     * @param sink sink receiving the rules
+     * @throws IOException if the stream cannot be read or is not a binary rule file
+     */
+    public static void read(InputStream in, RuleSink sink) throws IOException {
+        BinaryRuleReader reader = new BinaryRuleReader(in);
+        while (reader.next()) {
+            if (reader.isNegative()) {
+                sink.addNegativeRule(reader.getRule());
+            }
+            else {
+                sink.addPositiveRule(reader.getRule());
+            }
+        }
+    }
+}
@@ -0,0 +1,415 @@
+package de.unima.ki.narminer.utils;
+
+import org.apache.log4j.Logger;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.TreeSet;
+
+/**
+ * Binary on-disk format of transaction databases which can be opened without parsing the transactions or rebuilding
+ * the item bitmaps. A file consists of
+ * <ul>
+ * <li>a fixed size header containing the number of transactions, the size of the item universe, the number of
+ * indexed items, the total number of item occurrences and the offsets of all sections,</li>
+ * <li>the item universe as varint encoded ascending deltas,</li>
+ * <li>the transactions, each one as varint encoded length followed by the varint encoded deltas of its items,</li>
+ * <li>the offsets of every {@link #BLOCK_SIZE}th transaction for random access and</li>
+ * <li>the item bitmaps in the container layout of {@link CompressedBitmap}.</li>
+ * </ul>
+ * The reader memory-maps the file. Transactions are decoded lazily on access, only the bitmaps are copied to the heap.
+ */
+public class BinaryTransactionFormat {
+    public static final Logger log = Logger.getLogger(BinaryTransactionFormat.class);
+
+    /**
+     * Magic number identifying binary transaction databases ("NARB")
+     */
+    static final int MAGIC = 0x4E415242;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 64;
+
+    /**
+     * Number of transactions per entry of the transaction offset table
+     */
+    static final int BLOCK_SIZE = 16;
+
+    /**
+     * Maximum size of a single mapping of the file
+     */
+    private static final int MAX_MAPPING_BYTES = 1 << 30;
+
+    /**
+     * Writes the given transaction database to the given file
+     *
+     * @param tdb  transaction database to write
+     * @param file file to write to, overwritten if existing
+     * @throws IOException if an error occurs while writing
+     */
+    public static void write(TransactionDatabase tdb, File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(0);
+            FileChannel channel = raf.getChannel();
+            channel.position(HEADER_SIZE);
+
+            CountingOutputStream counter = new CountingOutputStream(
+                new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16), HEADER_SIZE);
+            DataOutputStream out = new DataOutputStream(counter);
+
+            long universeOffset = counter.count;
+            int prev = 0;
+            boolean first = true;
+            for (int item : tdb.getAllItems()) {
+                writeVarInt(out, first ? zigZag(item) : item - prev);
+                prev = item;
+                first = false;
+            }
+
+            List<Transaction> transactions = tdb.getAllTransactions();
+            long transactionsOffset = counter.count;
+            long[] blockOffsets = new long[(transactions.size() + BLOCK_SIZE - 1) / BLOCK_SIZE];
+            long totalItems = 0;
+            for (int tid = 0; tid < transactions.size(); tid++) {
+                if (tid % BLOCK_SIZE == 0) {
+                    blockOffsets[tid / BLOCK_SIZE] = counter.count - transactionsOffset;
+                }
+                int[] items = transactions.get(tid).items;
+                writeVarInt(out, items.length);
+                for (int i = 0; i < items.length; i++) {
+                    writeVarInt(out, i == 0 ? zigZag(items[0]) : items[i] - items[i - 1]);
+                }
+                totalItems += items.length;
+            }
+
+            long blockOffsetsOffset = counter.count;
+            for (long offset : blockOffsets) {
+                out.writeLong(offset);
+            }
+
+            long bitmapsOffset = counter.count;
+            Map<Integer, CompressedBitmap> itemIndex = tdb.getItemIndex();
+            for (int item : new TreeSet<Integer>(itemIndex.keySet())) {
+                CompressedBitmap bitmap = itemIndex.get(item);
+                out.writeInt(item);
+                out.writeInt(bitmap.getSerializedSize());
+                bitmap.writeTo(out);
+            }
+            out.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC);
+            header.putInt(VERSION);
+            header.putInt(transactions.size());
+            header.putInt(tdb.getAllItems().size());
+            header.putInt(itemIndex.size());
+            header.putInt(BLOCK_SIZE);
+            header.putLong(totalItems);
+            header.putLong(universeOffset);
+            header.putLong(transactionsOffset);
+            header.putLong(blockOffsetsOffset);
+            header.putLong(bitmapsOffset);
+            header.flip();
+            channel.write(header, 0);
+        }
+        finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Opens the transaction database contained in the given binary file
+     *
+     * @param file binary file written by {@link #write(TransactionDatabase, File)}
+     * @return transaction database backed by the file
+     * @throws IOException if the file cannot be read or is not a binary transaction database
+     */
+    public static TransactionDatabase read(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            long fileSize = channel.size();
+            if (fileSize < HEADER_SIZE) {
+                throw new IOException("File too short for a binary transaction database: " + file);
+            }
+
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            if (header.getInt() != MAGIC) {
+                throw new IOException("Not a binary transaction database: " + file);
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported binary transaction database version " + version + ": " + file);
+            }
+            int numTransactions = header.getInt();
+            int universeSize = header.getInt();
+            int indexedItems = header.getInt();
+            int blockSize = header.getInt();
+            long totalItems = header.getLong();
+            long universeOffset = header.getLong();
+            long transactionsOffset = header.getLong();
+            long blockOffsetsOffset = header.getLong();
+            long bitmapsOffset = header.getLong();
+
+            log.info("Opening binary transaction database (Transactions: " + numTransactions + ", Number of items: " +
+                     universeSize + ", Indexed items: " + indexedItems + ", Item occurrences: " + totalItems + ")");
+
+            TreeSet<Integer> allItems = new TreeSet<Integer>();
+            Cursor cursor = new Cursor(channel.map(FileChannel.MapMode.READ_ONLY, universeOffset,
+                                                   transactionsOffset - universeOffset), 0);
+            int item = 0;
+            for (int i = 0; i < universeSize; i++) {
+                item = i == 0 ? unZigZag(cursor.readVarInt()) : item + cursor.readVarInt();
+                allItems.add(item);
+            }
+
+            int numBlocks = (numTransactions + blockSize - 1) / blockSize;
+            long[] blockOffsets = new long[numBlocks];
+            channel.map(FileChannel.MapMode.READ_ONLY, blockOffsetsOffset, 8L * numBlocks).asLongBuffer()
+                   .get(blockOffsets);
+            List<Transaction> transactions = new MappedTransactionList(
+                channel, transactionsOffset, blockOffsetsOffset - transactionsOffset, blockOffsets, blockSize,
+                numTransactions);
+
+            HashMap<Integer, CompressedBitmap> itemIndex = new HashMap<Integer, CompressedBitmap>();
+            long pos = bitmapsOffset;
+            long windowStart = pos;
+            MappedByteBuffer window = null;
+            for (int i = 0; i < indexedItems; i++) {
+                if (window == null || pos + 8 > windowStart + window.limit()) {
+                    windowStart = pos;
+                    window = channel.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(fileSize - pos, MAX_MAPPING_BYTES));
+                }
+                int bitmapItem = window.getInt((int) (pos - windowStart));
+                int length = window.getInt((int) (pos - windowStart) + 4);
+                if (pos + 8 + length > windowStart + window.limit()) {
+                    windowStart = pos;
+                    window = channel.map(FileChannel.MapMode.READ_ONLY, pos,
+                                         Math.min(fileSize - pos, Math.max(MAX_MAPPING_BYTES, 8L + length)));
+                }
+                window.position((int) (pos - windowStart) + 8);
+                itemIndex.put(bitmapItem, CompressedBitmap.readFrom(window));
+                pos += 8 + length;
+            }
+
+            return new TransactionDatabase(transactions, itemIndex, allItems);
+        }
+        finally {
+            // mappings stay valid after closing the file
+            raf.close();
+        }
+    }
+
+    /**
+     * Converts a text transaction table into the binary format. Expects the text file and the binary file to write as
+     * parameters.
+     *
+     * @param args text file and binary file
+     * @throws IOException if reading or writing fails
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.out.println("Provide text transaction table and binary output file as parameters.");
+            System.exit(1);
+        }
+        TransactionDatabase tdb = new TransactionFileLoader(0).load(new File(args[0]));
+        write(tdb, new File(args[1]));
+    }
+
+    private static int zigZag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int unZigZag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarInt(OutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    /**
+     * Read position within a mapped region
+     */
+    private static final class Cursor {
+        private final ByteBuffer buffer;
+        private int pos;
+
+        Cursor(ByteBuffer buffer, int pos) {
+            this.buffer = buffer;
+            this.pos = pos;
+        }
+
+        int readVarInt() {
+            int res = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = buffer.get(pos++);
+                res |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return res;
+        }
+
+        void skipTransaction() {
+            int len = readVarInt();
+            for (int i = 0; i < len; i++) {
+                while (buffer.get(pos++) < 0) {
+                    // continuation bytes
+                }
+            }
+        }
+
+        Transaction readTransaction() {
+            int[] items = new int[readVarInt()];
+            for (int i = 0; i < items.length; i++) {
+                items[i] = i == 0 ? unZigZag(readVarInt()) : items[i - 1] + readVarInt();
+            }
+            return new Transaction(items);
+        }
+    }
+
+    /**
+     * Read-only list decoding transactions from the mapped transaction section on access. The section is mapped in
+     * segments of whole blocks so that files larger than a single mapping are supported.
+     */
+    private static final class MappedTransactionList extends AbstractList<Transaction> implements RandomAccess {
+        private final ByteBuffer[] segments;
+        private final int[] blockSegments;
+        private final int[] blockPositions;
+        private final int blockSize;
+        private final int size;
+
+        MappedTransactionList(FileChannel channel, long offset, long length, long[] blockOffsets, int blockSize,
+                              int size) throws IOException {
+            this.blockSize = blockSize;
+            this.size = size;
+            this.blockSegments = new int[blockOffsets.length];
+            this.blockPositions = new int[blockOffsets.length];
+
+            List<ByteBuffer> segmentList = new ArrayList<ByteBuffer>();
+            int block = 0;
+            while (block < blockOffsets.length) {
+                long segmentStart = blockOffsets[block];
+                int last = block;
+                while (last + 1 < blockOffsets.length &&
+                       getBlockEnd(blockOffsets, last + 1, length) - segmentStart <= MAX_MAPPING_BYTES) {
+                    last++;
+                }
+                long segmentEnd = getBlockEnd(blockOffsets, last, length);
+                if (segmentEnd - segmentStart > Integer.MAX_VALUE) {
+                    throw new IOException("Transaction block too large: " + (segmentEnd - segmentStart));
+                }
+                for (int b = block; b <= last; b++) {
+                    blockSegments[b] = segmentList.size();
+                    blockPositions[b] = (int) (blockOffsets[b] - segmentStart);
+                }
+                segmentList.add(channel.map(FileChannel.MapMode.READ_ONLY, offset + segmentStart,
+                                            segmentEnd - segmentStart));
+                block = last + 1;
+            }
+            this.segments = segmentList.toArray(new ByteBuffer[segmentList.size()]);
+        }
+
+        private static long getBlockEnd(long[] blockOffsets, int block, long length) {
+            return block + 1 < blockOffsets.length ? blockOffsets[block + 1] : length;
+        }
+
+        private Cursor getBlockCursor(int block) {
+            return new Cursor(segments[blockSegments[block]], blockPositions[block]);
+        }
+
+        @Override
+        public Transaction get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            Cursor cursor = getBlockCursor(index / blockSize);
+            for (int i = index % blockSize; i > 0; i--) {
+                cursor.skipTransaction();
+            }
+            return cursor.readTransaction();
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public Iterator<Transaction> iterator() {
+            return new Iterator<Transaction>() {
+                private int index;
+                private Cursor cursor;
+
+                @Override
+                public boolean hasNext() {
+                    return index < size;
+                }
+
+                @Override
+                public Transaction next() {
+                    if (index >= size) {
+                        throw new NoSuchElementException();
+                    }
+                    if (index % blockSize == 0) {
+                        cursor = getBlockCursor(index / blockSize);
+                    }
+                    index++;
+                    return cursor.readTransaction();
+                }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+    }
+
+    /**
+     * Output stream keeping track of the absolute position in the file
+     */
+    private static final class CountingOutputStream extends FilterOutputStream {
+        long count;
+
+        CountingOutputStream(OutputStream out, long start) {
+            super(out);
+            this.count = start;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
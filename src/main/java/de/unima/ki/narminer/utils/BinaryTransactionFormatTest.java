@@ -0,0 +1,67 @@
+package de.unima.ki.narminer.utils;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.Assert.*;
+
+public class BinaryTransactionFormatTest {
+    @Test
+    public void testRoundTrip() throws Exception {
+        Random random = new Random(3);
+        StringBuilder sb = new StringBuilder();
+        for (int t = 0; t < 70000; t++) {
+            int len = 1 + random.nextInt(10);
+            for (int i = 0; i < len; i++) {
+                if (i > 0) {
+                    sb.append(' ');
+                }
+                // a few dense items produce bitmap containers, large ids need multi-byte varints
+                sb.append(random.nextBoolean() ? random.nextInt(4) : random.nextInt(1000000));
+            }
+            sb.append('\n');
+        }
+        TransactionDatabase expected = new TransactionDatabase(new ByteArrayInputStream(sb.toString().getBytes("UTF-8")));
+        assertRoundTrip(expected);
+    }
+
+    @Test
+    public void testExplicitUniverse() throws Exception {
+        TreeSet<Integer> universe = new TreeSet<Integer>();
+        for (int i = -3; i < 20; i += 2) {
+            universe.add(i);
+        }
+        TransactionDatabase expected = new TransactionDatabase(
+            new ByteArrayInputStream("-3 1 5\n7\n5 -1 3\n".getBytes("UTF-8")), universe);
+        assertRoundTrip(expected);
+    }
+
+    private static void assertRoundTrip(TransactionDatabase expected) throws Exception {
+        File file = File.createTempFile("transactions", ".bin");
+        try {
+            BinaryTransactionFormat.write(expected, file);
+            TransactionDatabase actual = BinaryTransactionFormat.read(file);
+
+            assertEquals(expected.getAllItems(), actual.getAllItems());
+            assertEquals(expected.getNumberOfTransactions(), actual.getNumberOfTransactions());
+
+            // random access and sequential iteration decode the same transactions
+            List<Transaction> iterated = new ArrayList<Transaction>(actual.getAllTransactions());
+            assertEquals(expected.getAllTransactions(), iterated);
+            for (int i = expected.getNumberOfTransactions() - 1; i >= 0; i -= 7) {
+                assertEquals(expected.getAllTransactions().get(i), actual.getAllTransactions().get(i));
+            }
+
+            assertEquals(expected.getItemIndex(), actual.getItemIndex());
+        }
+        finally {
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,811 @@
+package de.unima.ki.narminer.utils;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Compressed bitmap of non-negative integers following the roaring layout. Values are partitioned by their upper 16
+ * bits into chunks, each chunk is stored either as sorted array of its lower 16 bits (sparse) or as 1024 64-bit words
+ * (dense). Containers switch representation as their cardinality crosses {@link #ARRAY_LIMIT}.
+ * <p/>
+ * Bitmaps are meant to be filled once, preferably in ascending order, and only read afterwards. Read access is safe
+ * from multiple threads.
+ */
+public class CompressedBitmap {
+    /**
+     * Maximum number of values stored in an array container before switching to a dense container
+     */
+    static final int ARRAY_LIMIT = 4096;
+
+    private static final int WORDS = 1 << 10;
+
+    private char[] keys;
+    private Container[] containers;
+    private int chunks;
+
+    /**
+     * Creates an empty bitmap
+     */
+    public CompressedBitmap() {
+        keys = new char[4];
+        containers = new Container[4];
+    }
+
+    private CompressedBitmap(char[] keys, Container[] containers, int chunks) {
+        this.keys = keys;
+        this.containers = containers;
+        this.chunks = chunks;
+    }
+
+    /**
+     * Creates a bitmap containing the given ascending values
+     *
+     * @param values ascending values to add to the bitmap
+     * @return bitmap containing all given values
+     */
+    public static CompressedBitmap of(int... values) {
+        CompressedBitmap res = new CompressedBitmap();
+        for (int v : values) {
+            res.add(v);
+        }
+        return res;
+    }
+
+    /**
+     * Creates a bitmap containing all values from 0 to the given bound
+     *
+     * @param bound exclusive upper bound of the values
+     * @return bitmap containing all values in [0, bound)
+     */
+    public static CompressedBitmap range(int bound) {
+        int numChunks = (bound + 0xFFFF) >>> 16;
+        char[] resKeys = new char[Math.max(numChunks, 1)];
+        Container[] resContainers = new Container[Math.max(numChunks, 1)];
+        for (int i = 0; i < numChunks; i++) {
+            int card = Math.min(bound - (i << 16), 1 << 16);
+            Container c;
+            if (card > ARRAY_LIMIT) {
+                long[] words = new long[WORDS];
+                Arrays.fill(words, 0, card >>> 6, -1L);
+                if ((card & 63) != 0) {
+                    words[card >>> 6] = (1L << card) - 1;
+                }
+                c = new BitmapContainer(words, card);
+            }
+            else {
+                char[] values = new char[card];
+                for (int v = 0; v < card; v++) {
+                    values[v] = (char) v;
+                }
+                c = new ArrayContainer(values, card);
+            }
+            resKeys[i] = (char) i;
+            resContainers[i] = c;
+        }
+        return new CompressedBitmap(resKeys, resContainers, numChunks);
+    }
+
+    /**
+     * Adds the given value to this bitmap. Adding values in ascending order is the cheapest way of filling a bitmap.
+     *
+     * @param value non-negative value to add
+     */
+    public void add(int value) {
+        char key = (char) (value >>> 16);
+        char low = (char) value;
+
+        int pos;
+        if (chunks > 0 && keys[chunks - 1] == key) {
+            pos = chunks - 1;
+        }
+        else {
+            pos = Arrays.binarySearch(keys, 0, chunks, key);
+            if (pos < 0) {
+                pos = -pos - 1;
+                insertChunk(pos, key, new ArrayContainer());
+            }
+        }
+
+        containers[pos] = containers[pos].add(low);
+    }
+
+    /**
+     * Returns if the given value is contained in this bitmap
+     *
+     * @param value value to check for
+     * @return true if value is contained, otherwise false
+     */
+    public boolean contains(int value) {
+        int pos = Arrays.binarySearch(keys, 0, chunks, (char) (value >>> 16));
+        return pos >= 0 && containers[pos].contains((char) value);
+    }
+
+    /**
+     * Returns the number of values contained in this bitmap
+     *
+     * @return number of values contained in this bitmap
+     */
+    public int cardinality() {
+        int res = 0;
+        for (int i = 0; i < chunks; i++) {
+            res += containers[i].cardinality;
+        }
+        return res;
+    }
+
+    /**
+     * Returns true if this bitmap does not contain any value
+     *
+     * @return true if bitmap is empty
+     */
+    public boolean isEmpty() {
+        return chunks == 0;
+    }
+
+    /**
+     * Returns a new bitmap containing the values contained in both this and the given bitmap
+     *
+     * @param other bitmap to intersect with
+     * @return intersection of both bitmaps
+     */
+    public CompressedBitmap and(CompressedBitmap other) {
+        int max = Math.min(chunks, other.chunks);
+        char[] resKeys = new char[Math.max(max, 1)];
+        Container[] resContainers = new Container[Math.max(max, 1)];
+        int resChunks = 0;
+
+        int thisPos = 0;
+        int otherPos = 0;
+        while (thisPos < chunks && otherPos < other.chunks) {
+            char thisKey = keys[thisPos];
+            char otherKey = other.keys[otherPos];
+            if (thisKey < otherKey) {
+                thisPos++;
+            }
+            else if (thisKey > otherKey) {
+                otherPos++;
+            }
+            else {
+                Container c = containers[thisPos].and(other.containers[otherPos]);
+                if (c.cardinality > 0) {
+                    resKeys[resChunks] = thisKey;
+                    resContainers[resChunks] = c;
+                    resChunks++;
+                }
+                thisPos++;
+                otherPos++;
+            }
+        }
+
+        return new CompressedBitmap(resKeys, resContainers, resChunks);
+    }
+
+    /**
+     * Returns the number of values contained in both this and the given bitmap without materializing the
+     * intersection
+     *
+     * @param other bitmap to intersect with
+     * @return cardinality of the intersection of both bitmaps
+     */
+    public int andCardinality(CompressedBitmap other) {
+        int res = 0;
+
+        int thisPos = 0;
+        int otherPos = 0;
+        while (thisPos < chunks && otherPos < other.chunks) {
+            char thisKey = keys[thisPos];
+            char otherKey = other.keys[otherPos];
+            if (thisKey < otherKey) {
+                thisPos++;
+            }
+            else if (thisKey > otherKey) {
+                otherPos++;
+            }
+            else {
+                res += containers[thisPos].andCardinality(other.containers[otherPos]);
+                thisPos++;
+                otherPos++;
+            }
+        }
+
+        return res;
+    }
+
+    /**
+     * Returns a new bitmap containing the values contained in this but not in the given bitmap
+     *
+     * @param other bitmap containing values to remove
+     * @return difference of this and the given bitmap
+     */
+    public CompressedBitmap andNot(CompressedBitmap other) {
+        char[] resKeys = new char[Math.max(chunks, 1)];
+        Container[] resContainers = new Container[Math.max(chunks, 1)];
+        int resChunks = 0;
+
+        int otherPos = 0;
+        for (int thisPos = 0; thisPos < chunks; thisPos++) {
+            char thisKey = keys[thisPos];
+            while (otherPos < other.chunks && other.keys[otherPos] < thisKey) {
+                otherPos++;
+            }
+
+            Container c;
+            if (otherPos < other.chunks && other.keys[otherPos] == thisKey) {
+                c = containers[thisPos].andNot(other.containers[otherPos]);
+            }
+            else {
+                c = containers[thisPos].copy();
+            }
+            if (c.cardinality > 0) {
+                resKeys[resChunks] = thisKey;
+                resContainers[resChunks] = c;
+                resChunks++;
+            }
+        }
+
+        return new CompressedBitmap(resKeys, resContainers, resChunks);
+    }
+
+    /**
+     * Returns a new bitmap containing the values contained in this or the given bitmap
+     *
+     * @param other bitmap to unite with
+     * @return union of both bitmaps
+     */
+    public CompressedBitmap or(CompressedBitmap other) {
+        char[] resKeys = new char[Math.max(chunks + other.chunks, 1)];
+        Container[] resContainers = new Container[Math.max(chunks + other.chunks, 1)];
+        int resChunks = 0;
+
+        int thisPos = 0;
+        int otherPos = 0;
+        while (thisPos < chunks || otherPos < other.chunks) {
+            if (otherPos == other.chunks || thisPos < chunks && keys[thisPos] < other.keys[otherPos]) {
+                resKeys[resChunks] = keys[thisPos];
+                resContainers[resChunks] = containers[thisPos].copy();
+                thisPos++;
+            }
+            else if (thisPos == chunks || keys[thisPos] > other.keys[otherPos]) {
+                resKeys[resChunks] = other.keys[otherPos];
+                resContainers[resChunks] = other.containers[otherPos].copy();
+                otherPos++;
+            }
+            else {
+                resKeys[resChunks] = keys[thisPos];
+                resContainers[resChunks] = containers[thisPos].or(other.containers[otherPos]);
+                thisPos++;
+                otherPos++;
+            }
+            resChunks++;
+        }
+
+        return new CompressedBitmap(resKeys, resContainers, resChunks);
+    }
+
+    /**
+     * Returns all values contained in this bitmap in ascending order
+     *
+     * @return ascending array of all values
+     */
+    public int[] toArray() {
+        int[] res = new int[cardinality()];
+        int pos = 0;
+        for (int i = 0; i < chunks; i++) {
+            pos = containers[i].fill(res, pos, keys[i] << 16);
+        }
+        return res;
+    }
+
+    /**
+     * Releases unused capacity after the bitmap has been filled completely
+     */
+    public void trim() {
+        if (keys.length != chunks) {
+            keys = Arrays.copyOf(keys, chunks);
+            containers = Arrays.copyOf(containers, chunks);
+        }
+        for (int i = 0; i < chunks; i++) {
+            containers[i].trim();
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        return Arrays.equals(toArray(), ((CompressedBitmap) o).toArray());
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(toArray());
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+
+    /**
+     * Returns the number of bytes written by {@link #writeTo(DataOutput)}
+     *
+     * @return serialized size in bytes
+     */
+    int getSerializedSize() {
+        int res = 4;
+        for (int i = 0; i < chunks; i++) {
+            res += 7 + (containers[i] instanceof ArrayContainer ? 2 * containers[i].cardinality : 8 * WORDS);
+        }
+        return res;
+    }
+
+    /**
+     * Writes this bitmap keeping the representation of its containers
+     *
+     * @param out output to write to
+     * @throws IOException if an error occurs while writing
+     */
+    void writeTo(DataOutput out) throws IOException {
+        out.writeInt(chunks);
+        for (int i = 0; i < chunks; i++) {
+            Container container = containers[i];
+            out.writeChar(keys[i]);
+            out.writeInt(container.cardinality);
+            if (container instanceof ArrayContainer) {
+                out.writeByte(0);
+                char[] values = ((ArrayContainer) container).values;
+                for (int j = 0; j < container.cardinality; j++) {
+                    out.writeChar(values[j]);
+                }
+            }
+            else {
+                out.writeByte(1);
+                for (long word : ((BitmapContainer) container).words) {
+                    out.writeLong(word);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads a bitmap written by {@link #writeTo(DataOutput)} starting at the current position of the given buffer
+     *
+     * @param buffer buffer to read from, positioned after the bitmap afterwards
+     * @return bitmap read
+     */
+    static CompressedBitmap readFrom(ByteBuffer buffer) {
+        int chunks = buffer.getInt();
+        char[] keys = new char[Math.max(chunks, 1)];
+        Container[] containers = new Container[Math.max(chunks, 1)];
+        for (int i = 0; i < chunks; i++) {
+            keys[i] = buffer.getChar();
+            int cardinality = buffer.getInt();
+            if (buffer.get() == 0) {
+                char[] values = new char[cardinality];
+                buffer.asCharBuffer().get(values);
+                buffer.position(buffer.position() + 2 * cardinality);
+                containers[i] = new ArrayContainer(values, cardinality);
+            }
+            else {
+                long[] words = new long[WORDS];
+                buffer.asLongBuffer().get(words);
+                buffer.position(buffer.position() + 8 * WORDS);
+                containers[i] = new BitmapContainer(words, cardinality);
+            }
+        }
+        return new CompressedBitmap(keys, containers, chunks);
+    }
+
+    /**
+     * Appends all chunks of the given bitmap to this bitmap without copying them. All values of the given bitmap must
+     * belong to chunks following the last chunk of this bitmap, the given bitmap must not be modified afterwards.
+     *
+     * @param other bitmap whose values are all greater than the chunks of this bitmap
+     */
+    void append(CompressedBitmap other) {
+        if (other.chunks > 0 && chunks > 0 && other.keys[0] <= keys[chunks - 1]) {
+            throw new IllegalArgumentException("Appended bitmap overlaps existing chunks");
+        }
+        for (int i = 0; i < other.chunks; i++) {
+            insertChunk(chunks, other.keys[i], other.containers[i]);
+        }
+    }
+
+    private void insertChunk(int pos, char key, Container container) {
+        if (chunks == keys.length) {
+            // trimmed bitmaps may have no capacity at all
+            int capacity = Math.max(chunks * 2, 4);
+            keys = Arrays.copyOf(keys, capacity);
+            containers = Arrays.copyOf(containers, capacity);
+        }
+        System.arraycopy(keys, pos, keys, pos + 1, chunks - pos);
+        System.arraycopy(containers, pos, containers, pos + 1, chunks - pos);
+        keys[pos] = key;
+        containers[pos] = container;
+        chunks++;
+    }
+
+    /**
+     * Storage for the lower 16 bits of all values sharing the same upper 16 bits
+     */
+    abstract static class Container {
+        int cardinality;
+
+        abstract Container add(char value);
+
+        abstract boolean contains(char value);
+
+        abstract Container and(Container other);
+
+        abstract int andCardinality(Container other);
+
+        abstract Container andNot(Container other);
+
+        abstract Container or(Container other);
+
+        abstract Container copy();
+
+        abstract int fill(int[] target, int pos, int high);
+
+        abstract void trim();
+    }
+
+    /**
+     * Sparse container keeping its values in a sorted array
+     */
+    static final class ArrayContainer extends Container {
+        char[] values;
+
+        ArrayContainer() {
+            values = new char[4];
+        }
+
+        ArrayContainer(char[] values, int cardinality) {
+            this.values = values;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        Container add(char value) {
+            int pos;
+            if (cardinality == 0 || values[cardinality - 1] < value) {
+                pos = cardinality;
+            }
+            else {
+                pos = Arrays.binarySearch(values, 0, cardinality, value);
+                if (pos >= 0) {
+                    return this;
+                }
+                pos = -pos - 1;
+            }
+
+            if (cardinality == ARRAY_LIMIT) {
+                return toBitmap().add(value);
+            }
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(Math.max(cardinality * 2, 4), ARRAY_LIMIT));
+            }
+            System.arraycopy(values, pos, values, pos + 1, cardinality - pos);
+            values[pos] = value;
+            cardinality++;
+            return this;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+        }
+
+        @Override
+        Container and(Container other) {
+            if (other instanceof BitmapContainer) {
+                return other.and(this);
+            }
+            ArrayContainer o = (ArrayContainer) other;
+            char[] res = new char[Math.min(cardinality, o.cardinality)];
+            int resCard = 0;
+            int thisPos = 0;
+            int otherPos = 0;
+            while (thisPos < cardinality && otherPos < o.cardinality) {
+                char thisVal = values[thisPos];
+                char otherVal = o.values[otherPos];
+                if (thisVal < otherVal) {
+                    thisPos++;
+                }
+                else if (thisVal > otherVal) {
+                    otherPos++;
+                }
+                else {
+                    res[resCard++] = thisVal;
+                    thisPos++;
+                    otherPos++;
+                }
+            }
+            return new ArrayContainer(res, resCard);
+        }
+
+        @Override
+        int andCardinality(Container other) {
+            if (other instanceof BitmapContainer) {
+                return other.andCardinality(this);
+            }
+            ArrayContainer o = (ArrayContainer) other;
+            int res = 0;
+            int thisPos = 0;
+            int otherPos = 0;
+            while (thisPos < cardinality && otherPos < o.cardinality) {
+                char thisVal = values[thisPos];
+                char otherVal = o.values[otherPos];
+                if (thisVal < otherVal) {
+                    thisPos++;
+                }
+                else if (thisVal > otherVal) {
+                    otherPos++;
+                }
+                else {
+                    res++;
+                    thisPos++;
+                    otherPos++;
+                }
+            }
+            return res;
+        }
+
+        @Override
+        Container andNot(Container other) {
+            char[] res = new char[cardinality];
+            int resCard = 0;
+            if (other instanceof BitmapContainer) {
+                for (int i = 0; i < cardinality; i++) {
+                    if (!other.contains(values[i])) {
+                        res[resCard++] = values[i];
+                    }
+                }
+                return new ArrayContainer(res, resCard);
+            }
+
+            ArrayContainer o = (ArrayContainer) other;
+            int otherPos = 0;
+            for (int i = 0; i < cardinality; i++) {
+                char thisVal = values[i];
+                while (otherPos < o.cardinality && o.values[otherPos] < thisVal) {
+                    otherPos++;
+                }
+                if (otherPos == o.cardinality || o.values[otherPos] != thisVal) {
+                    res[resCard++] = thisVal;
+                }
+            }
+            return new ArrayContainer(res, resCard);
+        }
+
+        @Override
+        Container or(Container other) {
+            if (other instanceof BitmapContainer) {
+                return other.or(this);
+            }
+            ArrayContainer o = (ArrayContainer) other;
+            char[] res = new char[cardinality + o.cardinality];
+            int resCard = 0;
+            int thisPos = 0;
+            int otherPos = 0;
+            while (thisPos < cardinality || otherPos < o.cardinality) {
+                if (otherPos == o.cardinality || thisPos < cardinality && values[thisPos] < o.values[otherPos]) {
+                    res[resCard++] = values[thisPos++];
+                }
+                else if (thisPos == cardinality || values[thisPos] > o.values[otherPos]) {
+                    res[resCard++] = o.values[otherPos++];
+                }
+                else {
+                    res[resCard++] = values[thisPos++];
+                    otherPos++;
+                }
+            }
+            ArrayContainer ac = new ArrayContainer(res, resCard);
+            return resCard > ARRAY_LIMIT ? ac.toBitmap() : ac;
+        }
+
+        @Override
+        Container copy() {
+            return new ArrayContainer(Arrays.copyOf(values, cardinality), cardinality);
+        }
+
+        @Override
+        int fill(int[] target, int pos, int high) {
+            for (int i = 0; i < cardinality; i++) {
+                target[pos++] = high | values[i];
+            }
+            return pos;
+        }
+
+        @Override
+        void trim() {
+            if (values.length != cardinality) {
+                values = Arrays.copyOf(values, cardinality);
+            }
+        }
+
+        private BitmapContainer toBitmap() {
+            BitmapContainer res = new BitmapContainer();
+            for (int i = 0; i < cardinality; i++) {
+                char v = values[i];
+                res.words[v >>> 6] |= 1L << v;
+            }
+            res.cardinality = cardinality;
+            return res;
+        }
+    }
+
+    /**
+     * Dense container keeping one bit per possible value
+     */
+    static final class BitmapContainer extends Container {
+        final long[] words;
+
+        BitmapContainer() {
+            words = new long[WORDS];
+        }
+
+        BitmapContainer(long[] words, int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        Container add(char value) {
+            long before = words[value >>> 6];
+            long after = before | (1L << value);
+            if (before != after) {
+                words[value >>> 6] = after;
+                cardinality++;
+            }
+            return this;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return (words[value >>> 6] & (1L << value)) != 0;
+        }
+
+        @Override
+        Container and(Container other) {
+            if (other instanceof ArrayContainer) {
+                ArrayContainer o = (ArrayContainer) other;
+                char[] res = new char[o.cardinality];
+                int resCard = 0;
+                for (int i = 0; i < o.cardinality; i++) {
+                    if (contains(o.values[i])) {
+                        res[resCard++] = o.values[i];
+                    }
+                }
+                return new ArrayContainer(res, resCard);
+            }
+
+            long[] otherWords = ((BitmapContainer) other).words;
+            long[] res = new long[WORDS];
+            int resCard = 0;
+            for (int i = 0; i < WORDS; i++) {
+                res[i] = words[i] & otherWords[i];
+                resCard += Long.bitCount(res[i]);
+            }
+            BitmapContainer bc = new BitmapContainer(res, resCard);
+            return resCard > ARRAY_LIMIT ? bc : bc.toArrayContainer();
+        }
+
+        @Override
+        int andCardinality(Container other) {
+            if (other instanceof ArrayContainer) {
+                ArrayContainer o = (ArrayContainer) other;
+                int res = 0;
+                for (int i = 0; i < o.cardinality; i++) {
+                    if (contains(o.values[i])) {
+                        res++;
+                    }
+                }
+                return res;
+            }
+
+            long[] otherWords = ((BitmapContainer) other).words;
+            int res = 0;
+            for (int i = 0; i < WORDS; i++) {
+                res += Long.bitCount(words[i] & otherWords[i]);
+            }
+            return res;
+        }
+
+        @Override
+        Container andNot(Container other) {
+            long[] res = words.clone();
+            int resCard = cardinality;
+            if (other instanceof ArrayContainer) {
+                ArrayContainer o = (ArrayContainer) other;
+                for (int i = 0; i < o.cardinality; i++) {
+                    char v = o.values[i];
+                    long before = res[v >>> 6];
+                    long after = before & ~(1L << v);
+                    if (before != after) {
+                        res[v >>> 6] = after;
+                        resCard--;
+                    }
+                }
+            }
+            else {
+                long[] otherWords = ((BitmapContainer) other).words;
+                resCard = 0;
+                for (int i = 0; i < WORDS; i++) {
+                    res[i] &= ~otherWords[i];
+                    resCard += Long.bitCount(res[i]);
+                }
+            }
+            BitmapContainer bc = new BitmapContainer(res, resCard);
+            return resCard > ARRAY_LIMIT ? bc : bc.toArrayContainer();
+        }
+
+        @Override
+        Container or(Container other) {
+            long[] res = words.clone();
+            int resCard = cardinality;
+            if (other instanceof ArrayContainer) {
+                ArrayContainer o = (ArrayContainer) other;
+                for (int i = 0; i < o.cardinality; i++) {
+                    char v = o.values[i];
+                    long before = res[v >>> 6];
+                    long after = before | (1L << v);
+                    if (before != after) {
+                        res[v >>> 6] = after;
+                        resCard++;
+                    }
+                }
+            }
+            else {
+                long[] otherWords = ((BitmapContainer) other).words;
+                resCard = 0;
+                for (int i = 0; i < WORDS; i++) {
+                    res[i] |= otherWords[i];
+                    resCard += Long.bitCount(res[i]);
+                }
+            }
+            return new BitmapContainer(res, resCard);
+        }
+
+        @Override
+        Container copy() {
+            return new BitmapContainer(words.clone(), cardinality);
+        }
+
+        @Override
+        int fill(int[] target, int pos, int high) {
+            for (int i = 0; i < WORDS; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    target[pos++] = high | (i << 6) | Long.numberOfTrailingZeros(word);
+                    word &= word - 1;
+                }
+            }
+            return pos;
+        }
+
+        @Override
+        void trim() {
+        }
+
+        private ArrayContainer toArrayContainer() {
+            char[] values = new char[cardinality];
+            int pos = 0;
+            for (int i = 0; i < WORDS; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    values[pos++] = (char) ((i << 6) | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            return new ArrayContainer(values, cardinality);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package de.unima.ki.narminer.utils;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.Assert.*;
+
+public class CompressedBitmapTest {
+    @Test
+    public void testAndMatchesSetIntersection() throws Exception {
+        Random random = new Random(42);
+
+        // mix sparse and dense chunks so that all container combinations are exercised
+        for (int round = 0; round < 20; round++) {
+            TreeSet<Integer> s1 = randomSet(random, 200000, random.nextDouble());
+            TreeSet<Integer> s2 = randomSet(random, 200000, random.nextDouble());
+
+            CompressedBitmap b1 = toBitmap(s1);
+            CompressedBitmap b2 = toBitmap(s2);
+
+            TreeSet<Integer> expected = new TreeSet<Integer>(s1);
+            expected.retainAll(s2);
+
+            assertEquals(s1.size(), b1.cardinality());
+            assertEquals(expected.size(), b1.andCardinality(b2));
+            assertEquals(toBitmap(expected), b1.and(b2));
+
+            TreeSet<Integer> difference = new TreeSet<Integer>(s1);
+            difference.removeAll(s2);
+            assertEquals(toBitmap(difference), b1.andNot(b2));
+
+            TreeSet<Integer> union = new TreeSet<Integer>(s1);
+            union.addAll(s2);
+            assertEquals(toBitmap(union), b1.or(b2));
+        }
+    }
+
+    @Test
+    public void testRange() throws Exception {
+        for (int bound : new int[]{0, 1, 64, 4096, 4097, 65536, 65600, 200000}) {
+            TreeSet<Integer> expected = new TreeSet<Integer>();
+            for (int i = 0; i < bound; i++) {
+                expected.add(i);
+            }
+            CompressedBitmap range = CompressedBitmap.range(bound);
+            assertEquals(bound, range.cardinality());
+            assertEquals(toBitmap(expected), range);
+        }
+    }
+
+    @Test
+    public void testUnorderedAdd() throws Exception {
+        CompressedBitmap b = new CompressedBitmap();
+        b.add(70000);
+        b.add(3);
+        b.add(1);
+        b.add(3);
+
+        assertArrayEquals(new int[]{1, 3, 70000}, b.toArray());
+        assertTrue(b.contains(70000));
+        assertFalse(b.contains(2));
+    }
+
+    @Test
+    public void testAddAfterTrim() throws Exception {
+        CompressedBitmap empty = new CompressedBitmap();
+        empty.trim();
+        empty.add(5);
+        empty.add(70000);
+        assertArrayEquals(new int[]{5, 70000}, empty.toArray());
+
+        CompressedBitmap b = new CompressedBitmap();
+        b.add(1);
+        b.trim();
+        b.add(2);
+        b.add(131072);
+        assertArrayEquals(new int[]{1, 2, 131072}, b.toArray());
+    }
+
+    private static TreeSet<Integer> randomSet(Random random, int range, double density) {
+        TreeSet<Integer> res = new TreeSet<Integer>();
+        for (int i = 0; i < range; i++) {
+            if (random.nextDouble() < density) {
+                res.add(i);
+            }
+        }
+        return res;
+    }
+
+    private static CompressedBitmap toBitmap(TreeSet<Integer> set) {
+        CompressedBitmap res = new CompressedBitmap();
+        for (int v : set) {
+            res.add(v);
+        }
+        res.trim();
+        return res;
+    }
+}
@@ -0,0 +1,220 @@
+package de.unima.ki.narminer.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Determines all frequent itemsets of a transaction database by a depth-first search over prefix equivalence classes
+ * using the vertical layout, as proposed by Zaki in the Eclat algorithm. The item bitmaps of the transaction database
+ * serve as initial tid-lists.
+ * <p/>
+ * Following dEclat (Zaki and Gouda), a class switches from tid-lists to diffsets as soon as its members are dense,
+ * i.e., if storing the transactions a member lacks compared to its prefix is cheaper than storing the transactions
+ * containing it. Diffsets shrink as the search goes deeper, which keeps memory bounded on dense data.
+ * <p/>
+ * The classes of the single frequent items are independent of each other and are explored in parallel if a fork/join
+ * pool is given.
+ */
+public class Eclat {
+    private final TransactionDatabase tdb;
+    private final int minCount;
+    private final ForkJoinPool pool;
+    private int maxLength = Integer.MAX_VALUE;
+    private Set<Integer> excludedItems = Collections.emptySet();
+
+    /**
+     * Creates an Eclat run on the given database
+     *
+     * @param tdb      transaction database to mine
+     * @param minCount minimum number of transactions containing an itemset for being frequent
+     * @param pool     pool to explore the top-level classes in parallel, null for sequential exploration
+     */
+    public Eclat(TransactionDatabase tdb, int minCount, ForkJoinPool pool) {
+        this.tdb = tdb;
+        this.minCount = Math.max(1, minCount);
+        this.pool = pool;
+    }
+
+    /**
+     * Limits the size of the mined itemsets
+     *
+     * @param maxLength maximum number of items of an itemset
+     * @return this run
+     */
+    public Eclat setMaxLength(int maxLength) {
+        this.maxLength = maxLength;
+        return this;
+    }
+
+    /**
+     * Excludes the given items from all mined itemsets
+     *
+     * @param excludedItems items not to mine
+     * @return this run
+     */
+    public Eclat setExcludedItems(Set<Integer> excludedItems) {
+        this.excludedItems = excludedItems;
+        return this;
+    }
+
+    /**
+     * Returns all frequent itemsets of the database together with their support counts
+     *
+     * @return frequent itemsets
+     */
+    public FrequentItemsets mine() {
+        final List<Member> members = new ArrayList<Member>();
+        for (Integer item : tdb.getAllItems()) {
+            CompressedBitmap tids = tdb.getItemBitmap(item);
+            int count = tids.cardinality();
+            if (count >= minCount && !excludedItems.contains(item)) {
+                members.add(new Member(item, tids, count));
+            }
+        }
+
+        // extending rare items first keeps the intersections small
+        Collections.sort(members, new Comparator<Member>() {
+            @Override
+            public int compare(Member o1, Member o2) {
+                if (o1.count != o2.count) {
+                    return o1.count < o2.count ? -1 : 1;
+                }
+                return o1.item < o2.item ? -1 : (o1.item == o2.item ? 0 : 1);
+            }
+        });
+
+        if (pool == null) {
+            FrequentItemsets res = new FrequentItemsets();
+            mineClass(new int[0], members, false, res);
+            return res;
+        }
+
+        List<ClassTask> tasks = new ArrayList<ClassTask>();
+        for (int i = 0; i < members.size(); i++) {
+            tasks.add(new ClassTask(members, i));
+        }
+        for (ClassTask task : tasks) {
+            pool.execute(task);
+        }
+
+        // merge in class order so that the result does not depend on scheduling
+        FrequentItemsets res = new FrequentItemsets();
+        for (ClassTask task : tasks) {
+            res.addAll(task.join());
+        }
+        return res;
+    }
+
+    /**
+     * Emits all frequent itemsets of the equivalence class with the given prefix and members
+     *
+     * @param prefix   items shared by all members of the class
+     * @param members  members of the class, each extending the prefix by one item
+     * @param diffMode true if the member sets are diffsets relative to the prefix, false if they are tid-lists
+     * @param res      collection to add frequent itemsets to
+     */
+    private void mineClass(int[] prefix, List<Member> members, boolean diffMode, FrequentItemsets res) {
+        for (int i = 0; i < members.size(); i++) {
+            mineMember(prefix, members, i, diffMode, res);
+        }
+    }
+
+    /**
+     * Emits the itemset of the given class member and all frequent itemsets of the class it is prefix of
+     */
+    private void mineMember(int[] prefix, List<Member> members, int i, boolean diffMode, FrequentItemsets res) {
+        Member x = members.get(i);
+        int[] itemset = new int[prefix.length + 1];
+        System.arraycopy(prefix, 0, itemset, 0, prefix.length);
+        itemset[prefix.length] = x.item;
+        res.add(Itemset.of(itemset), x.count);
+        if (itemset.length >= maxLength) {
+            return;
+        }
+
+        // determine support counts of all extensions before deciding on the representation of the child class
+        int[] counts = new int[members.size()];
+        long tidSize = 0;
+        long diffSize = 0;
+        for (int j = i + 1; j < members.size(); j++) {
+            Member y = members.get(j);
+            if (diffMode) {
+                // d(PXY) = d(PY) - d(PX)
+                counts[j] = x.count - (y.set.cardinality() - y.set.andCardinality(x.set));
+            }
+            else {
+                counts[j] = x.set.andCardinality(y.set);
+            }
+            if (counts[j] >= minCount) {
+                tidSize += counts[j];
+                diffSize += x.count - counts[j];
+            }
+        }
+
+        boolean childDiffMode = diffMode || diffSize < tidSize;
+
+        List<Member> children = new ArrayList<Member>();
+        for (int j = i + 1; j < members.size(); j++) {
+            if (counts[j] < minCount) {
+                continue;
+            }
+            Member y = members.get(j);
+            CompressedBitmap set;
+            if (diffMode) {
+                set = y.set.andNot(x.set);
+            }
+            else if (childDiffMode) {
+                // d(PXY) = t(PX) - t(PY)
+                set = x.set.andNot(y.set);
+            }
+            else {
+                set = x.set.and(y.set);
+            }
+            children.add(new Member(y.item, set, counts[j]));
+        }
+
+        if (!children.isEmpty()) {
+            mineClass(itemset, children, childDiffMode, res);
+        }
+    }
+
+    /**
+     * Member of an equivalence class, i.e., the prefix extended by a single item
+     */
+    private static final class Member {
+        final int item;
+        final CompressedBitmap set;
+        final int count;
+
+        Member(int item, CompressedBitmap set, int count) {
+            this.item = item;
+            this.set = set;
+            this.count = count;
+        }
+    }
+
+    /**
+     * Explores the class rooted at a single frequent item
+     */
+    private final class ClassTask extends RecursiveTask<FrequentItemsets> {
+        private final List<Member> members;
+        private final int index;
+
+        ClassTask(List<Member> members, int index) {
+            this.members = members;
+            this.index = index;
+        }
+
+        @Override
+        protected FrequentItemsets compute() {
+            FrequentItemsets res = new FrequentItemsets();
+            mineMember(new int[0], members, index, false, res);
+            return res;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package de.unima.ki.narminer.utils;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+public class EclatTest {
+    @Test
+    public void testMatchesBruteForce() throws Exception {
+        // dense items make the equivalence classes switch to diffsets
+        TransactionDatabase tdb = randomDatabase(new Random(8), 0.85, 0.3);
+        assertMatchesBruteForce(tdb, new Eclat(tdb, 30, null).mine(), 30);
+    }
+
+    @Test
+    public void testParallelMatchesSequential() throws Exception {
+        TransactionDatabase tdb = randomDatabase(new Random(13), 0.7, 0.4);
+        FrequentItemsets sequential = new Eclat(tdb, 25, null).mine();
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            FrequentItemsets parallel = new Eclat(tdb, 25, pool).mine();
+            assertEquals(sequential.size(), parallel.size());
+            for (int i = 0; i < sequential.size(); i++) {
+                assertEquals(sequential.get(i), parallel.get(i));
+                assertEquals(sequential.getCount(i), parallel.getCount(i));
+            }
+        }
+        finally {
+            pool.shutdown();
+        }
+        assertMatchesBruteForce(tdb, sequential, 25);
+    }
+
+    private static TransactionDatabase randomDatabase(Random random, double denseProb, double sparseProb)
+            throws Exception {
+        return TestData.createDatabase(
+            TestData.createIndependentTransactions(random, 400, 10, 6, denseProb, sparseProb));
+    }
+
+    private static void assertMatchesBruteForce(TransactionDatabase tdb, FrequentItemsets frequent, int minCount) {
+        Map<Itemset, Integer> found = new HashMap<Itemset, Integer>();
+        for (int i = 0; i < frequent.size(); i++) {
+            assertNull("duplicate itemset " + frequent.get(i), found.put(frequent.get(i), frequent.getCount(i)));
+        }
+
+        // enumerate all non-empty subsets of the universe {0..9}
+        int expected = 0;
+        for (int mask = 1; mask < (1 << 10); mask++) {
+            Itemset.Builder builder = new Itemset.Builder();
+            for (int item = 0; item < 10; item++) {
+                if ((mask & (1 << item)) != 0) {
+                    builder.add(item);
+                }
+            }
+            Itemset itemset = builder.build();
+            int count = tdb.getSupportCount(itemset);
+            if (count >= minCount) {
+                expected++;
+                assertEquals(itemset.toString(), Integer.valueOf(count), found.get(itemset));
+            }
+        }
+        assertEquals(expected, frequent.size());
+    }
+}
@@ -0,0 +1,338 @@
+package de.unima.ki.narminer.utils;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Rule sink passing the received rules to another sink ranked by a measure, positive rules and negative rules each in
+ * {@link RuleMeasure#ranking()} order. Rules are buffered in memory until the estimated size of the buffered rules
+ * exceeds the memory budget. The buffered rules are then sorted and spilled as a run of binary rule records to a
+ * temporary file. On {@link #close()}, the runs and the remaining buffered rules are merged and passed to the target
+ * sink. At most {@link #MAX_FAN_IN} runs are opened at once, more runs are first merged in rounds into longer runs. If
+ * only the best n rules of each kind are requested, every run is cut after n rules and each merge stops after n rules.
+ * If the rules are not needed, e.g. because mining failed, {@link #discard()} deletes the runs instead.
+ */
+public class ExternalRuleSorter implements RuleSink, Closeable {
+    /**
+     * Default memory budget for buffered rules in bytes
+     */
+    public static final long DEFAULT_MEMORY_BUDGET = 256L << 20;
+
+    /**
+     * Maximum number of runs merged at once
+     */
+    public static final int MAX_FAN_IN = 64;
+
+    /**
+     * Estimated heap size of a buffered rule without the items of its itemsets
+     */
+    private static final int RULE_BYTES = 160;
+
+    private final RuleSink target;
+    private final Comparator<AssociationRule> order;
+    private final int topN;
+    private final long memoryBudget;
+    private final File tempDir;
+    private final int fanIn;
+
+    private final Runs positiveRuns = new Runs();
+    private final Runs negativeRuns = new Runs();
+    private long bufferedBytes;
+    private boolean negativeStarted;
+    private boolean closed;
+
+    /**
+     * Creates a sorter passing all rules to the given sink, using the default memory budget and the default directory
+     * for temporary files
+     *
+     * @param target  sink receiving the ranked rules, not closed by this sorter
+     * @param measure measure to rank rules by
+     */
+    public ExternalRuleSorter(RuleSink target, RuleMeasure measure) {
+        this(target, measure, 0, DEFAULT_MEMORY_BUDGET, null);
+    }
+
+    /**
+     * Creates a sorter passing the best rules to the given sink
+     *
+     * @param target       sink receiving the ranked rules, not closed by this sorter
+     * @param measure      measure to rank rules by
+     * @param topN         maximum number of positive and of negative rules passed to the target, 0 for all rules
+     * @param memoryBudget estimated number of bytes of buffered rules before they are spilled to a temporary file
+     * @param tempDir      directory for temporary files, null for the default temporary directory
+     */
+    public ExternalRuleSorter(RuleSink target, RuleMeasure measure, int topN, long memoryBudget, File tempDir) {
+        this(target, measure, topN, memoryBudget, tempDir, MAX_FAN_IN);
+    }
+
+    /**
+     * Creates a sorter merging at most the given number of runs at once, allows testing merge rounds with few runs
+     */
+    ExternalRuleSorter(RuleSink target, RuleMeasure measure, int topN, long memoryBudget, File tempDir, int fanIn) {
+        if (fanIn < 2) {
+            throw new IllegalArgumentException("Fan-in must be at least 2: " + fanIn);
+        }
+        if (topN < 0) {
+            throw new IllegalArgumentException("Number of rules must not be negative: " + topN);
+        }
+        if (memoryBudget < 1) {
+            throw new IllegalArgumentException("Memory budget must be positive: " + memoryBudget);
+        }
+        this.target = target;
+        this.order = measure.ranking();
+        this.topN = topN;
+        this.memoryBudget = memoryBudget;
+        this.tempDir = tempDir;
+        this.fanIn = fanIn;
+    }
+
+    @Override
+    public synchronized void addPositiveRule(AssociationRule rule) throws IOException {
+        if (negativeStarted) {
+            throw new IllegalStateException("Positive rule received after negative rules");
+        }
+        add(positiveRuns, rule);
+    }
+
+    @Override
+    public synchronized void addNegativeRule(AssociationRule rule) throws IOException {
+        negativeStarted = true;
+        add(negativeRuns, rule);
+    }
+
+    /**
+     * Returns the number of runs spilled to temporary files so far
+     *
+     * @return number of spilled runs
+     */
+    public synchronized int getRunCount() {
+        return positiveRuns.files.size() + negativeRuns.files.size();
+    }
+
+    /**
+     * Passes the ranked rules to the target sink and deletes the temporary files
+     *
+     * @throws IOException if a run cannot be read or the target sink fails
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            merge(positiveRuns, false);
+            merge(negativeRuns, true);
+        }
+        finally {
+            discard();
+        }
+    }
+
+    /**
+     * Drops the buffered rules and deletes the temporary files without passing any rule to the target sink. Rules
+     * received afterwards are rejected.
+     */
+    public synchronized void discard() {
+        closed = true;
+        positiveRuns.buffer.clear();
+        negativeRuns.buffer.clear();
+        positiveRuns.delete();
+        negativeRuns.delete();
+    }
+
+    private void add(Runs runs, AssociationRule rule) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("Rule sorter has been closed");
+        }
+        runs.buffer.add(rule);
+        bufferedBytes += RULE_BYTES + 4L * (rule.getAntecedent().size() + rule.getConsequent().size());
+        if (bufferedBytes > memoryBudget) {
+            spill(positiveRuns);
+            spill(negativeRuns);
+            bufferedBytes = 0;
+        }
+    }
+
+    /**
+     * Writes the sorted buffer of the given runs to a new temporary file
+     */
+    private void spill(Runs runs) throws IOException {
+        if (runs.buffer.isEmpty()) {
+            return;
+        }
+        Collections.sort(runs.buffer, order);
+        File file = File.createTempFile("narminer-rules-", ".run", tempDir);
+        runs.files.add(file);
+        BinaryRuleWriter writer = new BinaryRuleWriter(new FileOutputStream(file));
+        try {
+            int count = topN > 0 ? Math.min(topN, runs.buffer.size()) : runs.buffer.size();
+            for (int i = 0; i < count; i++) {
+                writer.addPositiveRule(runs.buffer.get(i));
+            }
+        }
+        finally {
+            writer.close();
+        }
+        runs.buffer.clear();
+    }
+
+    /**
+     * Merges the runs and the sorted buffer into the target sink. As long as there are more sources than the fan-in,
+     * the oldest runs are merged into a new run taking their place, so that equal rules keep the order they have been
+     * written in.
+     */
+    private void merge(Runs runs, boolean negative) throws IOException {
+        Collections.sort(runs.buffer, order);
+        // the buffer is one of the sources of the last round
+        while (runs.files.size() + 1 > fanIn) {
+            File file = File.createTempFile("narminer-rules-", ".run", tempDir);
+            runs.files.add(fanIn, file);
+            List<File> merged = runs.files.subList(0, fanIn);
+            BinaryRuleWriter writer = new BinaryRuleWriter(new FileOutputStream(file));
+            try {
+                merge(merged, null, writer, false);
+            }
+            finally {
+                writer.close();
+            }
+            for (File run : merged) {
+                run.delete();
+            }
+            merged.clear();
+        }
+        try {
+            merge(runs.files, runs.buffer.iterator(), target, negative);
+        }
+        finally {
+            runs.buffer.clear();
+        }
+    }
+
+    /**
+     * Merges the given runs and buffered rules into the given sink
+     *
+     * @param files    run files, equal rules are taken from earlier runs first
+     * @param buffer   sorted buffered rules following the runs, null if none
+     * @param sink     sink receiving the merged rules
+     * @param negative true to pass the rules as negative rules
+     */
+    private void merge(List<File> files, Iterator<AssociationRule> buffer, RuleSink sink, boolean negative)
+            throws IOException {
+        PriorityQueue<Source> queue = new PriorityQueue<Source>(files.size() + 1, new Comparator<Source>() {
+            @Override
+            public int compare(Source o1, Source o2) {
+                int res = order.compare(o1.head, o2.head);
+                // equal rules are taken from the runs in the order they have been written
+                return res != 0 ? res : o1.index - o2.index;
+            }
+        });
+
+        List<Source> sources = new ArrayList<Source>();
+        try {
+            for (File file : files) {
+                FileInputStream in = new FileInputStream(file);
+                boolean opened = false;
+                try {
+                    sources.add(new Source(sources.size(), new BinaryRuleReader(in)));
+                    opened = true;
+                }
+                finally {
+                    if (!opened) {
+                        in.close();
+                    }
+                }
+            }
+            if (buffer != null) {
+                sources.add(new Source(sources.size(), buffer));
+            }
+            for (Source source : sources) {
+                if (source.advance()) {
+                    queue.add(source);
+                }
+            }
+
+            int count = 0;
+            while (!queue.isEmpty() && (topN == 0 || count < topN)) {
+                Source source = queue.poll();
+                if (negative) {
+                    sink.addNegativeRule(source.head);
+                }
+                else {
+                    sink.addPositiveRule(source.head);
+                }
+                count++;
+                if (source.advance()) {
+                    queue.add(source);
+                }
+            }
+        }
+        finally {
+            for (Source source : sources) {
+                source.close();
+            }
+        }
+    }
+
+    /**
+     * Buffered rules and spilled runs of one kind of rules
+     */
+    private static class Runs {
+        final List<AssociationRule> buffer = new ArrayList<AssociationRule>();
+        final List<File> files = new ArrayList<File>();
+
+        void delete() {
+            for (File file : files) {
+                file.delete();
+            }
+            files.clear();
+        }
+    }
+
+    /**
+     * Sorted sequence of rules read either from a run file or from the buffer
+     */
+    private static class Source {
+        final int index;
+        private final BinaryRuleReader reader;
+        private final Iterator<AssociationRule> iterator;
+        AssociationRule head;
+
+        Source(int index, BinaryRuleReader reader) {
+            this.index = index;
+            this.reader = reader;
+            this.iterator = null;
+        }
+
+        Source(int index, Iterator<AssociationRule> iterator) {
+            this.index = index;
+            this.reader = null;
+            this.iterator = iterator;
+        }
+
+        boolean advance() throws IOException {
+            if (reader != null) {
+                head = reader.next() ? reader.getRule() : null;
+            }
+            else {
+                head = iterator.hasNext() ? iterator.next() : null;
+            }
+            return head != null;
+        }
+
+        void close() throws IOException {
+            if (reader != null) {
+                reader.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package de.unima.ki.narminer.utils;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ExternalRuleSorterTest {
+    @Test
+    public void testMatchesInMemorySort() throws Exception {
+        Random random = new Random(25);
+        List<AssociationRule> positive = createRules(random, 3000);
+        List<AssociationRule> negative = createRules(random, 2000);
+        File tempDir = File.createTempFile("rules", "");
+        tempDir.delete();
+        tempDir.mkdir();
+        try {
+            for (RuleMeasure measure : RuleMeasure.values()) {
+                for (int topN : new int[]{0, 1, 250}) {
+                    List<AssociationRule> expectedPositive = ranked(positive, measure, topN);
+                    List<AssociationRule> expectedNegative = ranked(negative, measure, topN);
+
+                    // the ranking does not depend on the order rules are found in
+                    for (int pass = 0; pass < 2; pass++) {
+                        Collections.shuffle(positive, random);
+                        Collections.shuffle(negative, random);
+                        TestData.CollectingSink sink = new TestData.CollectingSink();
+                        ExternalRuleSorter sorter = new ExternalRuleSorter(sink, measure, topN, 20000, tempDir);
+                        for (AssociationRule rule : positive) {
+                            sorter.addPositiveRule(rule);
+                        }
+                        for (AssociationRule rule : negative) {
+                            sorter.addNegativeRule(rule);
+                        }
+                        assertTrue(sorter.getRunCount() > 10);
+                        sorter.close();
+
+                        TestData.assertRulesEqual(expectedPositive, sink.positive);
+                        TestData.assertRulesEqual(expectedNegative, sink.negative);
+                        assertEquals(0, tempDir.list().length);
+                    }
+                }
+            }
+        }
+        finally {
+            tempDir.delete();
+        }
+    }
+
+    @Test
+    public void testMergeRounds() throws Exception {
+        Random random = new Random(26);
+        List<AssociationRule> positive = createRules(random, 3000);
+        List<AssociationRule> negative = createRules(random, 1000);
+        File tempDir = File.createTempFile("rules", "");
+        tempDir.delete();
+        tempDir.mkdir();
+        try {
+            for (int fanIn : new int[]{2, 5, ExternalRuleSorter.MAX_FAN_IN}) {
+                for (int topN : new int[]{0, 40}) {
+                    TestData.CollectingSink sink = new TestData.CollectingSink();
+                    ExternalRuleSorter sorter =
+                        new ExternalRuleSorter(sink, RuleMeasure.INTEREST, topN, 2000, tempDir, fanIn);
+                    for (AssociationRule rule : positive) {
+                        sorter.addPositiveRule(rule);
+                    }
+                    for (AssociationRule rule : negative) {
+                        sorter.addNegativeRule(rule);
+                    }
+                    assertTrue(sorter.getRunCount() > 2 * ExternalRuleSorter.MAX_FAN_IN);
+                    sorter.close();
+
+                    TestData.assertRulesEqual(ranked(positive, RuleMeasure.INTEREST, topN), sink.positive);
+                    TestData.assertRulesEqual(ranked(negative, RuleMeasure.INTEREST, topN), sink.negative);
+                    assertEquals(0, tempDir.list().length);
+                }
+            }
+        }
+        finally {
+            tempDir.delete();
+        }
+    }
+
+    @Test
+    public void testDiscard() throws Exception {
+        Random random = new Random(27);
+        File tempDir = File.createTempFile("rules", "");
+        tempDir.delete();
+        tempDir.mkdir();
+        try {
+            TestData.CollectingSink sink = new TestData.CollectingSink();
+            ExternalRuleSorter sorter = new ExternalRuleSorter(sink, RuleMeasure.SUPPORT, 0, 2000, tempDir);
+            for (AssociationRule rule : createRules(random, 500)) {
+                sorter.addPositiveRule(rule);
+            }
+            assertTrue(tempDir.list().length > 0);
+            sorter.discard();
+            sorter.close();
+            assertEquals(0, tempDir.list().length);
+            assertTrue(sink.positive.isEmpty());
+            try {
+                sorter.addNegativeRule(createRules(random, 1).get(0));
+                fail("Rule accepted after discard");
+            }
+            catch (IllegalStateException expected) {
+            }
+        }
+        finally {
+            tempDir.delete();
+        }
+    }
+
+    private static List<AssociationRule> ranked(List<AssociationRule> rules, RuleMeasure measure, int topN) {
+        List<AssociationRule> res = new ArrayList<AssociationRule>(rules);
+        Collections.sort(res, measure.ranking());
+        return topN > 0 ? res.subList(0, topN) : res;
+    }
+
+    private static List<AssociationRule> createRules(Random random, int count) {
+        List<AssociationRule> rules = TestData.createRules(random, count, 3, 50);
+        for (AssociationRule rule : rules) {
+            // few distinct values, so that most ties are broken by the items
+            rule.setSupport(random.nextInt(4) / 4.0);
+            rule.setConfidence(random.nextInt(4) / 4.0);
+            rule.setInterest(random.nextInt(4) / 8.0);
+        }
+        return rules;
+    }
+}
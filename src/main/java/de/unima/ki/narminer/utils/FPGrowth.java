@@ -0,0 +1,283 @@
+package de.unima.ki.narminer.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Determines all frequent itemsets of a transaction database using the FP-growth algorithm by Han, Pei and Yin.
+ * Transactions are compressed into a prefix tree over the frequent items ordered by descending support, frequent
+ * itemsets are then grown from the conditional pattern bases of the tree without generating candidates.
+ * <p/>
+ * Inside the trees, items are represented by their rank in the global support order, i.e., rank 0 is the most
+ * frequent item.
+ */
+public class FPGrowth {
+    private final TransactionDatabase tdb;
+    private final int minCount;
+    private int maxLength = Integer.MAX_VALUE;
+    private Set<Integer> excludedItems = Collections.emptySet();
+
+    private int[] rankToItem;
+
+    /**
+     * Creates an FP-growth run on the given database
+     *
+     * @param tdb      transaction database to mine
+     * @param minCount minimum number of transactions containing an itemset for being frequent
+     */
+    public FPGrowth(TransactionDatabase tdb, int minCount) {
+        this.tdb = tdb;
+        this.minCount = Math.max(1, minCount);
+    }
+
+    /**
+     * Limits the size of the mined itemsets
+     *
+     * @param maxLength maximum number of items of an itemset
+     * @return this run
+     */
+    public FPGrowth setMaxLength(int maxLength) {
+        this.maxLength = maxLength;
+        return this;
+    }
+
+    /**
+     * Excludes the given items from all mined itemsets
+     *
+     * @param excludedItems items not to mine
+     * @return this run
+     */
+    public FPGrowth setExcludedItems(Set<Integer> excludedItems) {
+        this.excludedItems = excludedItems;
+        return this;
+    }
+
+    /**
+     * Returns all frequent itemsets of the database together with their support counts
+     *
+     * @return frequent itemsets
+     */
+    public FrequentItemsets mine() {
+        FrequentItemsets res = new FrequentItemsets();
+
+        Tree tree = buildTree();
+        if (tree.numRanks > 0) {
+            mine(tree, new int[tree.numRanks], 0, res);
+        }
+
+        return res;
+    }
+
+    /**
+     * Builds the initial FP-tree containing all transactions restricted to their frequent items
+     */
+    private Tree buildTree() {
+        final List<Integer> frequentItems = new ArrayList<Integer>();
+        for (Integer item : tdb.getAllItems()) {
+            if (tdb.getItemBitmap(item).cardinality() >= minCount && !excludedItems.contains(item)) {
+                frequentItems.add(item);
+            }
+        }
+
+        // most frequent items get the lowest ranks to keep the tree compact
+        Collections.sort(frequentItems, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer o1, Integer o2) {
+                int c1 = tdb.getItemBitmap(o1).cardinality();
+                int c2 = tdb.getItemBitmap(o2).cardinality();
+                if (c1 != c2) {
+                    return c1 > c2 ? -1 : 1;
+                }
+                return o1.compareTo(o2);
+            }
+        });
+
+        int maxItem = -1;
+        for (int item : frequentItems) {
+            maxItem = Math.max(maxItem, item);
+        }
+
+        rankToItem = new int[frequentItems.size()];
+        int[] itemToRank = new int[maxItem + 1];
+        Arrays.fill(itemToRank, -1);
+        for (int rank = 0; rank < rankToItem.length; rank++) {
+            rankToItem[rank] = frequentItems.get(rank);
+            itemToRank[rankToItem[rank]] = rank;
+        }
+
+        Tree tree = new Tree(rankToItem.length);
+        int[] ranks = new int[rankToItem.length];
+        for (Transaction t : tdb.getAllTransactions()) {
+            int len = 0;
+            for (int i = 0; i < t.size(); i++) {
+                int item = t.get(i);
+                if (item <= maxItem && item >= 0 && itemToRank[item] >= 0) {
+                    ranks[len++] = itemToRank[item];
+                }
+            }
+            Arrays.sort(ranks, 0, len);
+            tree.insert(ranks, len, 1);
+        }
+
+        return tree;
+    }
+
+    /**
+     * Emits all frequent itemsets consisting of the given prefix extended by items of the given (conditional) tree
+     */
+    private void mine(Tree tree, int[] prefix, int prefixLen, FrequentItemsets res) {
+        Node[] path = tree.getSinglePath();
+        if (path != null) {
+            emitPathCombinations(path, 0, prefix, prefixLen, res);
+            return;
+        }
+
+        for (int rank = tree.numRanks - 1; rank >= 0; rank--) {
+            if (tree.heads[rank] == null || tree.counts[rank] < minCount) {
+                continue;
+            }
+
+            prefix[prefixLen] = rank;
+            emit(prefix, prefixLen + 1, tree.counts[rank], res);
+            if (prefixLen + 1 >= maxLength) {
+                continue;
+            }
+
+            Tree conditional = tree.conditionalTree(rank, minCount);
+            if (conditional.root.firstChild != null) {
+                mine(conditional, prefix, prefixLen + 1, res);
+            }
+        }
+    }
+
+    /**
+     * Emits all combinations of the nodes of a single path extending the given prefix. The count of a combination is
+     * the count of its deepest node since counts do not increase along a path.
+     */
+    private void emitPathCombinations(Node[] path, int from, int[] prefix, int prefixLen, FrequentItemsets res) {
+        for (int i = from; i < path.length; i++) {
+            prefix[prefixLen] = path[i].rank;
+            emit(prefix, prefixLen + 1, path[i].count, res);
+            if (prefixLen + 1 < maxLength) {
+                emitPathCombinations(path, i + 1, prefix, prefixLen + 1, res);
+            }
+        }
+    }
+
+    private void emit(int[] ranks, int len, int count, FrequentItemsets res) {
+        Itemset.Builder builder = new Itemset.Builder(len);
+        for (int i = 0; i < len; i++) {
+            builder.add(rankToItem[ranks[i]]);
+        }
+        res.add(builder.build(), count);
+    }
+
+    /**
+     * Node of an FP-tree
+     */
+    private static final class Node {
+        final int rank;
+        final Node parent;
+        int count;
+        Node firstChild;
+        Node nextSibling;
+        Node nodeLink;
+
+        Node(int rank, Node parent) {
+            this.rank = rank;
+            this.parent = parent;
+        }
+    }
+
+    /**
+     * FP-tree with header table linking all nodes of the same rank
+     */
+    private static final class Tree {
+        final Node root = new Node(-1, null);
+        final int numRanks;
+        final Node[] heads;
+        final int[] counts;
+
+        Tree(int numRanks) {
+            this.numRanks = numRanks;
+            this.heads = new Node[numRanks];
+            this.counts = new int[numRanks];
+        }
+
+        /**
+         * Inserts a path of ascending ranks with the given count
+         */
+        void insert(int[] ranks, int len, int count) {
+            Node node = root;
+            for (int i = 0; i < len; i++) {
+                int rank = ranks[i];
+                Node child = node.firstChild;
+                while (child != null && child.rank != rank) {
+                    child = child.nextSibling;
+                }
+                if (child == null) {
+                    child = new Node(rank, node);
+                    child.nextSibling = node.firstChild;
+                    node.firstChild = child;
+                    child.nodeLink = heads[rank];
+                    heads[rank] = child;
+                }
+                child.count += count;
+                counts[rank] += count;
+                node = child;
+            }
+        }
+
+        /**
+         * Returns the nodes of this tree from top to bottom if the tree consists of a single path, otherwise null
+         */
+        Node[] getSinglePath() {
+            List<Node> path = new ArrayList<Node>();
+            Node node = root.firstChild;
+            while (node != null) {
+                if (node.nextSibling != null) {
+                    return null;
+                }
+                path.add(node);
+                node = node.firstChild;
+            }
+            return path.toArray(new Node[path.size()]);
+        }
+
+        /**
+         * Builds the conditional FP-tree from the prefix paths of all nodes of the given rank keeping only ranks
+         * which are frequent within these paths
+         */
+        Tree conditionalTree(int rank, int minCount) {
+            int[] baseCounts = new int[rank];
+            for (Node node = heads[rank]; node != null; node = node.nodeLink) {
+                for (Node p = node.parent; p != root; p = p.parent) {
+                    baseCounts[p.rank] += node.count;
+                }
+            }
+
+            Tree res = new Tree(rank);
+            int[] path = new int[rank];
+            for (Node node = heads[rank]; node != null; node = node.nodeLink) {
+                int len = 0;
+                for (Node p = node.parent; p != root; p = p.parent) {
+                    if (baseCounts[p.rank] >= minCount) {
+                        path[len++] = p.rank;
+                    }
+                }
+                // paths are collected bottom-up, i.e., in descending rank order
+                for (int i = 0, j = len - 1; i < j; i++, j--) {
+                    int tmp = path[i];
+                    path[i] = path[j];
+                    path[j] = tmp;
+                }
+                res.insert(path, len, node.count);
+            }
+            return res;
+        }
+    }
+}
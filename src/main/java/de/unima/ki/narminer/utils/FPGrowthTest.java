@@ -0,0 +1,44 @@
+package de.unima.ki.narminer.utils;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class FPGrowthTest {
+    @Test
+    public void testMatchesBruteForce() throws Exception {
+        Random random = new Random(5);
+        TransactionDatabase tdb =
+            TestData.createDatabase(TestData.createIndependentTransactions(random, 400, 10, 5, 0.6, 0.25));
+
+        int minCount = 20;
+        FrequentItemsets frequent = new FPGrowth(tdb, minCount).mine();
+
+        Map<Itemset, Integer> found = new HashMap<Itemset, Integer>();
+        for (int i = 0; i < frequent.size(); i++) {
+            assertNull("duplicate itemset " + frequent.get(i), found.put(frequent.get(i), frequent.getCount(i)));
+        }
+
+        // enumerate all non-empty subsets of the universe {0..9}
+        int expected = 0;
+        for (int mask = 1; mask < (1 << 10); mask++) {
+            Itemset.Builder builder = new Itemset.Builder();
+            for (int item = 0; item < 10; item++) {
+                if ((mask & (1 << item)) != 0) {
+                    builder.add(item);
+                }
+            }
+            Itemset itemset = builder.build();
+            int count = tdb.getSupportCount(itemset);
+            if (count >= minCount) {
+                expected++;
+                assertEquals(itemset.toString(), Integer.valueOf(count), found.get(itemset));
+            }
+        }
+        assertEquals(expected, frequent.size());
+    }
+}
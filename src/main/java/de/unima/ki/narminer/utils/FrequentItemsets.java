@@ -0,0 +1,76 @@
+package de.unima.ki.narminer.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * Collection of frequent itemsets together with their support counts as produced by the mining engines which do not
+ * work level-wise
+ */
+public class FrequentItemsets implements Iterable<Itemset> {
+    private final ArrayList<Itemset> itemsets = new ArrayList<Itemset>();
+    private int[] counts = new int[16];
+
+    /**
+     * Adds the given itemset with its support count
+     *
+     * @param itemset frequent itemset
+     * @param count   number of transactions containing the itemset
+     */
+    public void add(Itemset itemset, int count) {
+        if (itemsets.size() == counts.length) {
+            counts = Arrays.copyOf(counts, counts.length * 2);
+        }
+        counts[itemsets.size()] = count;
+        itemsets.add(itemset);
+    }
+
+    /**
+     * Adds all itemsets contained in the given collection
+     *
+     * @param other collection to add itemsets from
+     */
+    public void addAll(FrequentItemsets other) {
+        for (int i = 0; i < other.size(); i++) {
+            add(other.get(i), other.getCount(i));
+        }
+    }
+
+    /**
+     * Returns the number of itemsets contained in this collection
+     *
+     * @return number of itemsets
+     */
+    public int size() {
+        return itemsets.size();
+    }
+
+    /**
+     * Returns the itemset at the given position
+     *
+     * @param index position of itemset
+     * @return itemset at given position
+     */
+    public Itemset get(int index) {
+        return itemsets.get(index);
+    }
+
+    /**
+     * Returns the support count of the itemset at the given position
+     *
+     * @param index position of itemset
+     * @return support count of itemset at given position
+     */
+    public int getCount(int index) {
+        if (index >= itemsets.size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + itemsets.size());
+        }
+        return counts[index];
+    }
+
+    @Override
+    public Iterator<Itemset> iterator() {
+        return itemsets.iterator();
+    }
+}
@@ -0,0 +1,157 @@
+package de.unima.ki.narminer.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+
+/**
+ * Offline snapshot of the ID database which can be used by {@link MappedIDResolver} instead of querying the database.
+ * A file consists of
+ * <ul>
+ * <li>a fixed size header containing the offsets of all sections and the number of entries of every table,</li>
+ * <li>the string heap, each string stored as its number of UTF-8 bytes followed by the bytes, and</li>
+ * <li>for each of the tables classes, properties and individuals the ascending ids followed by the heap offsets of the
+ * name and the URI of every id, -1 for null values.</li>
+ * </ul>
+ * Files are limited to 2 GB since they are mapped as a whole.
+ */
+public class IDDictionary {
+    /**
+     * Magic number identifying ID dictionaries ("NARD")
+     */
+    static final int MAGIC = 0x4E415244;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 64;
+
+    /**
+     * Tables of the ID database in the order they are stored
+     */
+    static final String[] TABLES = {"classes", "properties", "individuals"};
+
+    /**
+     * Writes the names and URIs of all tables of the given ID database to the given file
+     *
+     * @param conn connection to the ID database
+     * @param file file to write to, overwritten if existing
+     * @throws SQLException if reading the database fails
+     * @throws IOException  if writing the file fails or the dictionary exceeds the size limit
+     */
+    public static void write(Connection conn, File file) throws SQLException, IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(0);
+            FileChannel channel = raf.getChannel();
+            channel.position(HEADER_SIZE);
+            DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+
+            int[][] ids = new int[TABLES.length][];
+            long[][] refs = new long[TABLES.length][];
+            int[] counts = new int[TABLES.length];
+            long heapSize = 0;
+            for (int t = 0; t < TABLES.length; t++) {
+                ids[t] = new int[1024];
+                refs[t] = new long[2048];
+                Statement stmt = conn.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                try {
+                    stmt.setFetchSize(10000);
+                    ResultSet res = stmt.executeQuery(
+                        "SELECT id, `name`, `uri` FROM `" + TABLES[t] + "` ORDER BY id");
+                    while (res.next()) {
+                        int id = res.getInt(1);
+                        int count = counts[t];
+                        if (count > 0 && ids[t][count - 1] >= id) {
+                            throw new IOException("Duplicate id " + id + " in table " + TABLES[t]);
+                        }
+                        if (count == ids[t].length) {
+                            ids[t] = Arrays.copyOf(ids[t], 2 * count);
+                            refs[t] = Arrays.copyOf(refs[t], 4 * count);
+                        }
+                        ids[t][count] = id;
+                        for (int column = 0; column < 2; column++) {
+                            String value = res.getString(2 + column);
+                            if (value == null) {
+                                refs[t][2 * count + column] = -1;
+                            }
+                            else {
+                                byte[] bytes = value.getBytes("UTF-8");
+                                refs[t][2 * count + column] = heapSize;
+                                out.writeInt(bytes.length);
+                                out.write(bytes);
+                                heapSize += 4 + bytes.length;
+                            }
+                        }
+                        counts[t]++;
+                    }
+                    res.close();
+                }
+                finally {
+                    stmt.close();
+                }
+            }
+
+            long[] tableOffsets = new long[TABLES.length];
+            long pos = HEADER_SIZE + heapSize;
+            for (int t = 0; t < TABLES.length; t++) {
+                tableOffsets[t] = pos;
+                for (int i = 0; i < counts[t]; i++) {
+                    out.writeInt(ids[t][i]);
+                }
+                for (int i = 0; i < 2 * counts[t]; i++) {
+                    out.writeLong(refs[t][i]);
+                }
+                pos += 20L * counts[t];
+            }
+            out.flush();
+            if (pos > Integer.MAX_VALUE) {
+                throw new IOException("ID dictionary exceeds 2 GB: " + pos + " bytes");
+            }
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC);
+            header.putInt(VERSION);
+            for (int t = 0; t < TABLES.length; t++) {
+                header.putInt(counts[t]);
+                header.putLong(tableOffsets[t]);
+            }
+            header.flip();
+            channel.write(header, 0);
+        }
+        finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Dumps an ID database into a dictionary file. Expects the JDBC string of the ID database and the dictionary file
+     * to write as parameters.
+     *
+     * @param args JDBC string and dictionary file
+     * @throws SQLException if reading the database fails
+     * @throws IOException  if writing the file fails
+     */
+    public static void main(String[] args) throws SQLException, IOException {
+        if (args.length != 2) {
+            System.out.println("Provide JDBC string of the ID database and dictionary output file as parameters.");
+            System.exit(1);
+        }
+        Connection conn = DriverManager.getConnection(args[0]);
+        try {
+            write(conn, new File(args[1]));
+        }
+        finally {
+            conn.close();
+        }
+    }
+}
@@ -1,13 +1,44 @@
 package de.unima.ki.narminer.utils;
 
 import java.sql.*;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Provides methods to resolve IDs to their corresponding names and URIs
+ * <p/>
+ * Class names are cached in a concurrent map, so {@link #resolve(int)} may be called from several threads. Names for
+ * many ids should be loaded in advance using {@link #prefetch(Collection)}, which reads them with a few batched
+ * queries instead of one query per id. The single lookups share one connection and are serialized.
  */
 public class IDLookup extends IDResolver {
-    private HashMap<Integer,String> cache;
+    /**
+     * Number of ids queried by a single batched query
+     */
+    static final int BATCH_SIZE = 1000;
+
+    /**
+     * Default number of ids from which prefetching scans the whole table instead of using batched queries
+     */
+    static final int DEFAULT_SCAN_THRESHOLD = 100000;
+
+    /**
+     * Number of rows fetched at once while scanning the table. MySQL only streams the rows if the connection string
+     * enables <code>useCursorFetch=true</code>.
+     */
+    private static final int SCAN_FETCH_SIZE = 10000;
+
+    /**
+     * Marker for ids without name since the concurrent map does not allow null values
+     */
+    private static final String MISSING = new String();
+
+    private final ConcurrentHashMap<Integer, String> cache = new ConcurrentHashMap<Integer, String>();
+    private int scanThreshold = DEFAULT_SCAN_THRESHOLD;
 
     static {
         try {
@@ -18,7 +49,9 @@ public class IDLookup extends IDResolver {
         }
     }
 
+    private final Connection conn;
     private PreparedStatement classNameStmt;
+    private PreparedStatement classNameBatchStmt;
     private PreparedStatement classURIStmt;
     private PreparedStatement propNameStmt;
     private PreparedStatement propURIStmt;
@@ -26,26 +59,143 @@ public class IDLookup extends IDResolver {
     private PreparedStatement individualURIStmt;
 
     public IDLookup(String dbString) throws SQLException {
-        Connection conn = DriverManager.getConnection(dbString);
+        conn = DriverManager.getConnection(dbString);
         classNameStmt = conn.prepareStatement("SELECT `name` FROM `classes` WHERE id = ?");
+        classNameBatchStmt = conn.prepareStatement(getBatchQuery(BATCH_SIZE));
         classURIStmt = conn.prepareStatement("SELECT `uri` FROM `classes` WHERE id = ?");
         propNameStmt = conn.prepareStatement("SELECT `name` FROM `properties` WHERE id = ?");
         propURIStmt = conn.prepareStatement("SELECT `uri` FROM `properties` WHERE id = ?");
         individualNameStmt = conn.prepareStatement("SELECT `name` FROM `individuals` WHERE id = ?");
         individualURIStmt = conn.prepareStatement("SELECT `uri` FROM `individuals` WHERE id = ?");
-        cache = new HashMap<Integer, String>();
+    }
+
+    private static String getBatchQuery(int size) {
+        StringBuilder sb = new StringBuilder("SELECT id, `name` FROM `classes` WHERE id IN (");
+        for (int i = 0; i < size; i++) {
+            sb.append(i == 0 ? "?" : ", ?");
+        }
+        return sb.append(')').toString();
+    }
+
+    /**
+     * Sets the number of uncached ids from which {@link #prefetch(Collection)} scans the whole classes table instead
+     * of querying the ids in batches
+     *
+     * @param scanThreshold minimum number of ids for scanning the table
+     */
+    public void setScanThreshold(int scanThreshold) {
+        this.scanThreshold = scanThreshold;
     }
 
     public String resolve(int id) {
-        try {
+        String name = cache.get(id);
+        if (name == null) {
+            try {
+                name = lookupClassName(id);
+            }
+            catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+            cache.putIfAbsent(id, name == null ? MISSING : name);
+            return name;
+        }
+        return name == MISSING ? null : name;
+    }
+
+    /**
+     * Loads the class names of all given ids into the cache, ids already cached are skipped. Up to the scan threshold,
+     * the names are queried in batches of {@link #BATCH_SIZE} ids, otherwise the whole classes table is scanned once.
+     *
+     * @param ids ids to load names for
+     */
+    @Override
+    public void prefetch(Collection<Integer> ids) {
+        TreeSet<Integer> missing = new TreeSet<Integer>();
+        for (Integer id : ids) {
             if (!cache.containsKey(id)) {
-                cache.put(id, lookupClassName(id));
+                missing.add(id);
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+
+        try {
+            if (missing.size() >= scanThreshold) {
+                scanClassNames(missing);
+            }
+            else {
+                List<Integer> batch = new ArrayList<Integer>(BATCH_SIZE);
+                for (Integer id : missing) {
+                    batch.add(id);
+                    if (batch.size() == BATCH_SIZE) {
+                        lookupClassNames(batch);
+                        batch.clear();
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    lookupClassNames(batch);
+                }
             }
-            return cache.get(id);
         }
         catch (SQLException e) {
             throw new RuntimeException(e);
         }
+
+        // remember ids without name, otherwise they would be queried again by resolve
+        for (Integer id : missing) {
+            cache.putIfAbsent(id, MISSING);
+        }
+    }
+
+    private synchronized void lookupClassNames(List<Integer> ids) throws SQLException {
+        PreparedStatement stmt = ids.size() == BATCH_SIZE ? classNameBatchStmt
+                                                          : conn.prepareStatement(getBatchQuery(ids.size()));
+        try {
+            for (int i = 0; i < ids.size(); i++) {
+                stmt.setInt(i + 1, ids.get(i));
+            }
+            ResultSet res = stmt.executeQuery();
+            try {
+                while (res.next()) {
+                    cacheName(res.getInt(1), res.getString(2));
+                }
+            }
+            finally {
+                res.close();
+            }
+        }
+        finally {
+            if (stmt != classNameBatchStmt) {
+                stmt.close();
+            }
+        }
+    }
+
+    private synchronized void scanClassNames(Set<Integer> ids) throws SQLException {
+        Statement stmt = conn.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        try {
+            stmt.setFetchSize(SCAN_FETCH_SIZE);
+            ResultSet res = stmt.executeQuery("SELECT id, `name` FROM `classes`");
+            try {
+                while (res.next()) {
+                    int id = res.getInt(1);
+                    if (ids.contains(id)) {
+                        cacheName(id, res.getString(2));
+                    }
+                }
+            }
+            finally {
+                res.close();
+            }
+        }
+        finally {
+            stmt.close();
+        }
+    }
+
+    private void cacheName(int id, String name) {
+        cache.put(id, name == null ? MISSING : name);
     }
 
     /**
@@ -54,7 +204,7 @@ public class IDLookup extends IDResolver {
      * @param id id to lookup in database
      * @return class name for given id
      */
-    public String lookupClassName(int id) throws SQLException {
+    public synchronized String lookupClassName(int id) throws SQLException {
         classNameStmt.setInt(1, id);
         ResultSet res = classNameStmt.executeQuery();
 
@@ -71,7 +221,7 @@ public class IDLookup extends IDResolver {
      * @param id id to lookup in database
      * @return class URI for given id
      */
-    public String lookupClassURI(int id) throws SQLException {
+    public synchronized String lookupClassURI(int id) throws SQLException {
         classURIStmt.setInt(1, id);
         ResultSet res = classURIStmt.executeQuery();
 
@@ -88,7 +238,7 @@ public class IDLookup extends IDResolver {
      * @param id id to lookup in database
      * @return property name for given id
      */
-    public String lookupPropertyName(int id) throws SQLException {
+    public synchronized String lookupPropertyName(int id) throws SQLException {
         propNameStmt.setInt(1, id);
         ResultSet res = propNameStmt.executeQuery();
 
@@ -105,7 +255,7 @@ public class IDLookup extends IDResolver {
      * @param id id to lookup in database
      * @return property URI for given id
      */
-    public String lookupPropertyURI(int id) throws SQLException {
+    public synchronized String lookupPropertyURI(int id) throws SQLException {
         propURIStmt.setInt(1, id);
         ResultSet res = propURIStmt.executeQuery();
 
@@ -122,7 +272,7 @@ public class IDLookup extends IDResolver {
      * @param id id to lookup in database
      * @return individual name for given id
      */
-    public String lookupIndividualName(int id) throws SQLException {
+    public synchronized String lookupIndividualName(int id) throws SQLException {
         individualNameStmt.setInt(1, id);
         ResultSet res = individualNameStmt.executeQuery();
 
@@ -139,7 +289,7 @@ public class IDLookup extends IDResolver {
      * @param id id to lookup in database
      * @return individual URI for given id
      */
-    public String lookupIndividualURI(int id) throws SQLException {
+    public synchronized String lookupIndividualURI(int id) throws SQLException {
         individualURIStmt.setInt(1, id);
         ResultSet res = individualURIStmt.executeQuery();
 
@@ -0,0 +1,116 @@
+package de.unima.ki.narminer.utils;
+
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs against an in-memory H2 database in MySQL mode instead of the MySQL ID database
+ */
+public class IDLookupTest {
+    private static final AtomicInteger databases = new AtomicInteger();
+
+    @Test
+    public void testBatchedPrefetch() throws Exception {
+        checkPrefetch(Integer.MAX_VALUE);
+    }
+
+    @Test
+    public void testScanningPrefetch() throws Exception {
+        checkPrefetch(1);
+    }
+
+    private static void checkPrefetch(int scanThreshold) throws Exception {
+        String url = "jdbc:h2:mem:ids" + databases.incrementAndGet() + ";MODE=MySQL;DB_CLOSE_DELAY=-1";
+        Connection conn = DriverManager.getConnection(url);
+        try {
+            createTables(conn, 5000);
+            IDLookup lookup = new IDLookup(url);
+            lookup.setScanThreshold(scanThreshold);
+
+            // more ids than a single batch, some of them without name
+            List<Integer> ids = new ArrayList<Integer>();
+            for (int id = 1; id <= 2 * IDLookup.BATCH_SIZE + 500; id += 2) {
+                ids.add(id);
+            }
+            ids.add(7000);
+            lookup.prefetch(ids);
+
+            // all names have to be answered from the cache now
+            Statement stmt = conn.createStatement();
+            stmt.execute("DROP TABLE `classes`");
+            stmt.close();
+
+            for (int id : ids) {
+                assertEquals(id > 5000 ? null : "class" + id, lookup.resolve(id));
+            }
+        }
+        finally {
+            conn.close();
+        }
+    }
+
+    @Test
+    public void testConcurrentResolve() throws Exception {
+        String url = "jdbc:h2:mem:ids" + databases.incrementAndGet() + ";MODE=MySQL;DB_CLOSE_DELAY=-1";
+        Connection conn = DriverManager.getConnection(url);
+        try {
+            createTables(conn, 500);
+            final IDLookup lookup = new IDLookup(url);
+            final AtomicInteger failures = new AtomicInteger();
+
+            Thread[] threads = new Thread[4];
+            for (int t = 0; t < threads.length; t++) {
+                final int offset = t;
+                threads[t] = new Thread() {
+                    @Override
+                    public void run() {
+                        for (int i = 0; i < 2000; i++) {
+                            int id = 1 + (i * 7 + offset) % 600;
+                            String expected = id > 500 ? null : "class" + id;
+                            String name = lookup.resolve(id);
+                            if (expected == null ? name != null : !expected.equals(name)) {
+                                failures.incrementAndGet();
+                            }
+                        }
+                    }
+                };
+                threads[t].start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            assertEquals(0, failures.get());
+        }
+        finally {
+            conn.close();
+        }
+    }
+
+    private static void createTables(Connection conn, int numClasses) throws Exception {
+        Statement stmt = conn.createStatement();
+        stmt.execute("CREATE TABLE `classes` (id INT PRIMARY KEY, `name` VARCHAR(255), `uri` VARCHAR(255))");
+        for (String table : new String[]{"properties", "individuals"}) {
+            stmt.execute("CREATE TABLE `" + table + "` (id INT PRIMARY KEY, `name` VARCHAR(255), `uri` VARCHAR(255))");
+        }
+        stmt.close();
+
+        PreparedStatement insert = conn.prepareStatement("INSERT INTO `classes` VALUES (?, ?, ?)");
+        for (int id = 1; id <= numClasses; id++) {
+            insert.setInt(1, id);
+            insert.setString(2, "class" + id);
+            insert.setString(3, "http://example.org/class" + id);
+            insert.addBatch();
+        }
+        insert.executeBatch();
+        insert.close();
+    }
+}
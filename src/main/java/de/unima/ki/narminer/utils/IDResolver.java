@@ -1,5 +1,7 @@
 package de.unima.ki.narminer.utils;
 
+import java.util.Collection;
+
 public abstract class IDResolver {
     private static IDResolver resolver = new DummyResolver();
 
@@ -34,5 +36,13 @@ public abstract class IDResolver {
      */
     public abstract String resolve(int id);
 
+    /**
+     * Announces that the given ids are going to be resolved, so resolvers backed by a database can load their names
+     * at once. The default implementation does nothing.
+     *
+     * @param ids ids to be resolved
+     */
+    public void prefetch(Collection<Integer> ids) {
+    }
 
 }
@@ -0,0 +1,143 @@
+package de.unima.ki.narminer.utils;
+
+import java.util.AbstractList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.TreeSet;
+
+/**
+ * View of a transaction database in which every transaction is replaced by its complement with respect to the universe
+ * of items. Nothing is stored per transaction: complement transactions are computed on access and support counts are
+ * derived from the item bitmaps of the original database by subtracting the number of transactions containing any of
+ * the items from the total number of transactions.
+ */
+class InvertedTransactionDatabase extends TransactionDatabase {
+    private final TransactionDatabase original;
+
+    /**
+     * Creates the inverted view of the given database
+     *
+     * @param original database to invert
+     * @param allItems universe of items of the original database
+     */
+    InvertedTransactionDatabase(TransactionDatabase original, TreeSet<Integer> allItems) {
+        super(new ComplementList(original, allItems), allItems);
+        this.original = original;
+    }
+
+    @Override
+    int countTransactions(Itemset itemset) {
+        int size = itemset.size();
+        if (size == 0 || !containsAll(itemset)) {
+            return 0;
+        }
+
+        int n = getNumberOfTransactions();
+        if (size == 1) {
+            return n - original.getItemBitmap(itemset.items[0]).cardinality();
+        }
+        if (size == 2) {
+            CompressedBitmap b1 = original.getItemBitmap(itemset.items[0]);
+            CompressedBitmap b2 = original.getItemBitmap(itemset.items[1]);
+            return n - (b1.cardinality() + b2.cardinality() - b1.andCardinality(b2));
+        }
+        return n - getUnion(itemset).cardinality();
+    }
+
+    @Override
+    public CompressedBitmap getItemBitmap(int item) {
+        if (!getAllItems().contains(item)) {
+            return new CompressedBitmap();
+        }
+        return CompressedBitmap.range(getNumberOfTransactions()).andNot(original.getItemBitmap(item));
+    }
+
+    @Override
+    public CompressedBitmap getTransactionBitmap(Itemset itemset) {
+        if (itemset.size() == 0 || !containsAll(itemset)) {
+            return new CompressedBitmap();
+        }
+        return CompressedBitmap.range(getNumberOfTransactions()).andNot(getUnion(itemset));
+    }
+
+    /**
+     * Materializes the bitmaps of all items, only used for writing the view in binary format
+     */
+    @Override
+    Map<Integer, CompressedBitmap> getItemIndex() {
+        HashMap<Integer, CompressedBitmap> res = new HashMap<Integer, CompressedBitmap>();
+        for (Integer item : getAllItems()) {
+            CompressedBitmap bitmap = getItemBitmap(item);
+            if (!bitmap.isEmpty()) {
+                res.put(item, bitmap);
+            }
+        }
+        return Collections.unmodifiableMap(res);
+    }
+
+    /**
+     * Returns the original database since inverting twice yields the original transactions
+     *
+     * @return original database
+     */
+    @Override
+    public TransactionDatabase invert() {
+        return original;
+    }
+
+    private boolean containsAll(Itemset itemset) {
+        for (int i = 0; i < itemset.items.length; i++) {
+            if (!getAllItems().contains(itemset.items[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the positions of all original transactions containing at least one item of the given itemset
+     */
+    private CompressedBitmap getUnion(Itemset itemset) {
+        CompressedBitmap res = original.getItemBitmap(itemset.items[0]);
+        for (int i = 1; i < itemset.items.length; i++) {
+            res = res.or(original.getItemBitmap(itemset.items[i]));
+        }
+        return res;
+    }
+
+    /**
+     * Read-only list computing the complement of an original transaction on every access
+     */
+    private static final class ComplementList extends AbstractList<Transaction> implements RandomAccess {
+        private final TransactionDatabase original;
+        private final TreeSet<Integer> allItems;
+
+        ComplementList(TransactionDatabase original, TreeSet<Integer> allItems) {
+            this.original = original;
+            this.allItems = allItems;
+        }
+
+        @Override
+        public Transaction get(int index) {
+            int[] items = original.getAllTransactions().get(index).items;
+            Itemset.Builder builder = new Itemset.Builder(allItems.size());
+            int pos = 0;
+            for (Integer item : allItems) {
+                while (pos < items.length && items[pos] < item) {
+                    pos++;
+                }
+                if (pos == items.length || items[pos] != item) {
+                    builder.add(item);
+                }
+            }
+            return builder.buildTransaction();
+        }
+
+        @Override
+        public int size() {
+            return original.getNumberOfTransactions();
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package de.unima.ki.narminer.utils;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.Assert.*;
+
+public class InvertedTransactionDatabaseTest {
+    @Test
+    public void testMatchesMaterializedComplement() throws Exception {
+        Random random = new Random(13);
+        TreeSet<Integer> universe = new TreeSet<Integer>();
+        for (int i = 0; i < 40; i++) {
+            universe.add(i);
+        }
+
+        // transactions may contain items outside the universe which do not appear in the complement
+        StringBuilder original = new StringBuilder();
+        StringBuilder complement = new StringBuilder();
+        for (int t = 0; t < 70000; t++) {
+            TreeSet<Integer> items = new TreeSet<Integer>();
+            int len = 1 + random.nextInt(random.nextInt(10) == 0 ? 35 : 6);
+            while (items.size() < len) {
+                items.add(random.nextInt(3) == 0 ? random.nextInt(5) : random.nextInt(45));
+            }
+            append(original, items);
+            TreeSet<Integer> inverted = new TreeSet<Integer>(universe);
+            inverted.removeAll(items);
+            append(complement, inverted);
+        }
+
+        TransactionDatabase tdb = new TransactionDatabase(
+                new ByteArrayInputStream(original.toString().getBytes("UTF-8")), universe);
+        TransactionDatabase expected = new TransactionDatabase(
+                new ByteArrayInputStream(complement.toString().getBytes("UTF-8")), universe);
+        TransactionDatabase actual = tdb.invert();
+
+        assertSame(tdb, actual.invert());
+        assertEquals(expected.getNumberOfTransactions(), actual.getNumberOfTransactions());
+        assertEquals(expected.getAllTransactions(), actual.getAllTransactions());
+        assertEquals(expected.getFrequent1Itemsets(0.6), actual.getFrequent1Itemsets(0.6));
+        for (int item = 0; item < 45; item++) {
+            assertEquals(expected.getItemBitmap(item), actual.getItemBitmap(item));
+        }
+
+        for (int round = 0; round < 500; round++) {
+            Itemset.Builder builder = new Itemset.Builder();
+            int len = 1 + random.nextInt(4);
+            for (int i = 0; i < len; i++) {
+                builder.add(random.nextInt(42));
+            }
+            Itemset itemset = builder.build();
+            assertEquals(itemset.toString(), expected.getSupportCount(itemset), actual.getSupportCount(itemset));
+            assertEquals(itemset.toString(), expected.getTransactionBitmap(itemset),
+                         actual.getTransactionBitmap(itemset));
+        }
+    }
+
+    private static void append(StringBuilder sb, TreeSet<Integer> items) {
+        for (int item : items) {
+            sb.append(item).append(' ');
+        }
+        sb.append('\n');
+    }
+}
@@ -3,17 +3,22 @@ package de.unima.ki.narminer.utils;
 import java.util.*;
 
 /**
- * Itemset trying to reach higher performance than the original HashSet based implementation
+ * Immutable itemset backed by a sorted array of primitive item ids. The hash code is computed once on construction,
+ * membership tests use binary search and all set operations are implemented as merges of the sorted arrays.
+ * <p/>
+ * Itemsets are built incrementally using a {@link Builder}.
  */
 public class Itemset implements Iterable<Integer> {
-    private ArrayList<Integer> content;
+    private static final int[] EMPTY = new int[0];
 
+    final int[] items;
+    private final int hash;
 
     /**
      * Creates an empty itemset
      */
     public Itemset() {
-        content = new ArrayList<Integer>();
+        this(EMPTY);
     }
 
     /**
@@ -22,17 +27,18 @@ public class Itemset implements Iterable<Integer> {
      * @param set set containing items to initialize itemset with
      */
     public Itemset(Set<Integer> set) {
-        content = new ArrayList<Integer>(set);
-        Collections.sort(content);
+        this(sortedArray(set));
     }
 
     /**
-     * Initializes the itemset using the given list
+     * Initializes the itemset using the given array which has to be sorted in ascending order and free of
+     * duplicates. The array is used internally and must not be modified afterwards.
      *
-     * @param list list to use internally
+     * @param sortedItems array to use internally
      */
-    private Itemset(ArrayList<Integer> list) {
-        content = list;
+    Itemset(int[] sortedItems) {
+        items = sortedItems;
+        hash = Arrays.hashCode(sortedItems);
     }
 
     /**
@@ -42,31 +48,21 @@ public class Itemset implements Iterable<Integer> {
      * @return itemset containing only the given value
      */
     public static Itemset singleton(int val) {
-        Itemset res = new Itemset();
-        res.add(val);
-        return res;
+        return new Itemset(new int[]{val});
     }
 
     /**
-     * Adds the given value to this itemset ensuring the ordering and uniqueness of values.
-     * <p/>
-     * Sorting is based on insertion sort
+     * Creates a new itemset containing the given values in arbitrary order, duplicates are ignored
      *
-     * @param val value to add to itemset
+     * @param values values contained in the newly created itemset
+     * @return itemset containing the given values
      */
-    public void add(Integer val) {
-        int pos = 0;
-
-        while (pos < content.size() && content.get(pos) <= val) {
-            // element already contained in itemset
-            if (content.get(pos).equals(val)) {
-                return;
-            }
-
-            pos++;
+    public static Itemset of(int... values) {
+        Builder builder = new Builder(values.length);
+        for (int v : values) {
+            builder.add(v);
         }
-
-        content.add(pos, val);
+        return builder.build();
     }
 
     /**
@@ -75,7 +71,26 @@ public class Itemset implements Iterable<Integer> {
      * @return size of this itemset
      */
     public int size() {
-        return content.size();
+        return items.length;
+    }
+
+    /**
+     * Returns the item at the given position of the ascending item order
+     *
+     * @param index position of the item
+     * @return item at the given position
+     */
+    public int get(int index) {
+        return items[index];
+    }
+
+    /**
+     * Returns a copy of the items of this itemset in ascending order
+     *
+     * @return ascending array of items
+     */
+    public int[] toArray() {
+        return items.clone();
     }
 
     /**
@@ -85,43 +100,94 @@ public class Itemset implements Iterable<Integer> {
      * @return return new itemset being the union of this and the given one
      */
     public Itemset union(Itemset other) {
-        ArrayList<Integer> thisContent = this.content;
-        ArrayList<Integer> otherContent = other.content;
+        int[] thisContent = this.items;
+        int[] otherContent = other.items;
 
-        ArrayList<Integer> result = new ArrayList<Integer>();
+        int[] result = new int[unionSize(thisContent, otherContent)];
+        int resPos = 0;
 
         int thisPos = 0;
         int otherPos = 0;
 
-        while (otherPos < otherContent.size() && thisPos < thisContent.size()) {
-            int largerVal = thisContent.get(thisPos);
-            int smallerVal = otherContent.get(otherPos);
+        while (otherPos < otherContent.length && thisPos < thisContent.length) {
+            int largerVal = thisContent[thisPos];
+            int smallerVal = otherContent[otherPos];
             if (smallerVal < largerVal) {
-                result.add(smallerVal);
+                result[resPos++] = smallerVal;
                 otherPos++;
             }
             else if (smallerVal > largerVal) {
-                result.add(largerVal);
+                result[resPos++] = largerVal;
                 thisPos++;
             }
             else {
-                result.add(largerVal);
+                result[resPos++] = largerVal;
                 otherPos++;
                 thisPos++;
             }
         }
 
-        while (otherPos < otherContent.size()) {
-            result.add(otherContent.get(otherPos++));
+        while (otherPos < otherContent.length) {
+            result[resPos++] = otherContent[otherPos++];
+        }
+
+        while (thisPos < thisContent.length) {
+            result[resPos++] = thisContent[thisPos++];
         }
 
-        while (thisPos < thisContent.size()) {
-            result.add(thisContent.get(thisPos++));
+        return new Itemset(result);
+    }
+
+    /**
+     * Returns a new itemset containing all items of this itemset and the given item
+     *
+     * @param item item to add
+     * @return itemset extended by the given item, this itemset if the item is already contained
+     */
+    public Itemset with(int item) {
+        int pos = Arrays.binarySearch(items, item);
+        if (pos >= 0) {
+            return this;
         }
+        pos = -pos - 1;
+
+        int[] result = new int[items.length + 1];
+        System.arraycopy(items, 0, result, 0, pos);
+        result[pos] = item;
+        System.arraycopy(items, pos, result, pos + 1, items.length - pos);
 
         return new Itemset(result);
     }
 
+    /**
+     * Returns a new itemset containing all items of this itemset except the given one
+     *
+     * @param item item to remove
+     * @return itemset without the given item, this itemset if the item is not contained
+     */
+    public Itemset without(int item) {
+        int pos = Arrays.binarySearch(items, item);
+        if (pos < 0) {
+            return this;
+        }
+
+        int[] result = new int[items.length - 1];
+        System.arraycopy(items, 0, result, 0, pos);
+        System.arraycopy(items, pos + 1, result, pos, items.length - pos - 1);
+
+        return new Itemset(result);
+    }
+
+    /**
+     * Returns the size of the union of this and the given itemset without creating it
+     *
+     * @param other second itemset
+     * @return size of the union of both itemsets
+     */
+    public int unionSize(Itemset other) {
+        return unionSize(this.items, other.items);
+    }
+
     /**
      * Returns true if the given itemset contains all items this itemset contains
      *
@@ -129,15 +195,19 @@ public class Itemset implements Iterable<Integer> {
      * @return true if the itemsets are equal otherwise false
      */
     public boolean containsAll(Itemset other) {
-        ArrayList<Integer> thisContent = this.content;
-        ArrayList<Integer> otherContent = other.content;
+        int[] thisContent = this.items;
+        int[] otherContent = other.items;
+
+        if (otherContent.length > thisContent.length) {
+            return false;
+        }
 
         int thisPos = 0;
         int otherPos = 0;
 
-        while (otherPos < otherContent.size() && thisPos < thisContent.size()) {
-            int thisVal = thisContent.get(thisPos);
-            int otherVal = otherContent.get(otherPos);
+        while (otherPos < otherContent.length && thisPos < thisContent.length) {
+            int thisVal = thisContent[thisPos];
+            int otherVal = otherContent[otherPos];
             if (otherVal < thisVal) {
                 return false;
             }
@@ -150,11 +220,7 @@ public class Itemset implements Iterable<Integer> {
             }
         }
 
-        if (otherPos < other.size()) {
-            return false;
-        }
-
-        return true;
+        return otherPos == otherContent.length;
     }
 
     /**
@@ -164,17 +230,21 @@ public class Itemset implements Iterable<Integer> {
      * @return intersection of this itemset with given other one
      */
     public Itemset intersect(Itemset other) {
-        ArrayList<Integer> thisContent = this.content;
-        ArrayList<Integer> otherContent = other.content;
+        int[] thisContent = this.items;
+        int[] otherContent = other.items;
 
-        ArrayList<Integer> result = new ArrayList<Integer>();
+        int[] result = new int[intersectionSize(thisContent, otherContent)];
+        if (result.length == 0) {
+            return new Itemset(EMPTY);
+        }
+        int resPos = 0;
 
         int thisPos = 0;
         int otherPos = 0;
 
-        while (otherPos < otherContent.size() && thisPos < thisContent.size()) {
-            int largerVal = thisContent.get(thisPos);
-            int smallerVal = otherContent.get(otherPos);
+        while (otherPos < otherContent.length && thisPos < thisContent.length) {
+            int largerVal = thisContent[thisPos];
+            int smallerVal = otherContent[otherPos];
             if (smallerVal < largerVal) {
                 otherPos++;
             }
@@ -182,7 +252,7 @@ public class Itemset implements Iterable<Integer> {
                 thisPos++;
             }
             else {
-                result.add(largerVal);
+                result[resPos++] = largerVal;
                 otherPos++;
                 thisPos++;
             }
@@ -201,7 +271,7 @@ public class Itemset implements Iterable<Integer> {
 
         sb.append("{");
 
-        for (Integer val : content) {
+        for (int val : items) {
             sb.append(val).append(", ");
         }
 
@@ -217,24 +287,27 @@ public class Itemset implements Iterable<Integer> {
      * @return resulting itemset
      */
     public Itemset minus(Itemset other) {
-        ArrayList<Integer> thisContent = this.content;
-        ArrayList<Integer> otherContent = other.content;
+        int[] thisContent = this.items;
+        int[] otherContent = other.items;
 
-        ArrayList<Integer> result = new ArrayList<Integer>();
+        int[] result = new int[thisContent.length - intersectionSize(thisContent, otherContent)];
+        if (result.length == 0) {
+            return new Itemset(EMPTY);
+        }
+        int resPos = 0;
 
         int thisPos = 0;
         int otherPos = 0;
 
-        while (otherPos < otherContent.size() && thisPos < thisContent.size()) {
-            int thisVal = thisContent.get(thisPos);
-            int otherVal = otherContent.get(otherPos);
-            if (otherVal < thisVal) {
-                otherPos++;
-            }
-            else if (otherVal > thisVal) {
-                result.add(thisVal);
+        while (thisPos < thisContent.length) {
+            int thisVal = thisContent[thisPos];
+            if (otherPos == otherContent.length || otherContent[otherPos] > thisVal) {
+                result[resPos++] = thisVal;
                 thisPos++;
             }
+            else if (otherContent[otherPos] < thisVal) {
+                otherPos++;
+            }
             else {
                 otherPos++;
                 thisPos++;
@@ -255,7 +328,7 @@ public class Itemset implements Iterable<Integer> {
 
         sb.append("{");
 
-        for (Integer val : content) {
+        for (int val : items) {
             sb.append(resolver.resolve(val)).append(", ");
         }
 
@@ -270,16 +343,8 @@ public class Itemset implements Iterable<Integer> {
      * @param item item to check for
      * @return true if item contained in itemset
      */
-    public boolean contains(Integer item) {
-        for (Integer curItem : content) {
-            if (curItem == item) {
-                return true;
-            }
-            if (curItem < item) {
-                return false;
-            }
-        }
-        return false;
+    public boolean contains(int item) {
+        return Arrays.binarySearch(items, item) >= 0;
     }
 
     @Override
@@ -291,28 +356,34 @@ public class Itemset implements Iterable<Integer> {
             return false;
         }
 
-        Itemset itemsetHP = (Itemset) o;
-
-        if (content != null ? !content.equals(itemsetHP.content) : itemsetHP.content != null) {
-            return false;
-        }
+        Itemset other = (Itemset) o;
 
-        return true;
+        return hash == other.hash && Arrays.equals(items, other.items);
     }
 
     /**
-     * Returns the internal array list
+     * Returns an unmodifiable list view of the items of this itemset
      *
-     * @return internal array list
+     * @return unmodifiable list of items in ascending order
      */
     public List<Integer> getContent() {
-        return Collections.unmodifiableList(content);
+        return new AbstractList<Integer>() {
+            @Override
+            public Integer get(int index) {
+                return items[index];
+            }
+
+            @Override
+            public int size() {
+                return items.length;
+            }
+        };
     }
 
     /**
      * Returns an iterator over all possible subsets A and B with A disjoint-union B = itemset
      *
-     * @return iterator over 
+     * @return iterator over
      */
     public Iterator<Itemset[]> getSubsetIterator() {
         return new SubsetIterator(this);
@@ -320,11 +391,171 @@ public class Itemset implements Iterable<Integer> {
 
     @Override
     public int hashCode() {
-        return content != null ? content.hashCode() : 0;
+        return hash;
     }
 
     @Override
     public Iterator<Integer> iterator() {
-        return content.iterator();
+        return new Iterator<Integer>() {
+            private int pos = 0;
+
+            @Override
+            public boolean hasNext() {
+                return pos < items.length;
+            }
+
+            @Override
+            public Integer next() {
+                if (pos >= items.length) {
+                    throw new NoSuchElementException();
+                }
+                return items[pos++];
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    private static int unionSize(int[] a, int[] b) {
+        return a.length + b.length - intersectionSize(a, b);
+    }
+
+    private static int intersectionSize(int[] a, int[] b) {
+        int res = 0;
+        int aPos = 0;
+        int bPos = 0;
+
+        while (aPos < a.length && bPos < b.length) {
+            int aVal = a[aPos];
+            int bVal = b[bPos];
+            if (aVal < bVal) {
+                aPos++;
+            }
+            else if (aVal > bVal) {
+                bPos++;
+            }
+            else {
+                res++;
+                aPos++;
+                bPos++;
+            }
+        }
+
+        return res;
+    }
+
+    private static int[] sortedArray(Set<Integer> set) {
+        int[] res = new int[set.size()];
+        int pos = 0;
+        for (int item : set) {
+            res[pos++] = item;
+        }
+        if (!(set instanceof SortedSet)) {
+            Arrays.sort(res);
+        }
+        return res;
+    }
+
+    /**
+     * Collects items for creating an itemset. Items may be added in arbitrary order and multiple times, adding them
+     * in ascending order avoids the final sort.
+     */
+    public static class Builder {
+        private int[] buffer;
+        private int size;
+        private boolean sorted = true;
+
+        /**
+         * Creates a builder for itemsets of arbitrary size
+         */
+        public Builder() {
+            this(8);
+        }
+
+        /**
+         * Creates a builder with room for the given number of items
+         *
+         * @param capacity expected number of items
+         */
+        public Builder(int capacity) {
+            buffer = new int[Math.max(capacity, 1)];
+        }
+
+        /**
+         * Adds the given item to the itemset being built
+         *
+         * @param item item to add
+         * @return this builder
+         */
+        public Builder add(int item) {
+            if (size == buffer.length) {
+                buffer = Arrays.copyOf(buffer, size * 2);
+            }
+            if (size > 0 && buffer[size - 1] >= item) {
+                sorted = false;
+            }
+            buffer[size++] = item;
+            return this;
+        }
+
+        /**
+         * Returns the number of items added so far including duplicates
+         *
+         * @return number of items added
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Removes all items from this builder so that it can be reused
+         *
+         * @return this builder
+         */
+        public Builder clear() {
+            size = 0;
+            sorted = true;
+            return this;
+        }
+
+        /**
+         * Creates an itemset from the items added so far
+         *
+         * @return itemset containing all added items
+         */
+        public Itemset build() {
+            return new Itemset(toSortedArray());
+        }
+
+        /**
+         * Creates a transaction from the items added so far
+         *
+         * @return transaction containing all added items
+         */
+        public Transaction buildTransaction() {
+            return new Transaction(toSortedArray());
+        }
+
+        private int[] toSortedArray() {
+            if (size == 0) {
+                return EMPTY;
+            }
+            int[] res = Arrays.copyOf(buffer, size);
+            if (sorted) {
+                return res;
+            }
+
+            Arrays.sort(res);
+            int unique = 1;
+            for (int i = 1; i < res.length; i++) {
+                if (res[i] != res[unique - 1]) {
+                    res[unique++] = res[i];
+                }
+            }
+            return unique == res.length ? res : Arrays.copyOf(res, unique);
+        }
     }
 }
@@ -2,16 +2,19 @@ package de.unima.ki.narminer.utils;
 
 import org.junit.Test;
 
+import static org.junit.Assert.*;
+
 public class ItemsetTest {
     @Test
     public void testUnion() throws Exception {
-        Itemset i1 = new Itemset();
-        i1.add(1);
-        i1.add(5);
-        i1.add(4);
-        i1.add(6);
-        i1.add(13);
-        i1.add(9);
+        Itemset.Builder b1 = new Itemset.Builder();
+        b1.add(1);
+        b1.add(5);
+        b1.add(4);
+        b1.add(6);
+        b1.add(13);
+        b1.add(9);
+        Itemset i1 = b1.build();
 
         for (int i : i1) {
             System.out.println(i);
@@ -19,14 +22,15 @@ public class ItemsetTest {
 
         System.out.println("-----");
 
-        Itemset i2 = new Itemset();
-        i2.add(1);
-        i2.add(5);
-        i2.add(4);
-        i2.add(6);
-        i2.add(0);
-        i2.add(9);
-        i2.add(9);
+        Itemset.Builder b2 = new Itemset.Builder();
+        b2.add(1);
+        b2.add(5);
+        b2.add(4);
+        b2.add(6);
+        b2.add(0);
+        b2.add(9);
+        b2.add(9);
+        Itemset i2 = b2.build();
 
         for (int i : i2) {
             System.out.println(i);
@@ -39,5 +43,27 @@ public class ItemsetTest {
         for (int i : union) {
             System.out.println(i);
         }
+
+        assertEquals(Itemset.of(0, 1, 4, 5, 6, 9, 13), union);
+        assertEquals(Itemset.of(0, 1, 4, 5, 6, 9, 13).hashCode(), union.hashCode());
+    }
+
+    @Test
+    public void testMerges() throws Exception {
+        Itemset i1 = Itemset.of(1, 3, 5, 7);
+        Itemset i2 = Itemset.of(3, 4, 7);
+
+        assertEquals(Itemset.of(3, 7), i1.intersect(i2));
+        assertEquals(Itemset.of(1, 5), i1.minus(i2));
+        assertEquals(Itemset.of(4), i2.minus(i1));
+        assertEquals(0, i1.minus(i1).size());
+        assertEquals(5, i1.unionSize(i2));
+
+        assertTrue(i1.containsAll(Itemset.of(1, 7)));
+        assertFalse(i1.containsAll(i2));
+        assertTrue(i1.containsAll(new Itemset()));
+
+        assertTrue(i1.contains(5));
+        assertFalse(i1.contains(4));
     }
 }
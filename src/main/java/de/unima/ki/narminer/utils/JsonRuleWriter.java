@@ -0,0 +1,133 @@
+package de.unima.ki.narminer.utils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.Charset;
+
+/**
+ * Rule sink writing every rule as a JSON object on a line of its own (JSON lines). The output is encoded in UTF-8 and
+ * each object has the fields
+ * <ul>
+ * <li>{@code type}: {@code "positive"} or {@code "negative"}</li>
+ * <li>{@code antecedent}, {@code consequent}: arrays of the item ids</li>
+ * <li>{@code antecedent_names}, {@code consequent_names}: arrays of the item names</li>
+ * <li>{@code antecedent_negated}, {@code consequent_negated}: negation flags</li>
+ * <li>{@code support}, {@code confidence}, {@code interest}: measures of the rule, {@code null} if not finite</li>
+ * </ul>
+ */
+public class JsonRuleWriter implements RuleOutput {
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final BufferedWriter writer;
+    private final IDResolver resolver;
+    private final StringBuilder line = new StringBuilder(256);
+    private boolean negativeStarted;
+
+    /**
+     * Creates a sink writing to the given stream, which is closed together with this sink
+     *
+     * @param out      stream to write rules to
+     * @param resolver resolver used for converting item ids to names
+     */
+    public JsonRuleWriter(OutputStream out, IDResolver resolver) {
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, UTF8), 1 << 16);
+        this.resolver = resolver;
+    }
+
+    @Override
+    public synchronized void addPositiveRule(AssociationRule rule) throws IOException {
+        if (negativeStarted) {
+            throw new IllegalStateException("Positive rule received after negative rules");
+        }
+        writeRule("positive", rule);
+    }
+
+    @Override
+    public synchronized void addNegativeRule(AssociationRule rule) throws IOException {
+        negativeStarted = true;
+        writeRule("negative", rule);
+    }
+
+    @Override
+    public synchronized void flush() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+
+    private void writeRule(String type, AssociationRule rule) throws IOException {
+        line.setLength(0);
+        line.append("{\"type\":\"").append(type).append('"');
+        appendItemset("antecedent", rule.getAntecedent(), rule.isAntecedentNegated());
+        appendItemset("consequent", rule.getConsequent(), rule.isConsequentNegated());
+        appendNumber("support", rule.getSupport());
+        appendNumber("confidence", rule.getConfidence());
+        appendNumber("interest", rule.getInterest());
+        line.append("}\n");
+        writer.append(line);
+    }
+
+    private void appendItemset(String field, Itemset itemset, boolean negated) {
+        line.append(",\"").append(field).append("\":[");
+        for (int i = 0; i < itemset.size(); i++) {
+            line.append(i > 0 ? "," : "").append(itemset.get(i));
+        }
+        line.append("],\"").append(field).append("_names\":[");
+        for (int i = 0; i < itemset.size(); i++) {
+            line.append(i > 0 ? "," : "");
+            appendString(resolver.resolve(itemset.get(i)));
+        }
+        line.append("],\"").append(field).append("_negated\":").append(negated);
+    }
+
+    private void appendNumber(String field, double value) {
+        line.append(",\"").append(field).append("\":");
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            line.append("null");
+        }
+        else {
+            line.append(value);
+        }
+    }
+
+    private void appendString(String value) {
+        if (value == null) {
+            line.append("null");
+            return;
+        }
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    line.append("\\\"");
+                    break;
+                case '\\':
+                    line.append("\\\\");
+                    break;
+                case '\n':
+                    line.append("\\n");
+                    break;
+                case '\r':
+                    line.append("\\r");
+                    break;
+                case '\t':
+                    line.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        line.append(String.format("\\u%04x", (int) c));
+                    }
+                    else {
+                        line.append(c);
+                    }
+            }
+        }
+        line.append('"');
+    }
+}
@@ -0,0 +1,165 @@
+package de.unima.ki.narminer.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+/**
+ * Resolves IDs to names and URIs using an {@link IDDictionary} file instead of the ID database. The file is
+ * memory-mapped and ids are looked up by binary search, strings are decoded on access. Neither a database connection
+ * nor a JDBC driver is needed. This class may be used concurrently.
+ */
+public class MappedIDResolver extends IDResolver {
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final int CLASSES = 0;
+    private static final int PROPERTIES = 1;
+    private static final int INDIVIDUALS = 2;
+
+    private final ByteBuffer buffer;
+    private final int[] counts = new int[IDDictionary.TABLES.length];
+    private final int[] tableOffsets = new int[IDDictionary.TABLES.length];
+
+    /**
+     * Opens the given dictionary file
+     *
+     * @param file dictionary written by {@link IDDictionary#write(java.sql.Connection, File)}
+     * @throws IOException if the file cannot be read or is not an ID dictionary
+     */
+    public MappedIDResolver(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            long fileSize = channel.size();
+            if (fileSize < IDDictionary.HEADER_SIZE) {
+                throw new IOException("File too short for an ID dictionary: " + file);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+        }
+        finally {
+            // mappings stay valid after closing the file
+            raf.close();
+        }
+
+        if (buffer.getInt(0) != IDDictionary.MAGIC) {
+            throw new IOException("Not an ID dictionary: " + file);
+        }
+        int version = buffer.getInt(4);
+        if (version != IDDictionary.VERSION) {
+            throw new IOException("Unsupported ID dictionary version " + version + ": " + file);
+        }
+        for (int t = 0; t < counts.length; t++) {
+            counts[t] = buffer.getInt(8 + 12 * t);
+            tableOffsets[t] = (int) buffer.getLong(12 + 12 * t);
+        }
+    }
+
+    @Override
+    public String resolve(int id) {
+        return lookupClassName(id);
+    }
+
+    /**
+     * Returns the class name for the given class id
+     *
+     * @param id id to lookup
+     * @return class name for given id, null if unknown
+     */
+    public String lookupClassName(int id) {
+        return lookup(CLASSES, id, 0);
+    }
+
+    /**
+     * Returns the class URI for the given class id
+     *
+     * @param id id to lookup
+     * @return class URI for given id, null if unknown
+     */
+    public String lookupClassURI(int id) {
+        return lookup(CLASSES, id, 1);
+    }
+
+    /**
+     * Returns the property name for the given property id
+     *
+     * @param id id to lookup
+     * @return property name for given id, null if unknown
+     */
+    public String lookupPropertyName(int id) {
+        return lookup(PROPERTIES, id, 0);
+    }
+
+    /**
+     * Returns the property URI for the given property id
+     *
+     * @param id id to lookup
+     * @return property URI for given id, null if unknown
+     */
+    public String lookupPropertyURI(int id) {
+        return lookup(PROPERTIES, id, 1);
+    }
+
+    /**
+     * Returns the individual name for the given individual id
+     *
+     * @param id id to lookup
+     * @return individual name for given id, null if unknown
+     */
+    public String lookupIndividualName(int id) {
+        return lookup(INDIVIDUALS, id, 0);
+    }
+
+    /**
+     * Returns the individual URI for the given individual id
+     *
+     * @param id id to lookup
+     * @return individual URI for given id, null if unknown
+     */
+    public String lookupIndividualURI(int id) {
+        return lookup(INDIVIDUALS, id, 1);
+    }
+
+    private String lookup(int table, int id, int column) {
+        int index = find(table, id);
+        if (index < 0) {
+            return null;
+        }
+        long ref = buffer.getLong(tableOffsets[table] + 4 * counts[table] + 16 * index + 8 * column);
+        if (ref < 0) {
+            return null;
+        }
+        int pos = IDDictionary.HEADER_SIZE + (int) ref;
+        byte[] bytes = new byte[buffer.getInt(pos)];
+        // absolute bulk reads need a private position
+        ByteBuffer view = buffer.duplicate();
+        view.position(pos + 4);
+        view.get(bytes);
+        return new String(bytes, UTF8);
+    }
+
+    /**
+     * Returns the index of the given id in the given table, -1 if not contained
+     */
+    private int find(int table, int id) {
+        int offset = tableOffsets[table];
+        int low = 0;
+        int high = counts[table] - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midId = buffer.getInt(offset + 4 * mid);
+            if (midId < id) {
+                low = mid + 1;
+            }
+            else if (midId > id) {
+                high = mid - 1;
+            }
+            else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+}
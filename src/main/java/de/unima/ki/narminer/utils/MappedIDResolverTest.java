@@ -0,0 +1,62 @@
+package de.unima.ki.narminer.utils;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+
+import static org.junit.Assert.*;
+
+/**
+ * Dumps an in-memory H2 database in MySQL mode and compares the dictionary to the database
+ */
+public class MappedIDResolverTest {
+    @Test
+    public void testMatchesDatabase() throws Exception {
+        String url = "jdbc:h2:mem:dictionary;MODE=MySQL;DB_CLOSE_DELAY=-1";
+        Connection conn = DriverManager.getConnection(url);
+        File file = File.createTempFile("ids", ".dict");
+        try {
+            Statement stmt = conn.createStatement();
+            for (String table : IDDictionary.TABLES) {
+                stmt.execute("CREATE TABLE `" + table + "` (id INT PRIMARY KEY, `name` VARCHAR(255), `uri` VARCHAR(255))");
+            }
+            stmt.close();
+
+            // sparse ids, missing values and non-ASCII names
+            for (int t = 0; t < IDDictionary.TABLES.length; t++) {
+                PreparedStatement insert = conn.prepareStatement(
+                    "INSERT INTO `" + IDDictionary.TABLES[t] + "` VALUES (?, ?, ?)");
+                for (int id = -50; id < 3000 * (t + 1); id += 3) {
+                    insert.setInt(1, id);
+                    insert.setString(2, id % 10 == 0 ? null : "näme" + t + "_" + id);
+                    insert.setString(3, id % 7 == 0 ? null : "http://example.org/" + t + "/" + id);
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+                insert.close();
+            }
+
+            IDDictionary.write(conn, file);
+            MappedIDResolver resolver = new MappedIDResolver(file);
+            IDLookup lookup = new IDLookup(url);
+
+            for (int id = -60; id < 9100; id++) {
+                assertEquals(lookup.lookupClassName(id), resolver.resolve(id));
+                assertEquals(lookup.lookupClassName(id), resolver.lookupClassName(id));
+                assertEquals(lookup.lookupClassURI(id), resolver.lookupClassURI(id));
+                assertEquals(lookup.lookupPropertyName(id), resolver.lookupPropertyName(id));
+                assertEquals(lookup.lookupPropertyURI(id), resolver.lookupPropertyURI(id));
+                assertEquals(lookup.lookupIndividualName(id), resolver.lookupIndividualName(id));
+                assertEquals(lookup.lookupIndividualURI(id), resolver.lookupIndividualURI(id));
+            }
+        }
+        finally {
+            conn.close();
+            file.delete();
+        }
+    }
+}
@@ -1,21 +1,69 @@
 package de.unima.ki.narminer.utils;
 
 import java.io.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
 
 /**
  * Translator which is used to determine the name for given ids
+ * <p/>
+ * Rule files are translated by a pipeline: the calling thread reads chunks of lines, a pool of workers translates the
+ * chunks and a writer thread writes the translated chunks in input order. Names are kept in a cache shared by all
+ * workers, every worker looks up the ids of its chunk missing from the cache with a single
+ * {@link IDResolver#prefetch(java.util.Collection)} call before translating the chunk.
  */
 public class NaiveRulesTranslator {
-    private final static Pattern idPattern = Pattern.compile("^[0-9]+$");
+    /**
+     * Default number of lines translated by a single task
+     */
+    static final int DEFAULT_CHUNK_LINES = 8192;
+
+    private static final String NEGATION = "￢";
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator");
 
-    private IDResolver resolver;
-    private int summand;
+    private final IDResolver resolver;
+    private final int summand;
+    private final int parallelism;
+    private final int chunkLines;
+    private final ConcurrentHashMap<Integer, String> names = new ConcurrentHashMap<Integer, String>();
 
+    /**
+     * Creates a translator using a single worker thread
+     *
+     * @param resolver resolver for the names of the ids
+     * @param summand  offset added to the ids of negated items
+     */
     public NaiveRulesTranslator(IDResolver resolver, int summand) {
+        this(resolver, summand, 1);
+    }
+
+    /**
+     * Creates a translator using the given number of worker threads
+     *
+     * @param resolver    resolver for the names of the ids
+     * @param summand     offset added to the ids of negated items
+     * @param parallelism number of worker threads, 0 for one thread per available processor
+     */
+    public NaiveRulesTranslator(IDResolver resolver, int summand, int parallelism) {
+        this(resolver, summand, parallelism, DEFAULT_CHUNK_LINES);
+    }
+
+    NaiveRulesTranslator(IDResolver resolver, int summand, int parallelism, int chunkLines) {
+        if (parallelism < 0) {
+            throw new IllegalArgumentException("Parallelism must not be negative: " + parallelism);
+        }
         this.resolver = resolver;
         this.summand = summand;
+        this.parallelism = parallelism == 0 ? Runtime.getRuntime().availableProcessors() : parallelism;
+        this.chunkLines = chunkLines;
     }
 
     /**
@@ -25,58 +73,247 @@ public class NaiveRulesTranslator {
      * @return name for given integer ID possibly containing negation symbol
      */
     public String getName(int id) {
-        StringBuilder sb = new StringBuilder();
         if (id >= summand) {
-            id -= summand;
-            sb.append("￢");
+            return NEGATION + lookup(id - summand);
         }
-        sb.append(resolver.resolve(id));
+        return lookup(id);
+    }
 
-        return sb.toString();
+    private String lookup(int id) {
+        String name = names.get(id);
+        if (name == null) {
+            name = String.valueOf(resolver.resolve(id));
+            names.putIfAbsent(id, name);
+        }
+        return name;
     }
 
     /**
-     * Translates a whole rule into the more readable variant
+     * Translates a whole rule into the more readable variant. Tokens are separated by single spaces, tokens consisting
+     * of decimal digits only are replaced by their names and trailing spaces are removed.
      *
      * @param rule rule string to translate
      */
     public String translateRule(String rule) {
-        String[] ruleElements = rule.split(" ");
+        StringBuilder sb = new StringBuilder(rule.length() * 4);
+        appendTranslation(sb, rule);
+        return sb.toString();
+    }
 
-        StringBuilder sb = new StringBuilder();
+    private void appendTranslation(StringBuilder sb, String rule) {
+        int end = getEnd(rule);
+        int start = 0;
+        while (start <= end) {
+            int tokenEnd = rule.indexOf(' ', start);
+            if (tokenEnd < 0 || tokenEnd > end) {
+                tokenEnd = end;
+            }
+            if (start > 0) {
+                sb.append(' ');
+            }
+            if (isNumber(rule, start, tokenEnd)) {
+                sb.append(getName(parse(rule, start, tokenEnd)));
+            }
+            else {
+                sb.append(rule, start, tokenEnd);
+            }
+            start = tokenEnd + 1;
+        }
+    }
 
-        for (int i = 0; i < ruleElements.length; i++) {
-            if (i != 0) {
-                sb.append(" ");
+    /**
+     * Loads the names of all ids of the given lines missing from the cache at once
+     */
+    private void warmCache(List<String> lines) {
+        Set<Integer> missing = new TreeSet<Integer>();
+        for (String rule : lines) {
+            int end = getEnd(rule);
+            int start = 0;
+            while (start <= end) {
+                int tokenEnd = rule.indexOf(' ', start);
+                if (tokenEnd < 0 || tokenEnd > end) {
+                    tokenEnd = end;
+                }
+                if (isNumber(rule, start, tokenEnd)) {
+                    int id = parse(rule, start, tokenEnd);
+                    if (id >= summand) {
+                        id -= summand;
+                    }
+                    if (!names.containsKey(id)) {
+                        missing.add(id);
+                    }
+                }
+                start = tokenEnd + 1;
             }
-            String s = ruleElements[i];
+        }
 
-            Matcher m = idPattern.matcher(s);
-            if (!m.matches()) {
-                sb.append(s);
-                continue;
+        if (!missing.isEmpty()) {
+            resolver.prefetch(missing);
+            for (int id : missing) {
+                lookup(id);
             }
+        }
+    }
 
-            sb.append(getName(Integer.parseInt(s)));
+    /**
+     * Returns the end of the rule without trailing spaces, which are dropped like by String.split
+     */
+    private static int getEnd(String rule) {
+        int end = rule.length();
+        while (end > 0 && rule.charAt(end - 1) == ' ') {
+            end--;
         }
+        return end;
+    }
 
-        return sb.toString();
+    private static boolean isNumber(String s, int from, int to) {
+        if (from == to) {
+            return false;
+        }
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int parse(String s, int from, int to) {
+        if (to - from > 9) {
+            // may overflow
+            return Integer.parseInt(s.substring(from, to));
+        }
+        int res = 0;
+        for (int i = from; i < to; i++) {
+            res = 10 * res + (s.charAt(i) - '0');
+        }
+        return res;
     }
 
     /**
      * Translates a given rule file and writes the result into the given stream
      */
     public void translateRuleFile(InputStream inputStream, OutputStream outputStream) throws IOException {
-        BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream));
-        BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(outputStream));
+        BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream), 1 << 16);
+        BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(outputStream), 1 << 16);
 
-        String line;
-
-        while ((line = reader.readLine()) != null) {
-            writer.write(translateRule(line));
-            writer.newLine();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        // enough chunks in flight to keep all workers busy while the writer waits for the oldest one
+        OrderedWriter orderedWriter = new OrderedWriter(writer, 2 * parallelism + 2);
+        Thread writerThread = new Thread(orderedWriter, "rule-translation-writer");
+        writerThread.start();
+        try {
+            List<String> chunk = new ArrayList<String>(chunkLines);
+            String line;
+            while ((line = reader.readLine()) != null && orderedWriter.error == null) {
+                chunk.add(line);
+                if (chunk.size() == chunkLines) {
+                    orderedWriter.put(pool.submit(new TranslationTask(chunk)));
+                    chunk = new ArrayList<String>(chunkLines);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                orderedWriter.put(pool.submit(new TranslationTask(chunk)));
+            }
+        }
+        finally {
+            orderedWriter.put(OrderedWriter.END);
+            try {
+                writerThread.join();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the writer");
+            }
+            finally {
+                pool.shutdown();
+            }
         }
 
+        if (orderedWriter.error instanceof IOException) {
+            throw (IOException) orderedWriter.error;
+        }
+        if (orderedWriter.error instanceof RuntimeException) {
+            throw (RuntimeException) orderedWriter.error;
+        }
+        if (orderedWriter.error != null) {
+            throw new IOException(orderedWriter.error);
+        }
         writer.flush();
     }
+
+    /**
+     * Translates a chunk of lines into a single string containing the translated lines
+     */
+    private class TranslationTask extends RecursiveTask<String> {
+        private final List<String> lines;
+
+        TranslationTask(List<String> lines) {
+            this.lines = lines;
+        }
+
+        @Override
+        protected String compute() {
+            warmCache(lines);
+            StringBuilder sb = new StringBuilder();
+            for (String line : lines) {
+                appendTranslation(sb, line);
+                sb.append(LINE_SEPARATOR);
+            }
+            return sb.toString();
+        }
+    }
+
+    /**
+     * Writes the results of the translation tasks in the order they have been submitted. After the first error, the
+     * remaining tasks are discarded so that the reading thread never blocks on a full queue.
+     */
+    private static class OrderedWriter implements Runnable {
+        static final ForkJoinTask<String> END = ForkJoinTask.adapt(new Runnable() {
+            @Override
+            public void run() {
+            }
+        }, (String) null);
+
+        private final Writer writer;
+        private final BlockingQueue<ForkJoinTask<String>> queue;
+        volatile Throwable error;
+
+        OrderedWriter(Writer writer, int capacity) {
+            this.writer = writer;
+            this.queue = new ArrayBlockingQueue<ForkJoinTask<String>>(capacity);
+        }
+
+        void put(ForkJoinTask<String> task) throws InterruptedIOException {
+            try {
+                queue.put(task);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while queueing translated rules");
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                ForkJoinTask<String> task;
+                while ((task = queue.take()) != END) {
+                    if (error != null) {
+                        continue;
+                    }
+                    try {
+                        writer.write(task.join());
+                    }
+                    catch (Throwable t) {
+                        error = t;
+                    }
+                }
+            }
+            catch (InterruptedException e) {
+                error = e;
+            }
+        }
+    }
 }
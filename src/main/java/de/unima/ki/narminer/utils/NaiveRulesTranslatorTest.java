@@ -0,0 +1,95 @@
+package de.unima.ki.narminer.utils;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Collection;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class NaiveRulesTranslatorTest {
+    @Test
+    public void testMatchesLineByLineTranslation() throws Exception {
+        Random random = new Random(21);
+        String[] words = {"==>", "(0.75,", "0.1)", "", "x1", "12a", "-3", "007"};
+        StringBuilder input = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            StringBuilder line = new StringBuilder();
+            int len = random.nextInt(8);
+            for (int j = 0; j < len; j++) {
+                if (j > 0) {
+                    line.append(' ');
+                }
+                if (random.nextBoolean()) {
+                    line.append(random.nextInt(random.nextInt(10) == 0 ? 2000 : 200));
+                }
+                else {
+                    line.append(words[random.nextInt(words.length)]);
+                }
+            }
+            if (random.nextInt(20) == 0) {
+                line.append("  ");
+            }
+            input.append(line).append(random.nextInt(10) == 0 ? "\r\n" : "\n");
+            expected.append(translate(line.toString())).append(System.getProperty("line.separator"));
+        }
+
+        for (int parallelism : new int[]{1, 4}) {
+            CountingResolver resolver = new CountingResolver();
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            new NaiveRulesTranslator(resolver, 1000, parallelism, 100).translateRuleFile(
+                new ByteArrayInputStream(input.toString().getBytes()), out);
+
+            // both use the default charset which may not be able to encode the negation symbol
+            assertEquals(new String(expected.toString().getBytes()), new String(out.toByteArray()));
+            // ids are resolved once through the shared cache, unless several workers miss them at the same time
+            for (AtomicInteger count : resolver.counts.values()) {
+                assertTrue(count.get() <= parallelism);
+            }
+            assertTrue(resolver.prefetches.get() > 0);
+        }
+    }
+
+    /**
+     * Reference translation of a single line
+     */
+    private static String translate(String rule) {
+        StringBuilder sb = new StringBuilder();
+        String[] elements = rule.split(" ");
+        for (int i = 0; i < elements.length; i++) {
+            if (i != 0) {
+                sb.append(" ");
+            }
+            if (elements[i].matches("^[0-9]+$")) {
+                int id = Integer.parseInt(elements[i]);
+                sb.append(id >= 1000 ? "￢n" + (id - 1000) : "n" + id);
+            }
+            else {
+                sb.append(elements[i]);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static class CountingResolver extends IDResolver {
+        final ConcurrentHashMap<Integer, AtomicInteger> counts = new ConcurrentHashMap<Integer, AtomicInteger>();
+        final AtomicInteger prefetches = new AtomicInteger();
+
+        @Override
+        public String resolve(int id) {
+            counts.putIfAbsent(id, new AtomicInteger());
+            counts.get(id).incrementAndGet();
+            return "n" + id;
+        }
+
+        @Override
+        public void prefetch(Collection<Integer> ids) {
+            prefetches.incrementAndGet();
+        }
+    }
+}
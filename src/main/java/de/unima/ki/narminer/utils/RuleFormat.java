@@ -0,0 +1,47 @@
+package de.unima.ki.narminer.utils;
+
+import java.io.BufferedWriter;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+
+/**
+ * Output formats of association rules
+ */
+public enum RuleFormat {
+    /**
+     * Human-readable text as written by {@link RuleWriter}, encoded in the default charset
+     */
+    TEXT {
+        @Override
+        public RuleOutput createOutput(OutputStream out, IDResolver resolver) {
+            return new RuleWriter(new BufferedWriter(new OutputStreamWriter(out), 1 << 16), resolver);
+        }
+    },
+    /**
+     * One JSON object per rule as written by {@link JsonRuleWriter}
+     */
+    JSONL {
+        @Override
+        public RuleOutput createOutput(OutputStream out, IDResolver resolver) {
+            return new JsonRuleWriter(out, resolver);
+        }
+    },
+    /**
+     * Binary records as written by {@link BinaryRuleWriter}, item names are not included
+     */
+    BINARY {
+        @Override
+        public RuleOutput createOutput(OutputStream out, IDResolver resolver) {
+            return new BinaryRuleWriter(out);
+        }
+    };
+
+    /**
+     * Creates a sink writing rules in this format to the given stream, which is closed together with the sink
+     *
+     * @param out      stream to write rules to
+     * @param resolver resolver used for converting item ids to names
+     * @return sink writing rules in this format
+     */
+    public abstract RuleOutput createOutput(OutputStream out, IDResolver resolver);
+}
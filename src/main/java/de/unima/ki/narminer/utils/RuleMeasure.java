@@ -0,0 +1,87 @@
+package de.unima.ki.narminer.utils;
+
+import java.util.Comparator;
+
+/**
+ * Measures by which association rules can be ranked
+ */
+public enum RuleMeasure {
+    /**
+     * Probability ratio PR(Y|X) of the rule
+     */
+    CONFIDENCE {
+        @Override
+        public double getValue(AssociationRule rule) {
+            return rule.getConfidence();
+        }
+    },
+    /**
+     * Interest |supp(X ∪ Y) - supp(X) supp(Y)| of the rule
+     */
+    INTEREST {
+        @Override
+        public double getValue(AssociationRule rule) {
+            return rule.getInterest();
+        }
+    },
+    /**
+     * Support of the rule
+     */
+    SUPPORT {
+        @Override
+        public double getValue(AssociationRule rule) {
+            return rule.getSupport();
+        }
+    };
+
+    /**
+     * Returns the value of this measure for the given rule
+     *
+     * @param rule rule to return value for
+     * @return value of the measure
+     */
+    public abstract double getValue(AssociationRule rule);
+
+    /**
+     * Returns an order ranking rules by descending values of this measure. Ties are broken by the other measures in
+     * descending order, then by antecedent and consequent in lexicographic order of their items and finally by the
+     * negation flags, so the ranking only depends on the rules and not on the order they have been found in.
+     *
+     * @return total order of rules, best rules first
+     */
+    public Comparator<AssociationRule> ranking() {
+        final RuleMeasure[] measures = values();
+        return new Comparator<AssociationRule>() {
+            @Override
+            public int compare(AssociationRule o1, AssociationRule o2) {
+                int res = Double.compare(getValue(o2), getValue(o1));
+                for (int i = 0; res == 0 && i < measures.length; i++) {
+                    res = Double.compare(measures[i].getValue(o2), measures[i].getValue(o1));
+                }
+                if (res == 0) {
+                    res = compareItems(o1.getAntecedent(), o2.getAntecedent());
+                }
+                if (res == 0) {
+                    res = compareItems(o1.getConsequent(), o2.getConsequent());
+                }
+                if (res == 0) {
+                    res = Boolean.compare(o1.isAntecedentNegated(), o2.isAntecedentNegated());
+                }
+                if (res == 0) {
+                    res = Boolean.compare(o1.isConsequentNegated(), o2.isConsequentNegated());
+                }
+                return res;
+            }
+        };
+    }
+
+    private static int compareItems(Itemset s1, Itemset s2) {
+        int len = Math.min(s1.size(), s2.size());
+        for (int i = 0; i < len; i++) {
+            if (s1.get(i) != s2.get(i)) {
+                return s1.get(i) < s2.get(i) ? -1 : 1;
+            }
+        }
+        return s1.size() - s2.size();
+    }
+}
@@ -0,0 +1,13 @@
+package de.unima.ki.narminer.utils;
+
+import java.io.Closeable;
+import java.io.Flushable;
+
+/**
+ * Rule sink writing the received rules in some output format. Closing the sink completes the output and closes the
+ * underlying stream.
+ *
+ * @see RuleFormat
+ */
+public interface RuleOutput extends RuleSink, Flushable, Closeable {
+}
@@ -0,0 +1,26 @@
+package de.unima.ki.narminer.utils;
+
+import java.io.IOException;
+
+/**
+ * Receiver of the association rules found by a miner. Rules are passed as soon as they have been found and the miner
+ * waits for every call to return, so a slow sink throttles the miner instead of rules accumulating in memory. Every
+ * rule is passed exactly once, all positive rules are passed before the first negative rule.
+ */
+public interface RuleSink {
+    /**
+     * Receives a positive association rule
+     *
+     * @param rule rule found by the miner
+     * @throws IOException if the rule cannot be processed, aborting the mining
+     */
+    void addPositiveRule(AssociationRule rule) throws IOException;
+
+    /**
+     * Receives a negative association rule
+     *
+     * @param rule rule found by the miner
+     * @throws IOException if the rule cannot be processed, aborting the mining
+     */
+    void addNegativeRule(AssociationRule rule) throws IOException;
+}
@@ -0,0 +1,295 @@
+package de.unima.ki.narminer.utils;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Set of association rules stored column-wise in primitive arrays. Antecedents and consequents are interned, so every
+ * distinct itemset is kept once and a rule only consists of the ids of its two itemsets, its negation flags and its
+ * measures. Rules are deduplicated by open-addressing hash tables over these ids instead of hashing the itemsets of
+ * every rule.
+ * <p/>
+ * Rules are kept in insertion order. {@link #get(int)} and the iterator return new {@link AssociationRule} views of
+ * the stored rules, changing a view does not change the store. Like for {@link java.util.HashSet}, adding a rule equal
+ * to a contained one keeps the contained rule including its measures. Rules cannot be removed and the store is not
+ * thread-safe.
+ */
+public class RuleStore extends AbstractSet<AssociationRule> {
+    private static final int NEGATE_ANTECEDENT = 1;
+    private static final int NEGATE_CONSEQUENT = 2;
+    private static final int INITIAL_CAPACITY = 16;
+
+    // interned itemsets and the hash table of their ids + 1, 0 marks free slots
+    private Itemset[] itemsets = new Itemset[INITIAL_CAPACITY];
+    private int itemsetCount;
+    private int[] itemsetTable = new int[2 * INITIAL_CAPACITY];
+
+    // rule columns and the hash table of the rule indexes + 1
+    private int[] antecedents = new int[INITIAL_CAPACITY];
+    private int[] consequents = new int[INITIAL_CAPACITY];
+    private byte[] flags = new byte[INITIAL_CAPACITY];
+    private double[] supports = new double[INITIAL_CAPACITY];
+    private double[] confidences = new double[INITIAL_CAPACITY];
+    private double[] interests = new double[INITIAL_CAPACITY];
+    private int size;
+    private int[] ruleTable = new int[2 * INITIAL_CAPACITY];
+
+    @Override
+    public boolean add(AssociationRule rule) {
+        int antecedent = intern(rule.getAntecedent());
+        int consequent = intern(rule.getConsequent());
+        int flag = getFlags(rule);
+
+        int mask = ruleTable.length - 1;
+        int slot = hash(antecedent, consequent, flag) & mask;
+        while (ruleTable[slot] != 0) {
+            int index = ruleTable[slot] - 1;
+            if (antecedents[index] == antecedent && consequents[index] == consequent && flags[index] == flag) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        if (size == antecedents.length) {
+            int capacity = grow(size);
+            antecedents = Arrays.copyOf(antecedents, capacity);
+            consequents = Arrays.copyOf(consequents, capacity);
+            flags = Arrays.copyOf(flags, capacity);
+            supports = Arrays.copyOf(supports, capacity);
+            confidences = Arrays.copyOf(confidences, capacity);
+            interests = Arrays.copyOf(interests, capacity);
+        }
+        antecedents[size] = antecedent;
+        consequents[size] = consequent;
+        flags[size] = (byte) flag;
+        supports[size] = rule.getSupport();
+        confidences[size] = rule.getConfidence();
+        interests[size] = rule.getInterest();
+        ruleTable[slot] = ++size;
+
+        if (2 * size > ruleTable.length) {
+            rehashRules();
+        }
+        return true;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof AssociationRule && indexOf((AssociationRule) o) >= 0;
+    }
+
+    /**
+     * Returns the index of the given rule in this store
+     *
+     * @param rule rule to search for
+     * @return index of the rule or -1 if the rule is not contained in this store
+     */
+    public int indexOf(AssociationRule rule) {
+        int antecedent = find(rule.getAntecedent());
+        int consequent = find(rule.getConsequent());
+        if (antecedent < 0 || consequent < 0) {
+            return -1;
+        }
+        int flag = getFlags(rule);
+
+        int mask = ruleTable.length - 1;
+        int slot = hash(antecedent, consequent, flag) & mask;
+        while (ruleTable[slot] != 0) {
+            int index = ruleTable[slot] - 1;
+            if (antecedents[index] == antecedent && consequents[index] == consequent && flags[index] == flag) {
+                return index;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns a view of the rule at the given index
+     *
+     * @param index index of the rule in insertion order
+     * @return new association rule equal to the stored one
+     */
+    public AssociationRule get(int index) {
+        checkIndex(index);
+        int flag = flags[index];
+        AssociationRule rule = new AssociationRule(itemsets[antecedents[index]], (flag & NEGATE_ANTECEDENT) != 0,
+                                                   itemsets[consequents[index]], (flag & NEGATE_CONSEQUENT) != 0);
+        rule.setSupport(supports[index]);
+        rule.setConfidence(confidences[index]);
+        rule.setInterest(interests[index]);
+        return rule;
+    }
+
+    /**
+     * Returns the support of the rule at the given index without creating a view
+     *
+     * @param index index of the rule in insertion order
+     * @return support of the rule
+     */
+    public double getSupport(int index) {
+        checkIndex(index);
+        return supports[index];
+    }
+
+    /**
+     * Returns the confidence of the rule at the given index without creating a view
+     *
+     * @param index index of the rule in insertion order
+     * @return confidence of the rule
+     */
+    public double getConfidence(int index) {
+        checkIndex(index);
+        return confidences[index];
+    }
+
+    /**
+     * Returns the interest of the rule at the given index without creating a view
+     *
+     * @param index index of the rule in insertion order
+     * @return interest of the rule
+     */
+    public double getInterest(int index) {
+        checkIndex(index);
+        return interests[index];
+    }
+
+    /**
+     * Returns the number of distinct itemsets occurring as antecedent or consequent of the stored rules
+     *
+     * @return number of interned itemsets
+     */
+    public int getItemsetCount() {
+        return itemsetCount;
+    }
+
+    @Override
+    public Iterator<AssociationRule> iterator() {
+        return new Iterator<AssociationRule>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public AssociationRule next() {
+                if (next >= size) {
+                    throw new NoSuchElementException();
+                }
+                return get(next++);
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException("Rules cannot be removed from a rule store");
+            }
+        };
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+        }
+    }
+
+    /**
+     * Returns the id of the given itemset, adding it to the interned itemsets if not contained yet
+     */
+    private int intern(Itemset itemset) {
+        int mask = itemsetTable.length - 1;
+        int slot = mix(itemset.hashCode()) & mask;
+        while (itemsetTable[slot] != 0) {
+            int id = itemsetTable[slot] - 1;
+            if (itemsets[id].equals(itemset)) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        if (itemsetCount == itemsets.length) {
+            itemsets = Arrays.copyOf(itemsets, grow(itemsetCount));
+        }
+        int id = itemsetCount++;
+        itemsets[id] = itemset;
+        itemsetTable[slot] = id + 1;
+
+        if (2 * itemsetCount > itemsetTable.length) {
+            int[] table = new int[2 * itemsetTable.length];
+            mask = table.length - 1;
+            for (int i = 0; i < itemsetCount; i++) {
+                slot = mix(itemsets[i].hashCode()) & mask;
+                while (table[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                table[slot] = i + 1;
+            }
+            itemsetTable = table;
+        }
+        return id;
+    }
+
+    /**
+     * Returns the id of the given itemset or -1 if it is not interned
+     */
+    private int find(Itemset itemset) {
+        int mask = itemsetTable.length - 1;
+        int slot = mix(itemset.hashCode()) & mask;
+        while (itemsetTable[slot] != 0) {
+            int id = itemsetTable[slot] - 1;
+            if (itemsets[id].equals(itemset)) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void rehashRules() {
+        int[] table = new int[2 * ruleTable.length];
+        int mask = table.length - 1;
+        for (int i = 0; i < size; i++) {
+            int slot = hash(antecedents[i], consequents[i], flags[i]) & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = i + 1;
+        }
+        ruleTable = table;
+    }
+
+    private static int getFlags(AssociationRule rule) {
+        return (rule.isAntecedentNegated() ? NEGATE_ANTECEDENT : 0)
+               | (rule.isConsequentNegated() ? NEGATE_CONSEQUENT : 0);
+    }
+
+    /**
+     * Grows arrays by half of their size
+     */
+    private static int grow(int capacity) {
+        return capacity + Math.max(capacity >> 1, INITIAL_CAPACITY);
+    }
+
+    private static int hash(int antecedent, int consequent, int flag) {
+        return mix((antecedent * 31 + consequent) * 4 + flag);
+    }
+
+    /**
+     * Spreads the bits of a hash code, as linear probing needs well distributed low bits
+     */
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,53 @@
+package de.unima.ki.narminer.utils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class RuleStoreTest {
+    @Test
+    public void testMatchesHashSet() {
+        Random random = new Random(24);
+        RuleStore store = new RuleStore();
+        // first occurrence of every rule, the store keeps its measures like a HashSet
+        Map<AssociationRule, AssociationRule> expected = new LinkedHashMap<AssociationRule, AssociationRule>();
+        for (int i = 0; i < 20000; i++) {
+            AssociationRule rule = TestData.createRule(random, 2, 12);
+            boolean added = !expected.containsKey(rule);
+            if (added) {
+                expected.put(rule, rule);
+            }
+            assertEquals(added, store.add(rule));
+        }
+
+        assertEquals(expected.size(), store.size());
+        assertEquals(new HashSet<AssociationRule>(expected.keySet()), store);
+        assertEquals(store, new HashSet<AssociationRule>(expected.keySet()));
+        assertTrue(store.getItemsetCount() < 2 * store.size());
+
+        List<AssociationRule> rules = new ArrayList<AssociationRule>(expected.values());
+        int index = 0;
+        for (AssociationRule rule : store) {
+            AssociationRule original = rules.get(index);
+            assertEquals(original, rule);
+            assertEquals(index, store.indexOf(original));
+            assertEquals(original.getSupport(), rule.getSupport(), 0);
+            assertEquals(original.getConfidence(), store.getConfidence(index), 0);
+            assertEquals(original.getInterest(), store.get(index).getInterest(), 0);
+            index++;
+        }
+
+        for (int i = 0; i < 1000; i++) {
+            AssociationRule rule = TestData.createRule(random, 2, 12);
+            assertEquals(expected.containsKey(rule), store.contains(rule));
+        }
+        assertFalse(store.contains(new AssociationRule(Itemset.of(1000), Itemset.of(1))));
+    }
+}
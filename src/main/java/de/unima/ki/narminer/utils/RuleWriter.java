@@ -0,0 +1,85 @@
+package de.unima.ki.narminer.utils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+
+/**
+ * Rule sink writing every rule as a line of text as soon as it is received. Positive rules are preceded by the line
+ * "Positive rules", negative rules by the line "Negative rules". Both headings are written even if no rules of the
+ * respective kind are received.
+ */
+public class RuleWriter implements RuleOutput {
+    private final BufferedWriter writer;
+    private final IDResolver resolver;
+    private boolean positiveStarted;
+    private boolean negativeStarted;
+
+    /**
+     * Creates a sink writing to the given writer, which is closed together with this sink. Rules reach the underlying
+     * stream whenever the buffer of the writer is full.
+     *
+     * @param writer   writer to write rules to
+     * @param resolver resolver used for converting item ids to names
+     */
+    public RuleWriter(BufferedWriter writer, IDResolver resolver) {
+        this.writer = writer;
+        this.resolver = resolver;
+    }
+
+    @Override
+    public synchronized void addPositiveRule(AssociationRule rule) throws IOException {
+        if (negativeStarted) {
+            throw new IllegalStateException("Positive rule received after negative rules");
+        }
+        startPositive();
+        writeRule(rule);
+    }
+
+    @Override
+    public synchronized void addNegativeRule(AssociationRule rule) throws IOException {
+        startNegative();
+        writeRule(rule);
+    }
+
+    @Override
+    public synchronized void flush() throws IOException {
+        writer.flush();
+    }
+
+    /**
+     * Writes missing headings and closes the underlying writer
+     *
+     * @throws IOException if the writer cannot be closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            startNegative();
+        }
+        finally {
+            writer.close();
+        }
+    }
+
+    private void startPositive() throws IOException {
+        if (!positiveStarted) {
+            writer.write("Positive rules");
+            writer.newLine();
+            positiveStarted = true;
+        }
+    }
+
+    private void startNegative() throws IOException {
+        if (!negativeStarted) {
+            startPositive();
+            writer.write("Negative rules");
+            writer.newLine();
+            negativeStarted = true;
+        }
+    }
+
+    private void writeRule(AssociationRule rule) throws IOException {
+        writer.write(rule.toString(resolver));
+        writer.newLine();
+    }
+}
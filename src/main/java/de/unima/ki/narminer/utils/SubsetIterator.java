@@ -7,7 +7,7 @@ import java.util.NoSuchElementException;
  * Iterator producing all possible subsets A and B with A disjoint-union B = itemset
  */
 public class SubsetIterator implements Iterator<Itemset[]>{
-    private Integer[] elemList;
+    private int[] elemList;
     private boolean[] partition;
     int numOfPossibilities;
     private int subsetCounter = 0;
@@ -15,8 +15,13 @@ public class SubsetIterator implements Iterator<Itemset[]>{
     private Itemset nextSetA;
     private Itemset nextSetB;
 
+    private final Itemset.Builder builderA;
+    private final Itemset.Builder builderB;
+
     public SubsetIterator(Itemset itemset) {
-        elemList = itemset.getContent().toArray(new Integer[itemset.size()]);
+        elemList = itemset.items;
+        builderA = new Itemset.Builder(elemList.length);
+        builderB = new Itemset.Builder(elemList.length);
 
         partition = new boolean[elemList.length - 1];
 
@@ -29,24 +34,26 @@ public class SubsetIterator implements Iterator<Itemset[]>{
     private void initNextItemsets() {
         nextSetA = nextSetB = null;
         while (subsetCounter < numOfPossibilities) {
-            nextSetA = new Itemset();
-            nextSetA.add(elemList[elemList.length - 1]);
-            nextSetB = new Itemset();
+            builderA.clear();
+            builderB.clear();
 
             boolean bHasContent = false;
             for (int j = 0; j < partition.length; j++) {
                 if (!partition[j]) {
-                    nextSetA.add(elemList[j]);
+                    builderA.add(elemList[j]);
                 }
                 else {
                     bHasContent = true;
-                    nextSetB.add(elemList[j]);
+                    builderB.add(elemList[j]);
                 }
             }
+            builderA.add(elemList[elemList.length - 1]);
 
             increment(partition);
             subsetCounter++;
             if (bHasContent) {
+                nextSetA = builderA.build();
+                nextSetB = builderB.build();
                 return;
             }
         }
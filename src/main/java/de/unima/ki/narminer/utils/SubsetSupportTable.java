@@ -0,0 +1,285 @@
+package de.unima.ki.narminer.utils;
+
+import java.util.Arrays;
+
+/**
+ * Support counts of the subsets of a single itemset, indexed by bitmask: bit i of a mask selects the i-th smallest item
+ * of the itemset. Counts are fetched from the transaction database on first access and kept for all further
+ * accesses, so evaluating all bipartitions of an itemset does not build or hash any subset more than once.
+ * <p/>
+ * Only the fetched counts are stored, in a small open-addressing hash table. Once a considerable part of the subsets
+ * of a small itemset has been fetched, the counts are moved to an array indexed by mask. A table answering only a few
+ * queries, like an interest test finding an interesting bipartition early, therefore stays small.
+ * <p/>
+ * Negated subsets are answered by inclusion-exclusion like {@link SupportEngine}, values are computed by the same
+ * arithmetic and are therefore identical to those of {@link SupportEngine} and {@link TransactionDatabase}. Tables are
+ * not thread-safe.
+ */
+public class SubsetSupportTable {
+    /**
+     * Largest itemset size supported, limited by the bits of a mask
+     */
+    public static final int MAX_SIZE = 63;
+
+    /**
+     * Largest itemset size whose counts are moved to an array indexed by mask
+     */
+    private static final int MAX_DENSE_SIZE = 16;
+
+    private final TransactionDatabase tdb;
+    private final Itemset itemset;
+    private final int n;
+
+    // fetched counts by mask until the dense array is used
+    private long[] keys;
+    private int[] values;
+    private int entries;
+    private int[] dense;
+
+    /**
+     * Returns if a table can be created for the given itemset
+     *
+     * @param itemset itemset to check
+     * @return true if the itemset does not contain more than {@link #MAX_SIZE} items
+     */
+    public static boolean isSupported(Itemset itemset) {
+        return itemset.size() <= MAX_SIZE;
+    }
+
+    /**
+     * Creates an empty table for the given itemset
+     *
+     * @param tdb     transaction database providing the support counts
+     * @param itemset itemset whose subsets are counted, containing at most {@link #MAX_SIZE} items
+     */
+    public SubsetSupportTable(TransactionDatabase tdb, Itemset itemset) {
+        if (!isSupported(itemset)) {
+            throw new IllegalArgumentException("Itemset too large for subset table: " + itemset.size());
+        }
+        this.tdb = tdb;
+        this.itemset = itemset;
+        this.n = tdb.getNumberOfTransactions();
+    }
+
+    /**
+     * Returns the itemset whose subsets are counted
+     *
+     * @return itemset of this table
+     */
+    public Itemset getItemset() {
+        return itemset;
+    }
+
+    /**
+     * Returns the mask selecting all items of the itemset
+     *
+     * @return mask of the full itemset
+     */
+    public long getFullMask() {
+        return (1L << itemset.size()) - 1;
+    }
+
+    /**
+     * Returns the subset selected by the given mask
+     *
+     * @param mask mask selecting items
+     * @return new itemset containing the selected items
+     */
+    public Itemset getSubset(long mask) {
+        int[] res = new int[Long.bitCount(mask)];
+        int pos = 0;
+        for (int i = 0; i < itemset.items.length; i++) {
+            if ((mask & (1L << i)) != 0) {
+                res[pos++] = itemset.items[i];
+            }
+        }
+        return new Itemset(res);
+    }
+
+    /**
+     * Returns the number of transactions containing all items selected by the given mask
+     *
+     * @param mask mask selecting items
+     * @return support count of the subset
+     */
+    public int getCount(long mask) {
+        if (mask == 0) {
+            return n;
+        }
+        if (dense != null) {
+            int count = dense[(int) mask];
+            if (count < 0) {
+                count = tdb.getSupportCount(getSubset(mask));
+                dense[(int) mask] = count;
+            }
+            return count;
+        }
+
+        if (keys == null) {
+            keys = new long[8];
+            values = new int[8];
+        }
+        int slot = find(keys, mask);
+        if (keys[slot] == mask) {
+            return values[slot];
+        }
+        int count = tdb.getSupportCount(getSubset(mask));
+        keys[slot] = mask;
+        values[slot] = count;
+        entries++;
+        if (itemset.size() <= MAX_DENSE_SIZE && entries > (1 << itemset.size()) >>> 3) {
+            toDense();
+        }
+        else if (2 * entries > keys.length) {
+            rehash();
+        }
+        return count;
+    }
+
+    /**
+     * Returns the slot of the given mask or the free slot to insert it at, free slots contain 0
+     */
+    private static int find(long[] keys, long mask) {
+        int bits = keys.length - 1;
+        long h = mask * 0x9E3779B97F4A7C15L;
+        int slot = (int) (h ^ (h >>> 32)) & bits;
+        while (keys[slot] != 0 && keys[slot] != mask) {
+            slot = (slot + 1) & bits;
+        }
+        return slot;
+    }
+
+    private void rehash() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[2 * oldKeys.length];
+        values = new int[2 * oldKeys.length];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                int slot = find(keys, oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void toDense() {
+        dense = new int[1 << itemset.size()];
+        Arrays.fill(dense, -1);
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) {
+                dense[(int) keys[i]] = values[i];
+            }
+        }
+        keys = null;
+        values = null;
+    }
+
+    /**
+     * Returns the number of transactions matching the possibly negated subset
+     *
+     * @param mask    mask selecting items
+     * @param negated flag if the subset is negated
+     * @return number of matching transactions
+     */
+    public int getCount(long mask, boolean negated) {
+        int count = getCount(mask);
+        return negated ? n - count : count;
+    }
+
+    /**
+     * Returns the number of transactions matching both possibly negated disjoint subsets
+     *
+     * @param mask1    mask selecting the first subset
+     * @param negated1 flag if the first subset is negated
+     * @param mask2    mask selecting the second subset
+     * @param negated2 flag if the second subset is negated
+     * @return number of transactions matching both subsets
+     */
+    public int getCount(long mask1, boolean negated1, long mask2, boolean negated2) {
+        int countUnion = getCount(mask1 | mask2);
+
+        if (!negated1 && !negated2) {
+            return countUnion;
+        }
+        if (negated1 && !negated2) {
+            return getCount(mask2) - countUnion;
+        }
+        if (!negated1) {
+            return getCount(mask1) - countUnion;
+        }
+        return n - getCount(mask1) - getCount(mask2) + countUnion;
+    }
+
+    /**
+     * Returns the support of the subset selected by the given mask
+     *
+     * @param mask mask selecting items
+     * @return support of the subset
+     */
+    public double getSupport(long mask) {
+        return (double) getCount(mask) / n;
+    }
+
+    /**
+     * Returns the support of the possibly negated subset
+     *
+     * @param mask    mask selecting items
+     * @param negated flag if the subset is negated
+     * @return support of the subset
+     */
+    public double getSupport(long mask, boolean negated) {
+        return (double) getCount(mask, negated) / n;
+    }
+
+    /**
+     * Returns the support of the conjunction of both possibly negated disjoint subsets
+     *
+     * @param mask1    mask selecting the first subset
+     * @param negated1 flag if the first subset is negated
+     * @param mask2    mask selecting the second subset
+     * @param negated2 flag if the second subset is negated
+     * @return support of the conjunction of both subsets
+     */
+    public double getSupport(long mask1, boolean negated1, long mask2, boolean negated2) {
+        return (double) getCount(mask1, negated1, mask2, negated2) / n;
+    }
+
+    /**
+     * Returns the interest value |supp(X ∪ Y) - supp(X) * supp(Y)| for the given disjoint subsets
+     *
+     * @param maskX mask selecting X
+     * @param maskY mask selecting Y
+     * @return interest value of X and Y
+     */
+    public double getInterest(long maskX, long maskY) {
+        return Math.abs(getSupport(maskX | maskY) - getSupport(maskX) * getSupport(maskY));
+    }
+
+    /**
+     * Returns the interest value |supp(A ∧ B) - supp(A) * supp(B)| for the given possibly negated disjoint subsets
+     *
+     * @param mask1    mask selecting the first subset
+     * @param negated1 flag if the first subset is negated
+     * @param mask2    mask selecting the second subset
+     * @param negated2 flag if the second subset is negated
+     * @return interest value for the given subsets
+     */
+    public double getInterest(long mask1, boolean negated1, long mask2, boolean negated2) {
+        return Math.abs(getSupport(mask1, negated1, mask2, negated2) -
+                        getSupport(mask1, negated1) * getSupport(mask2, negated2));
+    }
+
+    /**
+     * Returns the conditional support supp(Y|X) for the given possibly negated disjoint subsets
+     *
+     * @param maskY    mask selecting Y
+     * @param negatedY flag if Y is negated
+     * @param maskX    mask selecting X
+     * @param negatedX flag if X is negated
+     * @return conditional support of Y given X
+     */
+    public double getConditionalSupport(long maskY, boolean negatedY, long maskX, boolean negatedX) {
+        return getCount(maskY, negatedY, maskX, negatedX) / ((double) getCount(maskX, negatedX));
+    }
+}
@@ -0,0 +1,87 @@
+package de.unima.ki.narminer.utils;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.Assert.*;
+
+public class SubsetSupportTableTest {
+    @Test
+    public void testMatchesSupportEngine() throws Exception {
+        Random random = new Random(17);
+        StringBuilder sb = new StringBuilder();
+        for (int t = 0; t < 3000; t++) {
+            TreeSet<Integer> items = new TreeSet<Integer>();
+            int len = 1 + random.nextInt(6);
+            while (items.size() < len) {
+                items.add(random.nextInt(10));
+            }
+            for (int item : items) {
+                sb.append(item).append(' ');
+            }
+            sb.append('\n');
+        }
+        TransactionDatabase tdb = new TransactionDatabase(new ByteArrayInputStream(sb.toString().getBytes("UTF-8")));
+        SupportEngine engine = tdb.getSupportEngine();
+
+        Itemset itemset = new Itemset.Builder().add(1).add(3).add(4).add(7).build();
+        SubsetSupportTable table = new SubsetSupportTable(tdb, itemset);
+        long full = table.getFullMask();
+        assertEquals(15L, full);
+        assertEquals(itemset, table.getSubset(full));
+        assertEquals(tdb.getSupport(itemset), table.getSupport(full), 0);
+
+        for (long y = 1; y < full; y++) {
+            long x = full ^ y;
+            Itemset subX = table.getSubset(x);
+            Itemset subY = table.getSubset(y);
+            assertEquals(tdb.getSupportCount(subX), table.getCount(x));
+            assertEquals(tdb.getInterestValue(itemset, subX, subY), table.getInterest(x, y), 0);
+            for (int i = 0; i < 4; i++) {
+                boolean negX = (i & 1) != 0;
+                boolean negY = (i & 2) != 0;
+                assertEquals(engine.getSupport(subX, negX), table.getSupport(x, negX), 0);
+                assertEquals(engine.getSupport(itemset, subX, negX, subY, negY), table.getSupport(x, negX, y, negY), 0);
+                assertEquals(engine.getInterest(itemset, subX, negX, subY, negY),
+                             table.getInterest(x, negX, y, negY), 0);
+                assertEquals(engine.getConditionalSupport(itemset, subY, negY, subX, negX),
+                             table.getConditionalSupport(y, negY, x, negX), 0);
+            }
+        }
+    }
+
+    @Test
+    public void testLargeItemset() throws Exception {
+        Random random = new Random(23);
+        StringBuilder sb = new StringBuilder();
+        for (int t = 0; t < 500; t++) {
+            for (int item = 0; item < 50; item++) {
+                if (random.nextInt(10) != 0) {
+                    sb.append(item).append(' ');
+                }
+            }
+            sb.append('\n');
+        }
+        TransactionDatabase tdb = new TransactionDatabase(new ByteArrayInputStream(sb.toString().getBytes("UTF-8")));
+
+        Itemset.Builder builder = new Itemset.Builder();
+        for (int item = 0; item < 40; item++) {
+            builder.add(item);
+        }
+        Itemset itemset = builder.build();
+        SubsetSupportTable table = new SubsetSupportTable(tdb, itemset);
+        long full = table.getFullMask();
+        assertEquals((1L << 40) - 1, full);
+        assertEquals(tdb.getSupportCount(itemset), table.getCount(full));
+        for (int i = 0; i < 200; i++) {
+            long mask = random.nextLong() & full;
+            assertEquals(tdb.getSupportCount(table.getSubset(mask)), table.getCount(mask));
+            // looked up again from the table
+            assertEquals(tdb.getSupportCount(table.getSubset(mask)), table.getCount(mask));
+        }
+        assertEquals(tdb.getSupportCount(table.getSubset(1L << 39)), table.getCount(1L << 39));
+    }
+}
@@ -0,0 +1,291 @@
+package de.unima.ki.narminer.utils;
+
+import java.util.HashMap;
+
+/**
+ * Bounded cache for support counts of itemsets which may be used concurrently.
+ * <p/>
+ * The cache is split into lock-striped segments selected by the itemset hash. Each segment applies a segmented LRU
+ * policy: new entries enter a probation list and are promoted to a protected list on their first hit, entries are
+ * evicted from the probation list first. Low-order itemsets are looked up over and over again during level-wise
+ * mining, thus itemsets of at most {@link #PROTECTED_ORDER} items are admitted to the protected list directly and
+ * survive scans over many large candidates.
+ */
+public class SupportCache {
+    /**
+     * Itemsets up to this size are admitted directly to the protected list
+     */
+    static final int PROTECTED_ORDER = 2;
+
+    private static final int MAX_SEGMENTS = 64;
+
+    private final Segment[] segments;
+    private final int maxEntries;
+
+    /**
+     * Creates a cache holding at most the given number of entries
+     *
+     * @param maxEntries maximum number of cached counts, values less than 1 disable the limit
+     */
+    public SupportCache(int maxEntries) {
+        this.maxEntries = maxEntries < 1 ? Integer.MAX_VALUE : maxEntries;
+
+        int numSegments = 1;
+        while (numSegments < MAX_SEGMENTS && numSegments * 1024 < this.maxEntries) {
+            numSegments <<= 1;
+        }
+
+        segments = new Segment[numSegments];
+        int segmentCapacity = (int) Math.ceil((double) this.maxEntries / numSegments);
+        for (int i = 0; i < numSegments; i++) {
+            segments[i] = new Segment(segmentCapacity);
+        }
+    }
+
+    /**
+     * Returns the cached count for the given itemset
+     *
+     * @param itemset itemset to return count for
+     * @return cached count or -1 if the itemset is not cached
+     */
+    public int get(Itemset itemset) {
+        return segmentFor(itemset).get(itemset);
+    }
+
+    /**
+     * Stores the count for the given itemset possibly evicting other entries
+     *
+     * @param itemset itemset to store count for
+     * @param count   support count of itemset
+     */
+    public void put(Itemset itemset, int count) {
+        segmentFor(itemset).put(itemset, count);
+    }
+
+    /**
+     * Removes all entries from this cache. Statistics are kept.
+     */
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    /**
+     * Returns the maximum number of entries held by this cache
+     *
+     * @return maximum number of entries
+     */
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * Returns the number of entries currently held by this cache
+     *
+     * @return number of cached entries
+     */
+    public int size() {
+        int res = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                res += segment.map.size();
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Returns the number of lookups answered from this cache
+     *
+     * @return number of cache hits
+     */
+    public long getHitCount() {
+        long res = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                res += segment.hits;
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Returns the number of lookups which could not be answered from this cache
+     *
+     * @return number of cache misses
+     */
+    public long getMissCount() {
+        long res = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                res += segment.misses;
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Returns the number of entries evicted to stay within the entry budget
+     *
+     * @return number of evictions
+     */
+    public long getEvictionCount() {
+        long res = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                res += segment.evictions;
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Returns the ratio of lookups answered from this cache
+     *
+     * @return hit rate, 0 if there were no lookups yet
+     */
+    public double getHitRate() {
+        long hits = getHitCount();
+        long total = hits + getMissCount();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * Returns a string containing the most important statistics regarding this cache
+     *
+     * @return string containing the cache statistics
+     */
+    public String getStatistics() {
+        return "Entries: " + size() + "/" + maxEntries + ", Hits: " + getHitCount() + ", Misses: " + getMissCount() +
+               ", Evictions: " + getEvictionCount() + ", Hit rate: " + getHitRate();
+    }
+
+    private Segment segmentFor(Itemset itemset) {
+        int h = itemset.hashCode();
+        h ^= (h >>> 16);
+        return segments[h & (segments.length - 1)];
+    }
+
+    /**
+     * Cache entry linked into either the probation or the protected list of its segment
+     */
+    private static final class Node {
+        Itemset key;
+        int count;
+        boolean protectedEntry;
+        Node prev;
+        Node next;
+    }
+
+    /**
+     * Part of the cache guarded by its own lock
+     */
+    private static final class Segment {
+        private final HashMap<Itemset, Node> map = new HashMap<Itemset, Node>();
+        private final Node probation = sentinel();
+        private final Node protectedList = sentinel();
+        private final int capacity;
+        private final int protectedCapacity;
+        private int protectedSize;
+
+        long hits;
+        long misses;
+        long evictions;
+
+        Segment(int capacity) {
+            this.capacity = capacity;
+            this.protectedCapacity = Math.max(1, (int) (capacity * 0.8));
+        }
+
+        synchronized int get(Itemset key) {
+            Node node = map.get(key);
+            if (node == null) {
+                misses++;
+                return -1;
+            }
+            hits++;
+
+            unlink(node);
+            if (!node.protectedEntry) {
+                node.protectedEntry = true;
+                protectedSize++;
+            }
+            linkFirst(protectedList, node);
+            demoteOverflow();
+
+            return node.count;
+        }
+
+        synchronized void put(Itemset key, int count) {
+            Node node = map.get(key);
+            if (node != null) {
+                node.count = count;
+                return;
+            }
+
+            node = new Node();
+            node.key = key;
+            node.count = count;
+            map.put(key, node);
+
+            if (key.size() <= PROTECTED_ORDER) {
+                node.protectedEntry = true;
+                protectedSize++;
+                linkFirst(protectedList, node);
+                demoteOverflow();
+            }
+            else {
+                linkFirst(probation, node);
+            }
+
+            while (map.size() > capacity) {
+                Node victim = probation.prev != probation ? probation.prev : protectedList.prev;
+                unlink(victim);
+                if (victim.protectedEntry) {
+                    protectedSize--;
+                }
+                map.remove(victim.key);
+                evictions++;
+            }
+        }
+
+        synchronized void clear() {
+            map.clear();
+            probation.next = probation.prev = probation;
+            protectedList.next = protectedList.prev = protectedList;
+            protectedSize = 0;
+        }
+
+        /**
+         * Moves least recently used protected entries back to the probation list while the protected list is full
+         */
+        private void demoteOverflow() {
+            while (protectedSize > protectedCapacity) {
+                Node node = protectedList.prev;
+                unlink(node);
+                node.protectedEntry = false;
+                protectedSize--;
+                linkFirst(probation, node);
+            }
+        }
+
+        private static Node sentinel() {
+            Node node = new Node();
+            node.prev = node.next = node;
+            return node;
+        }
+
+        private static void unlink(Node node) {
+            node.prev.next = node.next;
+            node.next.prev = node.prev;
+        }
+
+        private static void linkFirst(Node list, Node node) {
+            node.next = list.next;
+            node.prev = list;
+            list.next.prev = node;
+            list.next = node;
+        }
+    }
+}
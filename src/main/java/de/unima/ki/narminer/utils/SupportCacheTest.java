@@ -0,0 +1,43 @@
+package de.unima.ki.narminer.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SupportCacheTest {
+    @Test
+    public void testBudgetAndStatistics() throws Exception {
+        SupportCache cache = new SupportCache(100);
+
+        assertEquals(-1, cache.get(Itemset.of(1, 2)));
+        cache.put(Itemset.of(1, 2), 7);
+        assertEquals(7, cache.get(Itemset.of(1, 2)));
+
+        for (int i = 0; i < 1000; i++) {
+            cache.put(Itemset.of(i, i + 1, i + 2), i);
+        }
+
+        assertTrue(cache.size() <= 100);
+        assertTrue(cache.getEvictionCount() >= 900);
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void testLowOrderItemsetsSurviveScans() throws Exception {
+        SupportCache cache = new SupportCache(1000);
+
+        for (int i = 0; i < 100; i++) {
+            cache.put(Itemset.of(i, i + 1), i);
+        }
+
+        // one-off lookups of large itemsets must not push out the pairs
+        for (int i = 0; i < 100000; i++) {
+            cache.put(Itemset.of(i, i + 1, i + 2, i + 3), i);
+        }
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, cache.get(Itemset.of(i, i + 1)));
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package de.unima.ki.narminer.utils;
+
+/**
+ * Answers support queries on possibly negated itemsets by inclusion-exclusion over positive support counts. A negated
+ * itemset ￢X matches all transactions not containing every item of X, thus
+ * <ul>
+ * <li>count(￢X) = n - count(X)</li>
+ * <li>count(￢X ∧ Y) = count(Y) - count(X ∪ Y)</li>
+ * <li>count(￢X ∧ ￢Y) = n - count(X) - count(Y) + count(X ∪ Y)</li>
+ * </ul>
+ * Positive counts are taken from the (cached) counts of the underlying transaction database, no transaction sets are
+ * materialized.
+ */
+public class SupportEngine {
+    private final TransactionDatabase tdb;
+
+    /**
+     * Creates a support engine working on the given transaction database
+     *
+     * @param tdb transaction database providing positive support counts
+     */
+    public SupportEngine(TransactionDatabase tdb) {
+        this.tdb = tdb;
+    }
+
+    /**
+     * Returns the number of transactions matching the given possibly negated itemset
+     *
+     * @param itemset itemset to count
+     * @param negated flag if itemset is negated
+     * @return number of matching transactions
+     */
+    public int getCount(Itemset itemset, boolean negated) {
+        int count = tdb.getSupportCount(itemset);
+        return negated ? tdb.getNumberOfTransactions() - count : count;
+    }
+
+    /**
+     * Returns the number of transactions matching both given possibly negated itemsets
+     *
+     * @param union    union of both itemsets
+     * @param itemset1 first itemset
+     * @param negated1 flag if first itemset is negated
+     * @param itemset2 second itemset
+     * @param negated2 flag if second itemset is negated
+     * @return number of transactions matching both itemsets
+     */
+    public int getCount(Itemset union, Itemset itemset1, boolean negated1, Itemset itemset2, boolean negated2) {
+        int countUnion = tdb.getSupportCount(union);
+
+        if (!negated1 && !negated2) {
+            return countUnion;
+        }
+        if (negated1 && !negated2) {
+            return tdb.getSupportCount(itemset2) - countUnion;
+        }
+        if (!negated1) {
+            return tdb.getSupportCount(itemset1) - countUnion;
+        }
+        return tdb.getNumberOfTransactions() - tdb.getSupportCount(itemset1) - tdb.getSupportCount(itemset2) +
+               countUnion;
+    }
+
+    /**
+     * Returns the support of the given possibly negated itemset
+     *
+     * @param itemset itemset to return support for
+     * @param negated flag if itemset is negated
+     * @return support of the itemset
+     */
+    public double getSupport(Itemset itemset, boolean negated) {
+        return (double) getCount(itemset, negated) / tdb.getNumberOfTransactions();
+    }
+
+    /**
+     * Returns the support of the conjunction of both given possibly negated itemsets
+     *
+     * @param union    union of both itemsets
+     * @param itemset1 first itemset
+     * @param negated1 flag if first itemset is negated
+     * @param itemset2 second itemset
+     * @param negated2 flag if second itemset is negated
+     * @return support of the conjunction of both itemsets
+     */
+    public double getSupport(Itemset union, Itemset itemset1, boolean negated1, Itemset itemset2, boolean negated2) {
+        return (double) getCount(union, itemset1, negated1, itemset2, negated2) / tdb.getNumberOfTransactions();
+    }
+
+    /**
+     * Returns the interest value |supp(A ∧ B) - supp(A) * supp(B)| for the given possibly negated itemsets
+     *
+     * @param union    union of both itemsets
+     * @param itemset1 first itemset
+     * @param negated1 flag if first itemset is negated
+     * @param itemset2 second itemset
+     * @param negated2 flag if second itemset is negated
+     * @return interest value for the given itemsets
+     */
+    public double getInterest(Itemset union, Itemset itemset1, boolean negated1, Itemset itemset2, boolean negated2) {
+        return Math.abs(getSupport(union, itemset1, negated1, itemset2, negated2) -
+                        getSupport(itemset1, negated1) * getSupport(itemset2, negated2));
+    }
+
+    /**
+     * Returns the conditional support supp(Y|X) for the given possibly negated itemsets
+     *
+     * @param union    union of both itemsets
+     * @param y        itemset y
+     * @param negatedY flag if y is negated
+     * @param x        itemset x
+     * @param negatedX flag if x is negated
+     * @return conditional support of y given x
+     */
+    public double getConditionalSupport(Itemset union, Itemset y, boolean negatedY, Itemset x, boolean negatedX) {
+        return getCount(union, y, negatedY, x, negatedX) / ((double) getCount(x, negatedX));
+    }
+}
@@ -0,0 +1,170 @@
+package de.unima.ki.narminer.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Random transactions, itemsets and rules shared by the tests
+ */
+public class TestData {
+    private TestData() {
+    }
+
+    /**
+     * Creates the items of a random transaction. A third of the items is drawn from the dense items [0, denseItems),
+     * the others from [0, items). Items are unsorted and may repeat.
+     *
+     * @param random     source of randomness
+     * @param maxLength  maximum number of items, at least one item is drawn
+     * @param denseItems number of dense items
+     * @param items      number of all items
+     * @return random items
+     */
+    public static int[] createItems(Random random, int maxLength, int denseItems, int items) {
+        int[] res = new int[1 + random.nextInt(maxLength)];
+        for (int i = 0; i < res.length; i++) {
+            res[i] = random.nextInt(3) == 0 ? random.nextInt(denseItems) : random.nextInt(items);
+        }
+        return res;
+    }
+
+    /**
+     * Creates random transactions in the text format, one transaction per line
+     *
+     * @see #createItems(Random, int, int, int)
+     */
+    public static String createTransactions(Random random, int count, int maxLength, int denseItems, int items) {
+        StringBuilder sb = new StringBuilder();
+        for (int t = 0; t < count; t++) {
+            appendItems(sb, createItems(random, maxLength, denseItems, items)).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Creates random transactions in the text format in which the items occur independently of each other. Every
+     * transaction contains exactly one of the items [0, 3), so that no transaction is empty, and each of the items
+     * [3, items) with probability denseProb if it is below denseItems and with probability sparseProb otherwise.
+     */
+    public static String createIndependentTransactions(Random random, int count, int items, int denseItems,
+                                                       double denseProb, double sparseProb) {
+        StringBuilder sb = new StringBuilder();
+        for (int t = 0; t < count; t++) {
+            sb.append(random.nextInt(3));
+            for (int item = 3; item < items; item++) {
+                if (random.nextDouble() < (item < denseItems ? denseProb : sparseProb)) {
+                    sb.append(' ').append(item);
+                }
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Appends the given items in the text format, each followed by a space
+     *
+     * @return the given builder
+     */
+    public static StringBuilder appendItems(StringBuilder sb, int[] items) {
+        for (int item : items) {
+            sb.append(item).append(' ');
+        }
+        return sb;
+    }
+
+    /**
+     * Reads a transaction database from transactions in the text format
+     */
+    public static TransactionDatabase createDatabase(String transactions) throws IOException {
+        return new TransactionDatabase(new ByteArrayInputStream(transactions.getBytes("UTF-8")));
+    }
+
+    /**
+     * Reads a transaction database over the given items from transactions in the text format
+     */
+    public static TransactionDatabase createDatabase(String transactions, TreeSet<Integer> allItems)
+            throws IOException {
+        return new TransactionDatabase(new ByteArrayInputStream(transactions.getBytes("UTF-8")), allItems);
+    }
+
+    /**
+     * Creates a random itemset
+     *
+     * @param random    source of randomness
+     * @param maxLength maximum number of drawn items, at least one item is drawn
+     * @param items     number of items to draw from
+     * @return random itemset
+     */
+    public static Itemset createItemset(Random random, int maxLength, int items) {
+        Itemset.Builder builder = new Itemset.Builder();
+        int len = 1 + random.nextInt(maxLength);
+        for (int i = 0; i < len; i++) {
+            builder.add(random.nextInt(items));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Creates a random rule with random negations and measures
+     *
+     * @see #createItemset(Random, int, int)
+     */
+    public static AssociationRule createRule(Random random, int maxLength, int items) {
+        AssociationRule rule = new AssociationRule(createItemset(random, maxLength, items), random.nextBoolean(),
+                                                   createItemset(random, maxLength, items), random.nextBoolean());
+        rule.setSupport(random.nextDouble());
+        rule.setConfidence(random.nextDouble());
+        rule.setInterest(random.nextDouble() - 0.5);
+        return rule;
+    }
+
+    /**
+     * Creates random rules with random negations and measures
+     *
+     * @see #createItemset(Random, int, int)
+     */
+    public static List<AssociationRule> createRules(Random random, int count, int maxLength, int items) {
+        List<AssociationRule> rules = new ArrayList<AssociationRule>();
+        for (int i = 0; i < count; i++) {
+            rules.add(createRule(random, maxLength, items));
+        }
+        return rules;
+    }
+
+    /**
+     * Asserts that both lists contain equal rules with equal measures in the same order
+     */
+    public static void assertRulesEqual(List<AssociationRule> expected, List<AssociationRule> actual) {
+        assertEquals(expected, actual);
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getSupport(), actual.get(i).getSupport(), 0);
+            assertEquals(expected.get(i).getConfidence(), actual.get(i).getConfidence(), 0);
+            assertEquals(expected.get(i).getInterest(), actual.get(i).getInterest(), 0);
+        }
+    }
+
+    /**
+     * Rule sink keeping all received rules in the order they have been received
+     */
+    public static class CollectingSink implements RuleSink {
+        public final List<AssociationRule> positive = new ArrayList<AssociationRule>();
+        public final List<AssociationRule> negative = new ArrayList<AssociationRule>();
+
+        @Override
+        public void addPositiveRule(AssociationRule rule) {
+            positive.add(rule);
+        }
+
+        @Override
+        public void addNegativeRule(AssociationRule rule) {
+            negative.add(rule);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package de.unima.ki.narminer.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Rule sink keeping only the k best positive and the k best negative rules with respect to a measure. Each kind of
+ * rules is kept in a bounded heap. As soon as a heap is full, its smallest value becomes the threshold a rule has to
+ * exceed for being kept, which miners use for skipping the computation of rules that cannot be kept anymore.
+ */
+public class TopKRuleSink implements RuleSink {
+    private final int k;
+    private final RuleMeasure measure;
+    private final Comparator<AssociationRule> order;
+
+    private final PriorityQueue<AssociationRule> positiveRules;
+    private final PriorityQueue<AssociationRule> negativeRules;
+
+    private volatile double positiveThreshold = Double.NEGATIVE_INFINITY;
+    private volatile double negativeThreshold = Double.NEGATIVE_INFINITY;
+
+    /**
+     * Creates a sink keeping the given number of rules of each kind
+     *
+     * @param k       maximum number of positive and of negative rules
+     * @param measure measure to rank rules by
+     */
+    public TopKRuleSink(int k, final RuleMeasure measure) {
+        if (k < 1) {
+            throw new IllegalArgumentException("Number of rules must be positive: " + k);
+        }
+        this.k = k;
+        this.measure = measure;
+        this.order = new Comparator<AssociationRule>() {
+            @Override
+            public int compare(AssociationRule o1, AssociationRule o2) {
+                return Double.compare(measure.getValue(o1), measure.getValue(o2));
+            }
+        };
+        this.positiveRules = new PriorityQueue<AssociationRule>(k + 1, order);
+        this.negativeRules = new PriorityQueue<AssociationRule>(k + 1, order);
+    }
+
+    /**
+     * Returns the measure rules are ranked by
+     *
+     * @return ranking measure
+     */
+    public RuleMeasure getMeasure() {
+        return measure;
+    }
+
+    /**
+     * Returns the value a positive rule has to exceed for being kept
+     *
+     * @return smallest value of the kept positive rules, negative infinity while less than k rules are kept
+     */
+    public double getPositiveThreshold() {
+        return positiveThreshold;
+    }
+
+    /**
+     * Returns the value a negative rule has to exceed for being kept
+     *
+     * @return smallest value of the kept negative rules, negative infinity while less than k rules are kept
+     */
+    public double getNegativeThreshold() {
+        return negativeThreshold;
+    }
+
+    @Override
+    public synchronized void addPositiveRule(AssociationRule rule) {
+        positiveThreshold = offer(positiveRules, rule);
+    }
+
+    @Override
+    public synchronized void addNegativeRule(AssociationRule rule) {
+        negativeThreshold = offer(negativeRules, rule);
+    }
+
+    /**
+     * Returns the kept positive rules in descending order of the measure
+     *
+     * @return best positive rules
+     */
+    public synchronized List<AssociationRule> getPositiveRules() {
+        return sorted(positiveRules);
+    }
+
+    /**
+     * Returns the kept negative rules in descending order of the measure
+     *
+     * @return best negative rules
+     */
+    public synchronized List<AssociationRule> getNegativeRules() {
+        return sorted(negativeRules);
+    }
+
+    /**
+     * Adds the rule to the heap if it is among the k best and returns the new threshold of the heap
+     */
+    private double offer(PriorityQueue<AssociationRule> heap, AssociationRule rule) {
+        if (heap.size() < k) {
+            heap.add(rule);
+        }
+        else if (measure.getValue(rule) > measure.getValue(heap.peek())) {
+            heap.poll();
+            heap.add(rule);
+        }
+        return heap.size() < k ? Double.NEGATIVE_INFINITY : measure.getValue(heap.peek());
+    }
+
+    private List<AssociationRule> sorted(PriorityQueue<AssociationRule> heap) {
+        List<AssociationRule> res = new ArrayList<AssociationRule>(heap);
+        Collections.sort(res, Collections.reverseOrder(order));
+        return res;
+    }
+}
@@ -17,4 +17,13 @@ public class Transaction extends Itemset {
     public Transaction(SortedSet<Integer> integers) {
         super(integers);
     }
+
+    /**
+     * Initializes the transaction using the given ascending, duplicate-free array of items
+     *
+     * @param sortedItems array to use internally
+     */
+    Transaction(int[] sortedItems) {
+        super(sortedItems);
+    }
 }
@@ -1,6 +1,5 @@
 package de.unima.ki.narminer.utils;
 
-import au.com.bytecode.opencsv.CSVWriter;
 import org.apache.log4j.Logger;
 
 import java.io.*;
@@ -12,10 +11,25 @@ import java.util.*;
 public class TransactionDatabase {
     public static final Logger log = Logger.getLogger(TransactionDatabase.class);
 
-    private LinkedList<Transaction> transactions;
-    private HashMap<Integer, ArrayList<Transaction>> itemLookupMap;
+    /**
+     * Number of support counts cached if no other cache is set
+     */
+    public static final int DEFAULT_CACHE_ENTRIES = 1 << 20;
+
+    private static final Comparator<CompressedBitmap> BITMAP_SIZE_ORDER = new Comparator<CompressedBitmap>() {
+        @Override
+        public int compare(CompressedBitmap o1, CompressedBitmap o2) {
+            int c1 = o1.cardinality();
+            int c2 = o2.cardinality();
+            return c1 < c2 ? -1 : (c1 == c2 ? 0 : 1);
+        }
+    };
+
+    private List<Transaction> transactions;
+    private HashMap<Integer, CompressedBitmap> itemIndex;
     private TreeSet<Integer> allItems;
-    private HashMap<Itemset, Double> supportMap;
+    private SupportCache supportCache;
+    private SupportEngine supportEngine;
 
     private TransactionDatabase inverted;
 
@@ -27,31 +41,29 @@ public class TransactionDatabase {
      * @throws java.io.IOException if an error occurs while reading the given input stream
      */
     public TransactionDatabase(InputStream stream, TreeSet<Integer> allItems) throws IOException {
-        this.itemLookupMap = new HashMap<Integer, ArrayList<Transaction>>();
+        this.itemIndex = new HashMap<Integer, CompressedBitmap>();
         this.allItems = allItems;
-        this.transactions = new LinkedList<Transaction>();
-        this.supportMap = new HashMap<Itemset, Double>();
+        this.transactions = new ArrayList<Transaction>();
+        this.supportCache = new SupportCache(DEFAULT_CACHE_ENTRIES);
+        this.supportEngine = new SupportEngine(this);
 
 
         BufferedReader reader = new BufferedReader(new InputStreamReader(stream));
 
+        Itemset.Builder builder = new Itemset.Builder();
         String line;
         while ((line = reader.readLine()) != null) {
-            Transaction t = new Transaction();
+            builder.clear();
             String[] elements = line.split("\\s");
             for (String e : elements) {
                 int val = Integer.valueOf(e);
 
-                if (!itemLookupMap.containsKey(val)) {
-                    itemLookupMap.put(val, new ArrayList<Transaction>());
-                }
-                itemLookupMap.get(val).add(t);
-
-                t.add(val);
+                builder.add(val);
             }
 
-            transactions.add(t);
+            addTransaction(builder.buildTransaction());
         }
+        trimIndex();
 
         log.info("Done loading transaction database (" + this.getStatistics() + ")");
     }
@@ -65,18 +77,20 @@ public class TransactionDatabase {
      * @throws java.io.IOException if an error occurs while reading the given InputStream
      */
     public TransactionDatabase(InputStream stream) throws IOException {
-        this.itemLookupMap = new HashMap<Integer, ArrayList<Transaction>>();
-        this.transactions = new LinkedList<Transaction>();
-        this.supportMap = new HashMap<Itemset, Double>();
+        this.itemIndex = new HashMap<Integer, CompressedBitmap>();
+        this.transactions = new ArrayList<Transaction>();
+        this.supportCache = new SupportCache(DEFAULT_CACHE_ENTRIES);
+        this.supportEngine = new SupportEngine(this);
 
         BufferedReader reader = new BufferedReader(new InputStreamReader(stream));
 
         int highestItem = 0;
         int lowestItem = Integer.MAX_VALUE;
 
+        Itemset.Builder builder = new Itemset.Builder();
         String line;
         while ((line = reader.readLine()) != null) {
-            Transaction t = new Transaction();
+            builder.clear();
             String[] elements = line.split("\\s+");
             for (String e : elements) {
                 int val = Integer.valueOf(e);
@@ -89,16 +103,12 @@ public class TransactionDatabase {
                     lowestItem = val;
                 }
 
-                if (!itemLookupMap.containsKey(val)) {
-                    itemLookupMap.put(val, new ArrayList<Transaction>());
-                }
-                itemLookupMap.get(val).add(t);
-
-                t.add(val);
+                builder.add(val);
             }
 
-            transactions.add(t);
+            addTransaction(builder.buildTransaction());
         }
+        trimIndex();
 
         allItems = new TreeSet<Integer>();
 
@@ -110,69 +120,79 @@ public class TransactionDatabase {
     }
 
     /**
-     * Internal constructor used for creating the inverted variant of the original database
+     * Constructs a database view on the given transactions without item index, used by views answering all index
+     * queries themselves
+     *
+     * @param transactions all transactions in database order, usually computed on access
+     * @param allItems     universe of items
+     */
+    TransactionDatabase(List<Transaction> transactions, TreeSet<Integer> allItems) {
+        this.transactions = transactions;
+        this.itemIndex = new HashMap<Integer, CompressedBitmap>();
+        this.allItems = allItems;
+        this.supportCache = new SupportCache(DEFAULT_CACHE_ENTRIES);
+        this.supportEngine = new SupportEngine(this);
+    }
+
+    /**
+     * Constructs the transaction database from transactions and item bitmaps built by a loader. Bitmaps must contain
+     * the positions of the transactions in the given list.
      *
-     * @param orig transaction database to invert
+     * @param transactions all transactions in database order, possibly a read-only view
+     * @param itemIndex    bitmap of transaction positions for every occurring item
+     * @param allItems     universe of items
      */
-    private TransactionDatabase(TransactionDatabase orig) {
-        log.info("Creating inverted transaction database");
-        this.allItems = new TreeSet<Integer>(orig.allItems);
-        this.transactions = new LinkedList<Transaction>();
-        this.itemLookupMap = new HashMap<Integer, ArrayList<Transaction>>();
-        this.supportMap = new HashMap<Itemset, Double>();
+    TransactionDatabase(List<Transaction> transactions, HashMap<Integer, CompressedBitmap> itemIndex,
+                        TreeSet<Integer> allItems) {
+        this.transactions = transactions;
+        this.itemIndex = itemIndex;
+        this.allItems = allItems;
+        this.supportCache = new SupportCache(DEFAULT_CACHE_ENTRIES);
+        this.supportEngine = new SupportEngine(this);
+        trimIndex();
 
-        for (Transaction t : orig.transactions) {
-            Transaction invT = new Transaction(this.allItems);
-            invT.minus(t);
-            this.transactions.add(invT);
+        log.info("Done loading transaction database (" + this.getStatistics() + ")");
+    }
 
-            for (Integer item : invT) {
-                if (!itemLookupMap.containsKey(item)) {
-                    itemLookupMap.put(item, new ArrayList<Transaction>());
-                }
-                itemLookupMap.get(item).add(t);
+    /**
+     * Appends the given transaction to this database and registers its position in the bitmaps of all its items
+     *
+     * @param t transaction to add
+     */
+    private void addTransaction(Transaction t) {
+        int tid = transactions.size();
+        for (Integer item : t) {
+            CompressedBitmap bitmap = itemIndex.get(item);
+            if (bitmap == null) {
+                bitmap = new CompressedBitmap();
+                itemIndex.put(item, bitmap);
             }
+            bitmap.add(tid);
+        }
+        transactions.add(t);
+    }
+
+    /**
+     * Releases spare capacity of the item bitmaps once loading is done
+     */
+    private void trimIndex() {
+        if (transactions instanceof ArrayList) {
+            ((ArrayList<Transaction>) transactions).trimToSize();
+        }
+        for (CompressedBitmap bitmap : itemIndex.values()) {
+            bitmap.trim();
         }
-        log.info("Done creating inverted transaction database (" + this.getStatistics() + ")");
     }
 
     /**
      * Writes out a transaction table making items not contained
      *
      * used for naive application of AR mining
+     *
+     * @see TransactionExporter#writeNaive(OutputStream)
      */
     public void writeNaiveDatabase(OutputStream out) throws IOException {
-        BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out));
-        ArrayList<Integer> itemList = new ArrayList<Integer>(allItems);
-
-        // determine constant value to add for non-existing items
-        int summand = 1;
-        while (summand <= itemList.size()) {
-            summand *= 10;
-            if (summand <= 1) {
-                throw new RuntimeException("Too many items");
-            }
-        }
-
-        Collections.sort(itemList);
-        for (Transaction t : transactions) {
-            StringBuilder sb = new StringBuilder();
-            for (int i = 0; i < itemList.size(); i++) {
-                Integer curItem = itemList.get(i);
-                if (i != 0) {
-                    sb.append("\t");
-                }
-                if (t.contains(curItem)) {
-                    sb.append(curItem);
-                }
-                else {
-                    sb.append(curItem + summand);
-                }
-            }
-
-            writer.write(sb.toString());
-            writer.newLine();
-        }
+        new TransactionExporter(this, 1).writeNaive(out);
     }
 
     /**
@@ -193,6 +213,15 @@ public class TransactionDatabase {
         return Collections.unmodifiableSet(allItems);
     }
 
+    /**
+     * Returns the bitmaps of all items occurring in this database, used for writing the database in binary format
+     *
+     * @return map from items to bitmaps of transaction positions
+     */
+    Map<Integer, CompressedBitmap> getItemIndex() {
+        return Collections.unmodifiableMap(itemIndex);
+    }
+
     /**
      * Returns the list of all transaction contained in this table
      *
@@ -209,42 +238,158 @@ public class TransactionDatabase {
      * @return list of transactions containing the given item
      */
     public List<Transaction> getTransactionsContainingItem(int item) {
-        return Collections.unmodifiableList(itemLookupMap.get(item));
+        return Collections.unmodifiableList(toTransactions(getItemBitmap(item)));
     }
 
     /**
-     * Returns the inverted version of this transaction database. No modifications are made in this version
+     * Returns the bitmap of positions of all transactions containing the given item. Positions refer to the list
+     * returned by {@link #getAllTransactions()}.
      *
-     * @return inverted version of this transaction database
+     * @param item id of item
+     * @return bitmap of transaction positions, empty if item does not occur
      */
-    public TransactionDatabase invert() {
-        return new TransactionDatabase(this);
+    public CompressedBitmap getItemBitmap(int item) {
+        CompressedBitmap bitmap = itemIndex.get(item);
+        return bitmap == null ? new CompressedBitmap() : bitmap;
     }
 
     /**
-     * Returns all transactions which contain all item of the given set
+     * Returns the number of transactions containing all items of the given itemset. Previously computed counts are
+     * cached. This method may be called concurrently.
      *
-     * @param set set of items which have to be contained in the transactions
-     * @return transactions containing all items contained in set
+     * @param itemset itemset to count transactions for
+     * @return number of transactions containing all items of the itemset, 0 for the empty itemset
      */
-    public HashSet<Transaction> getTransactionsContaining(Itemset set) {
-        HashSet<Transaction> transactionsContainingAllItems = null;
+    public int getSupportCount(Itemset itemset) {
+        if (itemset.size() <= 1) {
+            // single item counts are available from the item bitmaps directly
+            return countTransactions(itemset);
+        }
+
+        int val = supportCache.get(itemset);
+        if (val >= 0) {
+            return val;
+        }
+
+        val = countTransactions(itemset);
+
+        supportCache.put(itemset, val);
+
+        return val;
+    }
 
-        for (Integer item : set) {
-            if (transactionsContainingAllItems == null) {
-                transactionsContainingAllItems =
-                    itemLookupMap.get(item) == null ? null : new HashSet<Transaction>(itemLookupMap.get(item));
-                continue;
+    /**
+     * Returns the cache used for storing support counts of itemsets
+     *
+     * @return support count cache
+     */
+    public SupportCache getSupportCache() {
+        return supportCache;
+    }
+
+    /**
+     * Replaces the cache used for storing support counts of itemsets
+     *
+     * @param supportCache cache to use from now on
+     */
+    public void setSupportCache(SupportCache supportCache) {
+        this.supportCache = supportCache;
+    }
+
+    /**
+     * Counts the transactions containing all items of the given itemset. The count is determined from the item
+     * bitmaps only, no transaction sets are built.
+     *
+     * @param itemset itemset to count transactions for
+     * @return number of transactions containing all items of the itemset, 0 for the empty itemset
+     */
+    int countTransactions(Itemset itemset) {
+        int size = itemset.size();
+        if (size == 0) {
+            return 0;
+        }
+
+        CompressedBitmap[] bitmaps = new CompressedBitmap[size];
+        int i = 0;
+        for (Integer item : itemset) {
+            CompressedBitmap bitmap = itemIndex.get(item);
+            if (bitmap == null) {
+                return 0;
             }
+            bitmaps[i++] = bitmap;
+        }
+
+        if (size == 1) {
+            return bitmaps[0].cardinality();
+        }
+        if (size == 2) {
+            return bitmaps[0].andCardinality(bitmaps[1]);
+        }
 
-            transactionsContainingAllItems.retainAll(itemLookupMap.get(item));
+        // intersect starting with the rarest items to keep intermediate results small
+        Arrays.sort(bitmaps, BITMAP_SIZE_ORDER);
+        CompressedBitmap intersection = bitmaps[0];
+        for (i = 1; i < size - 1; i++) {
+            intersection = intersection.and(bitmaps[i]);
+            if (intersection.isEmpty()) {
+                return 0;
+            }
         }
+        return intersection.andCardinality(bitmaps[size - 1]);
+    }
 
-        if (transactionsContainingAllItems == null) {
-            transactionsContainingAllItems = new HashSet<Transaction>();
+    /**
+     * Returns the bitmap of positions of all transactions containing all items of the given itemset
+     *
+     * @param itemset itemset to determine transactions for
+     * @return bitmap of transaction positions, empty for the empty itemset
+     */
+    public CompressedBitmap getTransactionBitmap(Itemset itemset) {
+        CompressedBitmap res = null;
+        for (Integer item : itemset) {
+            CompressedBitmap bitmap = itemIndex.get(item);
+            if (bitmap == null) {
+                return new CompressedBitmap();
+            }
+            res = res == null ? bitmap : res.and(bitmap);
+        }
+        return res == null ? new CompressedBitmap() : res;
+    }
+
+    private ArrayList<Transaction> toTransactions(CompressedBitmap bitmap) {
+        if (bitmap == null) {
+            return new ArrayList<Transaction>();
+        }
+        int[] tids = bitmap.toArray();
+        ArrayList<Transaction> res = new ArrayList<Transaction>(tids.length);
+        for (int tid : tids) {
+            res.add(transactions.get(tid));
+        }
+        return res;
+    }
+
+    /**
+     * Returns the inverted version of this transaction database in which every transaction is replaced by its
+     * complement with respect to the universe of items. The inverted version is a view answering all queries from the
+     * item bitmaps of this database, no transactions are copied.
+     *
+     * @return inverted version of this transaction database
+     */
+    public TransactionDatabase invert() {
+        if (inverted == null) {
+            inverted = new InvertedTransactionDatabase(this, allItems);
         }
+        return inverted;
+    }
 
-        return transactionsContainingAllItems;
+    /**
+     * Returns all transactions which contain all item of the given set
+     *
+     * @param set set of items which have to be contained in the transactions
+     * @return transactions containing all items contained in set
+     */
+    public HashSet<Transaction> getTransactionsContaining(Itemset set) {
+        return new HashSet<Transaction>(toTransactions(getTransactionBitmap(set)));
     }
 
     /**
@@ -280,13 +425,7 @@ public class TransactionDatabase {
      * @return support for itemset
      */
     public double getSupport(Itemset itemset, boolean negated) {
-        int numTransactions = getTransactionsContaining(itemset).size();
-
-        if (negated) {
-            numTransactions = transactions.size() - numTransactions;
-        }
-
-        return numTransactions / transactions.size();
+        return supportEngine.getSupport(itemset, negated);
     }
 
     /**
@@ -299,27 +438,7 @@ public class TransactionDatabase {
      * @return support value for given itemsets
      */
     public double getSupport(Itemset itemset1, boolean negated1, Itemset itemset2, boolean negated2) {
-        HashSet<Transaction> transactions1;
-
-        if (negated1) {
-            transactions1 = getTransactionsNotContaining(itemset1);
-        }
-        else {
-            transactions1 = getTransactionsContaining(itemset1);
-        }
-
-        HashSet<Transaction> transactions2;
-
-        if (negated2) {
-            transactions2 = getTransactionsNotContaining(itemset2);
-        }
-        else {
-            transactions2 = getTransactionsContaining(itemset2);
-        }
-
-        transactions1.retainAll(transactions2);
-
-        return (double) transactions1.size() / transactions.size();
+        return supportEngine.getSupport(itemset1.union(itemset2), itemset1, negated1, itemset2, negated2);
     }
 
     /**
@@ -332,31 +451,7 @@ public class TransactionDatabase {
      * @return interest value for given itemsets
      */
     public double getInterest(Itemset itemset1, boolean negated1, Itemset itemset2, boolean negated2) {
-        HashSet<Transaction> transactions1;
-
-        if (negated1) {
-            transactions1 = getTransactionsNotContaining(itemset1);
-        }
-        else {
-            transactions1 = getTransactionsContaining(itemset1);
-        }
-
-        double support1 = (double) transactions1.size() / transactions.size();
-
-        HashSet<Transaction> transactions2;
-
-        if (negated2) {
-            transactions2 = getTransactionsNotContaining(itemset2);
-        }
-        else {
-            transactions2 = getTransactionsContaining(itemset2);
-        }
-
-        double support2 = (double) transactions2.size() / transactions.size();
-
-        transactions1.retainAll(transactions2);
-
-        return Math.abs((transactions1.size() / transactions.size()) - (support1 * support2));
+        return supportEngine.getInterest(itemset1.union(itemset2), itemset1, negated1, itemset2, negated2);
     }
 
     /**
@@ -398,10 +493,10 @@ public class TransactionDatabase {
     public Set<Itemset> getFrequent1Itemsets(double minsupp) {
         Set<Itemset> frequent = new HashSet<Itemset>();
 
-        int occurrenceThreshold = (int) (getNumberOfTransactions() * minsupp);
-
         for (Integer item : allItems) {
-            if (itemLookupMap.containsKey(item) && itemLookupMap.get(item).size() > occurrenceThreshold) {
+            // same test as applied to larger itemsets so that every item of a frequent itemset is frequent itself
+            int count = countTransactions(Itemset.singleton(item));
+            if (count > 0 && (double) count / transactions.size() >= minsupp) {
                 frequent.add(Itemset.singleton(item));
             }
         }
@@ -442,51 +537,29 @@ public class TransactionDatabase {
      * @return support for given itemset
      */
     public double getSupport(Itemset itemset) {
-        Double val = supportMap.get(itemset);
-        if (val != null) {
-            return val;
-        }
-
-        assert (transactions != null);
-
-        val = (double) getTransactionsContaining(itemset).size() / transactions.size();
-
-        supportMap.put(itemset, val);
-
-        return val;
+        return (double) getSupportCount(itemset) / transactions.size();
     }
 
     /**
      * Returns the support value supp(Y|X) considering negations
      *
-     * @param x
-     * @param negatedX
-     * @param y
-     * @param negatedY
-     * @return
+     * @param y        itemset y
+     * @param negatedY flag if y is negated
+     * @param x        itemset x
+     * @param negatedX flag if x is negated
+     * @return conditional support of y given x
      */
     public double getConditionalSupport(Itemset y, boolean negatedY, Itemset x, boolean negatedX) {
-        HashSet<Transaction> transactionsForY;
-
-        if (negatedY) {
-            transactionsForY = getTransactionsNotContaining(y);
-        }
-        else {
-            transactionsForY = getTransactionsContaining(y);
-        }
-
-        HashSet<Transaction> transactionsForX;
-
-        if (negatedX) {
-            transactionsForX = getTransactionsNotContaining(x);
-        }
-        else {
-            transactionsForX = getTransactionsContaining(x);
-        }
-
-        transactionsForY.retainAll(transactionsForX);
+        return supportEngine.getConditionalSupport(y.union(x), y, negatedY, x, negatedX);
+    }
 
-        return (transactionsForY.size()) / ((double) transactionsForX.size());
+    /**
+     * Returns the engine answering support queries on negated itemsets from the positive counts of this database
+     *
+     * @return support engine of this database
+     */
+    public SupportEngine getSupportEngine() {
+        return supportEngine;
     }
 
     /**
@@ -498,60 +571,45 @@ public class TransactionDatabase {
      * @return true if itemset interesting otherwise false
      */
     public boolean isInteresting(Itemset itemset, double mininterest) {
-        Integer[] elemList = itemset.getContent().toArray(new Integer[itemset.size()]);
-
-        boolean[] partition = new boolean[elemList.length - 1];
-
-        int numOfPossibilities = (int) Math.ceil(Math.pow(2, elemList.length - 1));
-
-        for (int i = 0; i < numOfPossibilities; i++) {
-            Itemset setA = new Itemset();
-            setA.add(elemList[elemList.length - 1]);
-            Itemset setB = new Itemset();
-
-            boolean bHasContent = false;
-            for (int j = 0; j < partition.length; j++) {
-                if (!partition[j]) {
-                    setA.add(elemList[j]);
-                }
-                else {
-                    bHasContent = true;
-                    setB.add(elemList[j]);
+        if (!SubsetSupportTable.isSupported(itemset)) {
+            // too many items for masks, the bipartitions are built as itemsets instead
+            Iterator<Itemset[]> subsetIt = itemset.getSubsetIterator();
+            while (subsetIt.hasNext()) {
+                Itemset[] subsets = subsetIt.next();
+                if (getInterestValue(itemset, subsets[0], subsets[1]) >= mininterest) {
+                    return true;
                 }
             }
-
-            increment(partition);
-            if (!bHasContent) {
-                continue;
-            }
-
-            double interestVal = getInterestValue(itemset, setA, setB);
-            log.debug(itemset.toString(IDResolver.getResolver()) + "[" +
-                      setA.toString(IDResolver.getResolver()) + ", " +
-                      setB.toString(IDResolver.getResolver()) + "]: " + interestVal + " --> " +
-                      (interestVal >= mininterest) + "(Threshold: " + mininterest + ")");
-            if (interestVal >= mininterest) {
-                return true;
-            }
+            return false;
         }
-        return false;
+        return isInteresting(new SubsetSupportTable(this, itemset), mininterest);
     }
 
     /**
-     * Increments the binary number represented by the given int array by 1.
+     * Returns if the itemset of the given table is an interesting one. Bipartitions are enumerated in the order of
+     * {@link SubsetIterator}, X always containing the largest item.
      *
-     * @param number array representing the number to increment
+     * @param table       support table of the itemset to check
+     * @param mininterest value being lower boundary for interestingness
+     * @return true if itemset interesting otherwise false
      */
-    private static void increment(boolean[] number) {
-        int idx = 0;
-        boolean carry = true;
-
-        while (idx < number.length) {
-            boolean val = number[idx];
-            number[idx] = val ^ carry;
-            carry = val && carry;
-            idx++;
+    public boolean isInteresting(SubsetSupportTable table, double mininterest) {
+        long full = table.getFullMask();
+        long numPartitions = (full + 1) >>> 1;
+        for (long maskY = 1; maskY < numPartitions; maskY++) {
+            long maskX = full ^ maskY;
+            double interestVal = table.getInterest(maskX, maskY);
+            if (log.isDebugEnabled()) {
+                log.debug(table.getItemset().toString(IDResolver.getResolver()) + "[" +
+                          table.getSubset(maskX).toString(IDResolver.getResolver()) + ", " +
+                          table.getSubset(maskY).toString(IDResolver.getResolver()) + "]: " + interestVal + " --> " +
+                          (interestVal >= mininterest) + "(Threshold: " + mininterest + ")");
+            }
+            if (interestVal >= mininterest) {
+                return true;
+            }
         }
+        return false;
     }
 
     /**
@@ -572,26 +630,11 @@ public class TransactionDatabase {
     /**
      * Writes the data contained in this transaction database into the given output stream in a format which is accepted
      * by Weka
+     *
+     * @see TransactionExporter#writeCSV(OutputStream)
      */
-    public void writeCSVFormat(OutputStream stream) {
-        CSVWriter writer = new CSVWriter(new OutputStreamWriter(stream));
-
-        Integer[] allItemsList = allItems.toArray(new Integer[allItems.size()]);
-        String[] firstLine = new String[allItemsList.length];
-
-        for (int i = 0; i < allItemsList.length; i++) {
-            firstLine[i] = Integer.toString(allItemsList[i]);
-        }
-
-        writer.writeNext(firstLine);
-
-        String[] line = new String[allItemsList.length];
-        for (Transaction t : transactions) {
-            for (int i = 0; i < allItemsList.length; i++) {
-                line[i] = t.contains(allItemsList[i]) ? "yes" : "no";
-            }
-            writer.writeNext(line);
-        }
+    public void writeCSVFormat(OutputStream stream) throws IOException {
+        new TransactionExporter(this, 1).writeCSV(stream);
     }
 
     /**
@@ -599,37 +642,9 @@ public class TransactionDatabase {
      *
      * @param stream   stream to write generated data to
      * @param resolver
+     * @see TransactionExporter#writeARFF(String, OutputStream, IDResolver)
      */
     public void writeARFFFormat(String relationName, OutputStream stream, IDResolver resolver) throws IOException {
-        BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(stream));
-
-        writer.write("@relation " + relationName);
-        writer.newLine();
-
-        Integer[] allItemsList = allItems.toArray(new Integer[allItems.size()]);
-
-        for (Integer itemId : allItemsList) {
-            writer.write("@attribute " + resolver.resolve(itemId) + " {YES,NO}");
-            writer.newLine();
-        }
-
-        writer.write("@data");
-        writer.newLine();
-
-        for (Transaction t : transactions) {
-            StringBuilder sb = new StringBuilder();
-            boolean first = true;
-            for (int i = 0; i < allItemsList.length; i++) {
-                if (!first) {
-                    sb.append(",");
-                }
-                else {
-                    first = false;
-                }
-                sb.append(t.contains(allItemsList[i]) ? "YES" : "NO");
-            }
-            writer.write(sb.toString());
-            writer.newLine();
-        }
+        new TransactionExporter(this, 1).writeARFF(relationName, stream, resolver);
     }
 }
@@ -0,0 +1,412 @@
+package de.unima.ki.narminer.utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Writes transaction databases in the formats of other tools. Dense rows are generated by walking the items of a
+ * transaction and the item universe side by side and copying precomputed bytes for every cell, so no strings are
+ * created per cell. Rows are encoded in chunks of about {@link #DEFAULT_CHUNK_BYTES} bytes which are written to a
+ * channel on the output stream. Using several threads, chunks are encoded in parallel and written in order.
+ * <p/>
+ * The output of the dense formats is identical to the one written by previous versions of {@link TransactionDatabase}.
+ * ARFF headers are written in the default charset, all other output is ASCII.
+ */
+public class TransactionExporter {
+    /**
+     * Approximate size of the chunks rows are encoded in
+     */
+    static final int DEFAULT_CHUNK_BYTES = 4 << 20;
+
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
+    private final TransactionDatabase tdb;
+    private final int parallelism;
+    private final int chunkBytes;
+
+    /**
+     * Creates an exporter for the given database encoding rows using the given number of threads
+     *
+     * @param tdb         database to export
+     * @param parallelism number of threads to use, 1 for encoding on the calling thread, 0 for one thread per available
+     *                    processor
+     */
+    public TransactionExporter(TransactionDatabase tdb, int parallelism) {
+        this(tdb, parallelism, DEFAULT_CHUNK_BYTES);
+    }
+
+    TransactionExporter(TransactionDatabase tdb, int parallelism, int chunkBytes) {
+        if (parallelism < 0) {
+            throw new IllegalArgumentException("Parallelism must not be negative: " + parallelism);
+        }
+        this.tdb = tdb;
+        this.parallelism = parallelism == 0 ? Runtime.getRuntime().availableProcessors() : parallelism;
+        this.chunkBytes = chunkBytes;
+    }
+
+    /**
+     * Writes a transaction table containing every item of the universe in every transaction, items not contained in a
+     * transaction are increased by a power of ten larger than the number of items. Items are separated by tabs.
+     * <p/>
+     * used for naive application of AR mining
+     *
+     * @param stream stream to write to
+     * @throws IOException if writing fails
+     */
+    public void writeNaive(OutputStream stream) throws IOException {
+        int[] universe = getUniverse();
+
+        // determine constant value to add for non-existing items
+        int summand = 1;
+        while (summand <= universe.length) {
+            summand *= 10;
+            if (summand <= 1) {
+                throw new RuntimeException("Too many items");
+            }
+        }
+
+        byte[][] present = new byte[universe.length][];
+        byte[][] absent = new byte[universe.length][];
+        for (int i = 0; i < universe.length; i++) {
+            present[i] = ascii((i == 0 ? "" : "\t") + universe[i]);
+            absent[i] = ascii((i == 0 ? "" : "\t") + (universe[i] + summand));
+        }
+
+        WritableByteChannel channel = Channels.newChannel(stream);
+        writeRows(channel, new DenseEncoder(universe, present, absent, ascii(LINE_SEPARATOR)));
+        stream.flush();
+    }
+
+    /**
+     * Writes the transactions in CSV format accepted by Weka. The first line contains the quoted items of the universe,
+     * every further line a quoted yes or no per item.
+     *
+     * @param stream stream to write to
+     * @throws IOException if writing fails
+     */
+    public void writeCSV(OutputStream stream) throws IOException {
+        int[] universe = getUniverse();
+
+        byte[][] present = new byte[universe.length][];
+        byte[][] absent = new byte[universe.length][];
+        StringBuilder header = new StringBuilder();
+        for (int i = 0; i < universe.length; i++) {
+            String separator = i == 0 ? "" : ",";
+            header.append(separator).append('"').append(universe[i]).append('"');
+            present[i] = ascii(separator + "\"yes\"");
+            absent[i] = ascii(separator + "\"no\"");
+        }
+        header.append('\n');
+
+        WritableByteChannel channel = Channels.newChannel(stream);
+        writeFully(channel, ByteBuffer.wrap(ascii(header.toString())));
+        writeRows(channel, new DenseEncoder(universe, present, absent, ascii("\n")));
+        stream.flush();
+    }
+
+    /**
+     * Writes the transactions in the ARFF format with one nominal attribute {YES,NO} per item of the universe
+     *
+     * @param relationName name of the relation
+     * @param stream       stream to write to
+     * @param resolver     resolver for the attribute names
+     * @throws IOException if writing fails
+     */
+    public void writeARFF(String relationName, OutputStream stream, IDResolver resolver) throws IOException {
+        int[] universe = getUniverse();
+        writeARFFHeader(relationName, stream, resolver, universe, "{YES,NO}");
+
+        byte[][] present = new byte[universe.length][];
+        byte[][] absent = new byte[universe.length][];
+        for (int i = 0; i < universe.length; i++) {
+            present[i] = ascii(i == 0 ? "YES" : ",YES");
+            absent[i] = ascii(i == 0 ? "NO" : ",NO");
+        }
+
+        writeRows(Channels.newChannel(stream), new DenseEncoder(universe, present, absent, ascii(LINE_SEPARATOR)));
+        stream.flush();
+    }
+
+    /**
+     * Writes the transactions in the sparse ARFF format. Attributes are declared as {NO,YES} so that the default value
+     * omitted by sparse rows is NO and every row only lists the indices of the contained items, e.g. {0 YES,7 YES}.
+     *
+     * @param relationName name of the relation
+     * @param stream       stream to write to
+     * @param resolver     resolver for the attribute names
+     * @throws IOException if writing fails
+     */
+    public void writeSparseARFF(String relationName, OutputStream stream, IDResolver resolver) throws IOException {
+        int[] universe = getUniverse();
+        writeARFFHeader(relationName, stream, resolver, universe, "{NO,YES}");
+
+        byte[][] cells = new byte[universe.length][];
+        for (int i = 0; i < universe.length; i++) {
+            cells[i] = ascii(i + " YES");
+        }
+
+        writeRows(Channels.newChannel(stream), new SparseEncoder(universe, cells, ascii(LINE_SEPARATOR)));
+        stream.flush();
+    }
+
+    private static void writeARFFHeader(String relationName, OutputStream stream, IDResolver resolver,
+                                        int[] universe, String values) throws IOException {
+        // the header is written through a writer to keep the default charset for the attribute names
+        List<Integer> items = new ArrayList<Integer>(universe.length);
+        for (int item : universe) {
+            items.add(item);
+        }
+        resolver.prefetch(items);
+
+        Writer writer = new OutputStreamWriter(stream);
+        writer.write("@relation " + relationName);
+        writer.write(LINE_SEPARATOR);
+        for (int item : universe) {
+            writer.write("@attribute " + resolver.resolve(item) + " " + values);
+            writer.write(LINE_SEPARATOR);
+        }
+        writer.write("@data");
+        writer.write(LINE_SEPARATOR);
+        writer.flush();
+    }
+
+    private int[] getUniverse() {
+        Set<Integer> allItems = tdb.getAllItems();
+        int[] res = new int[allItems.size()];
+        int pos = 0;
+        for (int item : allItems) {
+            res[pos++] = item;
+        }
+        Arrays.sort(res);
+        return res;
+    }
+
+    private static byte[] ascii(String s) {
+        try {
+            return s.getBytes("US-ASCII");
+        }
+        catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Encodes all transactions using the given encoder and writes them to the given channel in order
+     */
+    private void writeRows(WritableByteChannel channel, RowEncoder encoder) throws IOException {
+        List<Transaction> transactions = tdb.getAllTransactions();
+        int rowsPerChunk = Math.max(1, chunkBytes / Math.max(1, encoder.getRowEstimate()));
+
+        if (parallelism <= 1 || transactions.size() <= rowsPerChunk) {
+            ByteBuilder buffer = new ByteBuilder(chunkBytes);
+            for (int from = 0; from < transactions.size(); from += rowsPerChunk) {
+                buffer.clear();
+                encode(encoder, transactions, from, Math.min(transactions.size(), from + rowsPerChunk), buffer);
+                writeFully(channel, buffer.toByteBuffer());
+            }
+            return;
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            // a bounded number of encoded chunks is kept in memory while waiting for the oldest one
+            ArrayDeque<ForkJoinTask<ByteBuilder>> inFlight = new ArrayDeque<ForkJoinTask<ByteBuilder>>();
+            for (int from = 0; from < transactions.size(); from += rowsPerChunk) {
+                if (inFlight.size() >= 2 * parallelism) {
+                    writeFully(channel, inFlight.poll().join().toByteBuffer());
+                }
+                inFlight.add(pool.submit(new EncodeTask(encoder, transactions, from,
+                                                        Math.min(transactions.size(), from + rowsPerChunk), chunkBytes)));
+            }
+            while (!inFlight.isEmpty()) {
+                writeFully(channel, inFlight.poll().join().toByteBuffer());
+            }
+        }
+        finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static void encode(RowEncoder encoder, List<Transaction> transactions, int from, int to,
+                               ByteBuilder out) {
+        for (int i = from; i < to; i++) {
+            encoder.encode(transactions.get(i).items, out);
+        }
+    }
+
+    private static void writeFully(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Encodes a range of transactions on a worker thread
+     */
+    private static final class EncodeTask extends RecursiveTask<ByteBuilder> {
+        private final RowEncoder encoder;
+        private final List<Transaction> transactions;
+        private final int from;
+        private final int to;
+        private final int capacity;
+
+        EncodeTask(RowEncoder encoder, List<Transaction> transactions, int from, int to, int capacity) {
+            this.encoder = encoder;
+            this.transactions = transactions;
+            this.from = from;
+            this.to = to;
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected ByteBuilder compute() {
+            ByteBuilder res = new ByteBuilder(capacity);
+            encode(encoder, transactions, from, to, res);
+            return res;
+        }
+    }
+
+    /**
+     * Encodes a single transaction as one row, implementations have to be thread-safe
+     */
+    private interface RowEncoder {
+        void encode(int[] items, ByteBuilder out);
+
+        /**
+         * Returns the approximate number of bytes of a row
+         */
+        int getRowEstimate();
+    }
+
+    /**
+     * Encodes rows containing one cell per item of the universe by a merge walk over the items of the transaction
+     */
+    private static final class DenseEncoder implements RowEncoder {
+        private final int[] universe;
+        private final byte[][] present;
+        private final byte[][] absent;
+        private final byte[] lineEnd;
+
+        DenseEncoder(int[] universe, byte[][] present, byte[][] absent, byte[] lineEnd) {
+            this.universe = universe;
+            this.present = present;
+            this.absent = absent;
+            this.lineEnd = lineEnd;
+        }
+
+        @Override
+        public void encode(int[] items, ByteBuilder out) {
+            int pos = 0;
+            for (int i = 0; i < universe.length; i++) {
+                int item = universe[i];
+                while (pos < items.length && items[pos] < item) {
+                    pos++;
+                }
+                out.append(pos < items.length && items[pos] == item ? present[i] : absent[i]);
+            }
+            out.append(lineEnd);
+        }
+
+        @Override
+        public int getRowEstimate() {
+            long res = lineEnd.length;
+            for (byte[] cell : absent) {
+                res += cell.length;
+            }
+            return (int) Math.min(Integer.MAX_VALUE, res);
+        }
+    }
+
+    /**
+     * Encodes rows listing only the cells of the contained items of the universe
+     */
+    private static final class SparseEncoder implements RowEncoder {
+        private final int[] universe;
+        private final byte[][] cells;
+        private final byte[] lineEnd;
+
+        SparseEncoder(int[] universe, byte[][] cells, byte[] lineEnd) {
+            this.universe = universe;
+            this.cells = cells;
+            this.lineEnd = lineEnd;
+        }
+
+        @Override
+        public void encode(int[] items, ByteBuilder out) {
+            out.append((byte) '{');
+            boolean first = true;
+            int index = 0;
+            for (int item : items) {
+                // both arrays are sorted, so the search continues where the previous item has been found
+                int found = Arrays.binarySearch(universe, index, universe.length, item);
+                if (found < 0) {
+                    index = -found - 1;
+                    continue;
+                }
+                index = found + 1;
+                if (!first) {
+                    out.append((byte) ',');
+                }
+                out.append(cells[found]);
+                first = false;
+            }
+            out.append((byte) '}');
+            out.append(lineEnd);
+        }
+
+        @Override
+        public int getRowEstimate() {
+            return 64;
+        }
+    }
+
+    /**
+     * Growable byte array
+     */
+    private static final class ByteBuilder {
+        private byte[] bytes;
+        private int length;
+
+        ByteBuilder(int capacity) {
+            bytes = new byte[capacity];
+        }
+
+        void append(byte b) {
+            ensureCapacity(length + 1);
+            bytes[length++] = b;
+        }
+
+        void append(byte[] b) {
+            ensureCapacity(length + b.length);
+            System.arraycopy(b, 0, bytes, length, b.length);
+            length += b.length;
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(capacity, 2 * bytes.length));
+            }
+        }
+
+        void clear() {
+            length = 0;
+        }
+
+        ByteBuffer toByteBuffer() {
+            return ByteBuffer.wrap(bytes, 0, length);
+        }
+    }
+}
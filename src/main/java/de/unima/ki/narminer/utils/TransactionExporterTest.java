@@ -0,0 +1,136 @@
+package de.unima.ki.narminer.utils;
+
+import au.com.bytecode.opencsv.CSVWriter;
+import org.junit.Test;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.Assert.*;
+
+public class TransactionExporterTest {
+    @Test
+    public void testMatchesCellByCellExport() throws Exception {
+        Random random = new Random(22);
+        TreeSet<Integer> universe = new TreeSet<Integer>();
+        for (int i = 0; i < 150; i++) {
+            universe.add(2 * i);
+        }
+        // transactions may contain items outside the universe
+        TransactionDatabase tdb =
+            TestData.createDatabase(TestData.createTransactions(random, 3000, 12, 320, 320), universe);
+        IDResolver resolver = new IDResolver.DummyResolver();
+
+        for (int parallelism : new int[]{1, 4}) {
+            // small chunks so that many of them are encoded in parallel
+            TransactionExporter exporter = new TransactionExporter(tdb, parallelism, 4096);
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            exporter.writeNaive(out);
+            assertArrayEquals(writeNaive(tdb), out.toByteArray());
+
+            out = new ByteArrayOutputStream();
+            exporter.writeCSV(out);
+            assertArrayEquals(writeCSV(tdb), out.toByteArray());
+
+            out = new ByteArrayOutputStream();
+            exporter.writeARFF("test", out, resolver);
+            assertArrayEquals(writeARFF(tdb, "test", resolver), out.toByteArray());
+
+            out = new ByteArrayOutputStream();
+            exporter.writeSparseARFF("test", out, resolver);
+            checkSparseARFF(tdb, out.toByteArray());
+        }
+    }
+
+    private static void checkSparseARFF(TransactionDatabase tdb, byte[] bytes) throws IOException {
+        ArrayList<Integer> universe = new ArrayList<Integer>(tdb.getAllItems());
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(bytes)));
+        assertEquals("@relation test", reader.readLine());
+        for (int item : universe) {
+            assertEquals("@attribute " + item + " {NO,YES}", reader.readLine());
+        }
+        assertEquals("@data", reader.readLine());
+        for (Transaction t : tdb.getAllTransactions()) {
+            StringBuilder expected = new StringBuilder("{");
+            for (int i = 0; i < universe.size(); i++) {
+                if (t.contains(universe.get(i))) {
+                    expected.append(expected.length() > 1 ? "," : "").append(i).append(" YES");
+                }
+            }
+            assertEquals(expected.append('}').toString(), reader.readLine());
+        }
+        assertNull(reader.readLine());
+    }
+
+    /**
+     * Reference implementations writing every cell separately
+     */
+    private static byte[] writeNaive(TransactionDatabase tdb) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out));
+        ArrayList<Integer> itemList = new ArrayList<Integer>(tdb.getAllItems());
+        int summand = 1;
+        while (summand <= itemList.size()) {
+            summand *= 10;
+        }
+        for (Transaction t : tdb.getAllTransactions()) {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < itemList.size(); i++) {
+                if (i != 0) {
+                    sb.append("\t");
+                }
+                sb.append(t.contains(itemList.get(i)) ? itemList.get(i) : itemList.get(i) + summand);
+            }
+            writer.write(sb.toString());
+            writer.newLine();
+        }
+        writer.flush();
+        return out.toByteArray();
+    }
+
+    private static byte[] writeCSV(TransactionDatabase tdb) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CSVWriter writer = new CSVWriter(new OutputStreamWriter(out));
+        Integer[] items = tdb.getAllItems().toArray(new Integer[tdb.getAllItems().size()]);
+        String[] line = new String[items.length];
+        for (int i = 0; i < items.length; i++) {
+            line[i] = Integer.toString(items[i]);
+        }
+        writer.writeNext(line);
+        for (Transaction t : tdb.getAllTransactions()) {
+            for (int i = 0; i < items.length; i++) {
+                line[i] = t.contains(items[i]) ? "yes" : "no";
+            }
+            writer.writeNext(line);
+        }
+        writer.flush();
+        return out.toByteArray();
+    }
+
+    private static byte[] writeARFF(TransactionDatabase tdb, String relationName, IDResolver resolver)
+        throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out));
+        writer.write("@relation " + relationName);
+        writer.newLine();
+        for (Integer item : tdb.getAllItems()) {
+            writer.write("@attribute " + resolver.resolve(item) + " {YES,NO}");
+            writer.newLine();
+        }
+        writer.write("@data");
+        writer.newLine();
+        for (Transaction t : tdb.getAllTransactions()) {
+            StringBuilder sb = new StringBuilder();
+            for (Integer item : tdb.getAllItems()) {
+                sb.append(sb.length() > 0 ? "," : "").append(t.contains(item) ? "YES" : "NO");
+            }
+            writer.write(sb.toString());
+            writer.newLine();
+        }
+        writer.flush();
+        return out.toByteArray();
+    }
+}
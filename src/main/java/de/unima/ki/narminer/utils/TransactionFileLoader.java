@@ -0,0 +1,384 @@
+package de.unima.ki.narminer.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Loads transaction tables in the format read by {@link TransactionDatabase} from files. The file is memory-mapped and
+ * split into chunks at line boundaries which are parsed in parallel directly from their bytes. Afterwards, the item
+ * bitmaps are built in parallel for blocks of transactions matching the chunks of the bitmaps and concatenated.
+ * <p/>
+ * The resulting database is identical to the one read by the stream constructors of {@link TransactionDatabase}.
+ * Items must be non-negative decimal numbers separated by spaces or tabs, every line has to contain at least one item.
+ */
+public class TransactionFileLoader {
+    /**
+     * Size of the file regions parsed by a single task
+     */
+    static final int DEFAULT_CHUNK_BYTES = 16 << 20;
+
+    /**
+     * Number of transactions covered by a single chunk of {@link CompressedBitmap}
+     */
+    private static final int TIDS_PER_BLOCK = 1 << 16;
+
+    private final int parallelism;
+    private final int chunkBytes;
+
+    /**
+     * Creates a loader using the given number of threads
+     *
+     * @param parallelism number of threads to use, 0 for one thread per available processor
+     */
+    public TransactionFileLoader(int parallelism) {
+        this(parallelism, DEFAULT_CHUNK_BYTES);
+    }
+
+    TransactionFileLoader(int parallelism, int chunkBytes) {
+        if (parallelism < 0) {
+            throw new IllegalArgumentException("Parallelism must not be negative: " + parallelism);
+        }
+        this.parallelism = parallelism == 0 ? Runtime.getRuntime().availableProcessors() : parallelism;
+        this.chunkBytes = chunkBytes;
+    }
+
+    /**
+     * Loads the transaction database contained in the given file. The universe of items ranges from 0 to the highest
+     * item read.
+     *
+     * @param file file containing transaction table
+     * @return loaded transaction database
+     * @throws IOException if the file cannot be read or is malformed
+     */
+    public TransactionDatabase load(File file) throws IOException {
+        return load(file, null);
+    }
+
+    /**
+     * Loads the transaction database contained in the given file using the given universe of items
+     *
+     * @param file     file containing transaction table
+     * @param allItems universe of items, null for the range from 0 to the highest item read
+     * @return loaded transaction database
+     * @throws IOException if the file cannot be read or is malformed
+     */
+    public TransactionDatabase load(File file, TreeSet<Integer> allItems) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            FileChannel channel = raf.getChannel();
+            long[] bounds = getChunkBounds(channel);
+
+            List<ParseTask> parseTasks = new ArrayList<ParseTask>();
+            for (int i = 0; i + 1 < bounds.length; i++) {
+                ParseTask task = new ParseTask(channel, bounds[i], bounds[i + 1]);
+                parseTasks.add(task);
+                pool.execute(task);
+            }
+
+            List<ArrayList<Transaction>> parsed = new ArrayList<ArrayList<Transaction>>();
+            int numTransactions = 0;
+            int highestItem = 0;
+            for (ParseTask task : parseTasks) {
+                ArrayList<Transaction> chunk = joinUnwrapped(task);
+                parsed.add(chunk);
+                numTransactions += chunk.size();
+                highestItem = Math.max(highestItem, task.highestItem);
+            }
+
+            ArrayList<Transaction> transactions = new ArrayList<Transaction>(numTransactions);
+            for (ArrayList<Transaction> chunk : parsed) {
+                transactions.addAll(chunk);
+            }
+            parsed = null;
+
+            List<IndexTask> indexTasks = new ArrayList<IndexTask>();
+            for (int from = 0; from < numTransactions; from += TIDS_PER_BLOCK) {
+                IndexTask task = new IndexTask(transactions, from, Math.min(numTransactions, from + TIDS_PER_BLOCK));
+                indexTasks.add(task);
+                pool.execute(task);
+            }
+
+            // blocks are appended in ascending order, each of them adding a new chunk to the bitmaps of its items
+            HashMap<Integer, CompressedBitmap> itemIndex = new HashMap<Integer, CompressedBitmap>();
+            for (IndexTask task : indexTasks) {
+                ItemBitmaps block = task.join();
+                for (int i = 0; i < block.keys.length; i++) {
+                    if (block.values[i] == null) {
+                        continue;
+                    }
+                    CompressedBitmap bitmap = itemIndex.get(block.keys[i]);
+                    if (bitmap == null) {
+                        itemIndex.put(block.keys[i], block.values[i]);
+                    }
+                    else {
+                        bitmap.append(block.values[i]);
+                    }
+                }
+            }
+
+            if (allItems == null) {
+                allItems = new TreeSet<Integer>();
+                for (int i = 0; i <= highestItem; i++) {
+                    allItems.add(i);
+                }
+            }
+
+            return new TransactionDatabase(transactions, itemIndex, allItems);
+        }
+        finally {
+            pool.shutdown();
+            raf.close();
+        }
+    }
+
+    /**
+     * Splits the file into regions of roughly equal size, each of them starting at the beginning of a line
+     */
+    private long[] getChunkBounds(FileChannel channel) throws IOException {
+        long size = channel.size();
+        long numChunks = Math.max((size + chunkBytes - 1) / chunkBytes, size >= chunkBytes ? parallelism : 1);
+        numChunks = Math.max(1, numChunks);
+
+        long[] bounds = new long[(int) numChunks + 1];
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        for (int i = 1; i < numChunks; i++) {
+            bounds[i] = Math.max(bounds[i - 1], alignToLine(channel, size * i / numChunks, size, buffer));
+        }
+        bounds[bounds.length - 1] = size;
+
+        for (int i = 0; i + 1 < bounds.length; i++) {
+            if (bounds[i + 1] - bounds[i] > Integer.MAX_VALUE) {
+                throw new IOException("Line starting before byte " + bounds[i + 1] + " is too long");
+            }
+        }
+        return bounds;
+    }
+
+    /**
+     * Returns the position of the first line starting at or after the given position
+     */
+    private static long alignToLine(FileChannel channel, long pos, long size, ByteBuffer buffer) throws IOException {
+        // a line starting exactly at pos is preceded by a newline
+        long p = pos - 1;
+        while (p < size) {
+            buffer.clear();
+            int n = channel.read(buffer, p);
+            if (n <= 0) {
+                break;
+            }
+            for (int i = 0; i < n; i++) {
+                if (buffer.get(i) == '\n') {
+                    return p + i + 1;
+                }
+            }
+            p += n;
+        }
+        return size;
+    }
+
+    /**
+     * Joins the given task rethrowing I/O errors of the task as such
+     */
+    private static ArrayList<Transaction> joinUnwrapped(ParseTask task) throws IOException {
+        task.quietlyJoin();
+        // the framework may wrap the exception thrown by the task once more
+        for (Throwable t = task.getException(); t != null; t = t.getCause()) {
+            if (t instanceof IOException) {
+                throw (IOException) t;
+            }
+        }
+        return task.join();
+    }
+
+    /**
+     * Parses all transactions of a region of the file
+     */
+    private static final class ParseTask extends RecursiveTask<ArrayList<Transaction>> {
+        private final FileChannel channel;
+        private final long start;
+        private final long end;
+
+        int highestItem;
+
+        ParseTask(FileChannel channel, long start, long end) {
+            this.channel = channel;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected ArrayList<Transaction> compute() {
+            try {
+                return parse();
+            }
+            catch (IOException e) {
+                throw new UncheckedParseException(e);
+            }
+        }
+
+        private ArrayList<Transaction> parse() throws IOException {
+            ArrayList<Transaction> res = new ArrayList<Transaction>();
+            if (end == start) {
+                return res;
+            }
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+            Itemset.Builder builder = new Itemset.Builder();
+            int len = buffer.limit();
+            int value = 0;
+            boolean inNumber = false;
+            boolean inLine = false;
+
+            for (int i = 0; i < len; i++) {
+                byte b = buffer.get(i);
+                if (b >= '0' && b <= '9') {
+                    int digit = b - '0';
+                    if (value > (Integer.MAX_VALUE - digit) / 10) {
+                        throw new IOException("Item id too large at byte " + (start + i));
+                    }
+                    value = value * 10 + digit;
+                    inNumber = true;
+                    inLine = true;
+                }
+                else if (b == ' ' || b == '\t' || b == '\r' || b == '\f' || b == 0x0B) {
+                    if (inNumber) {
+                        addItem(builder, value);
+                        value = 0;
+                        inNumber = false;
+                    }
+                    inLine = true;
+                }
+                else if (b == '\n') {
+                    if (inNumber) {
+                        addItem(builder, value);
+                        value = 0;
+                        inNumber = false;
+                    }
+                    endLine(builder, res, start + i);
+                    inLine = false;
+                }
+                else {
+                    throw new IOException("Unexpected character '" + (char) b + "' at byte " + (start + i));
+                }
+            }
+
+            // last line of the file without trailing newline
+            if (inNumber) {
+                addItem(builder, value);
+            }
+            if (inLine) {
+                endLine(builder, res, end);
+            }
+
+            return res;
+        }
+
+        private void addItem(Itemset.Builder builder, int item) {
+            builder.add(item);
+            if (item > highestItem) {
+                highestItem = item;
+            }
+        }
+
+        private static void endLine(Itemset.Builder builder, ArrayList<Transaction> res, long pos) throws IOException {
+            if (builder.size() == 0) {
+                throw new IOException("Empty transaction ending at byte " + pos);
+            }
+            res.add(builder.buildTransaction());
+            builder.clear();
+        }
+    }
+
+    /**
+     * Builds the item bitmaps for a block of transactions
+     */
+    private static final class IndexTask extends RecursiveTask<ItemBitmaps> {
+        private final List<Transaction> transactions;
+        private final int from;
+        private final int to;
+
+        IndexTask(List<Transaction> transactions, int from, int to) {
+            this.transactions = transactions;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected ItemBitmaps compute() {
+            ItemBitmaps res = new ItemBitmaps();
+            for (int tid = from; tid < to; tid++) {
+                Transaction t = transactions.get(tid);
+                for (int i = 0; i < t.items.length; i++) {
+                    res.get(t.items[i]).add(tid);
+                }
+            }
+            return res;
+        }
+    }
+
+    /**
+     * Open addressing map from items to bitmaps avoiding boxed keys while building the index of a block
+     */
+    private static final class ItemBitmaps {
+        int[] keys = new int[64];
+        CompressedBitmap[] values = new CompressedBitmap[64];
+        private int size;
+
+        CompressedBitmap get(int item) {
+            int mask = keys.length - 1;
+            int pos = (item * 0x9E3779B9) >>> 1 & mask;
+            while (values[pos] != null) {
+                if (keys[pos] == item) {
+                    return values[pos];
+                }
+                pos = (pos + 1) & mask;
+            }
+
+            CompressedBitmap res = new CompressedBitmap();
+            keys[pos] = item;
+            values[pos] = res;
+            if (++size * 2 > keys.length) {
+                grow();
+            }
+            return res;
+        }
+
+        private void grow() {
+            int[] oldKeys = keys;
+            CompressedBitmap[] oldValues = values;
+            keys = new int[oldKeys.length * 2];
+            values = new CompressedBitmap[oldKeys.length * 2];
+            int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldValues[i] != null) {
+                    int pos = (oldKeys[i] * 0x9E3779B9) >>> 1 & mask;
+                    while (values[pos] != null) {
+                        pos = (pos + 1) & mask;
+                    }
+                    keys[pos] = oldKeys[i];
+                    values[pos] = oldValues[i];
+                }
+            }
+        }
+    }
+
+    /**
+     * Carries I/O errors of parse tasks through the fork/join framework
+     */
+    private static final class UncheckedParseException extends RuntimeException {
+        UncheckedParseException(IOException cause) {
+            super(cause);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package de.unima.ki.narminer.utils;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TransactionFileLoaderTest {
+    @Test
+    public void testMatchesStreamConstructor() throws Exception {
+        Random random = new Random(11);
+        StringBuilder sb = new StringBuilder();
+        for (int t = 0; t < 150000; t++) {
+            // unsorted items with duplicates and mixed separators and line endings
+            int[] items = TestData.createItems(random, 8, 10, 500);
+            for (int i = 0; i < items.length; i++) {
+                if (i > 0) {
+                    sb.append(random.nextInt(5) == 0 ? "\t" : random.nextInt(5) == 0 ? "  " : " ");
+                }
+                sb.append(items[i]);
+            }
+            if (random.nextInt(10) == 0) {
+                sb.append(' ');
+            }
+            sb.append(random.nextInt(10) == 0 ? "\r\n" : "\n");
+        }
+        // last line without newline
+        sb.append("7 3 7");
+
+        File file = write(sb.toString());
+        try {
+            TransactionDatabase expected = load(file);
+            assertIdentical(expected, new TransactionFileLoader(4, 4096).load(file));
+            assertIdentical(expected, new TransactionFileLoader(1).load(file));
+        }
+        finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testEmptyLineRejected() throws Exception {
+        File file = write("1 2\n\n3\n");
+        try {
+            new TransactionFileLoader(2, 2).load(file);
+            fail("empty transaction accepted");
+        }
+        catch (IOException e) {
+            // expected
+        }
+        finally {
+            file.delete();
+        }
+    }
+
+    private static void assertIdentical(TransactionDatabase expected, TransactionDatabase actual) {
+        assertEquals(expected.getAllTransactions(), actual.getAllTransactions());
+        assertEquals(expected.getAllItems(), actual.getAllItems());
+        for (int item : expected.getAllItems()) {
+            assertEquals(expected.getItemBitmap(item), actual.getItemBitmap(item));
+        }
+    }
+
+    private static TransactionDatabase load(File file) throws IOException {
+        InputStream in = new FileInputStream(file);
+        try {
+            return new TransactionDatabase(in);
+        }
+        finally {
+            in.close();
+        }
+    }
+
+    private static File write(String content) throws IOException {
+        File file = File.createTempFile("transactions", ".txt");
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content.getBytes("UTF-8"));
+        }
+        finally {
+            out.close();
+        }
+        return file;
+    }
+}